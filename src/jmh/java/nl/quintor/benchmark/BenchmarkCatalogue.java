@@ -0,0 +1,66 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.FavouriteRecipeManager;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.service.RecipeService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Starts the application against an H2 database seeded with a deterministic catalogue of {@link RecipeFixtures}.
+ * <p>
+ * The database is kept in {@code build/jmh-db}, one file per catalogue size, and only seeded by the first fork
+ * that uses it, so later forks start within seconds. The recipe snapshot file of each database is kept next to it.
+ */
+final class BenchmarkCatalogue {
+
+    private static final int SEED_CHUNK_SIZE = 500;
+
+    private BenchmarkCatalogue() {
+    }
+
+    /**
+     * @param recipeCount The number of recipes in the catalogue.
+     * @param webApplicationType Whether to start the embedded web server.
+     * @param arguments Additional application arguments, such as {@code --server.port=0}.
+     */
+    static ConfigurableApplicationContext start(int recipeCount, WebApplicationType webApplicationType, String... arguments) {
+        Path database = Path.of("build", "jmh-db", "recipes-" + recipeCount).toAbsolutePath();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:file:" + database,
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--recipe.snapshot.file=" + database + ".snapshot",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(arguments));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FavouriteRecipeManager.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+        seed(context, recipeCount);
+        return context;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int recipeCount) {
+        RecipeService recipeService = context.getBean(RecipeService.class);
+        long existing = context.getBean(RecipeRepository.class).count();
+        Random random = new Random(42 + existing);
+        for (long index = existing; index < recipeCount; ) {
+            int chunkSize = (int) Math.min(SEED_CHUNK_SIZE, recipeCount - index);
+            List<Recipe> chunk = new ArrayList<>(chunkSize);
+            for (int i = 0; i < chunkSize; i++, index++) {
+                chunk.add(RecipeFixtures.recipe(random, (int) index, 3 + random.nextInt(8)));
+            }
+            recipeService.saveRecipes(chunk);
+        }
+    }
+}
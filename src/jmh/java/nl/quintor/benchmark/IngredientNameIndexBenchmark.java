@@ -0,0 +1,106 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.index.IngredientNameIndex;
+import nl.quintor.model.Ingredient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substring search over {@value #INGREDIENT_COUNT} distinct ingredient names, through the {@link IngredientNameIndex}
+ * and as a linear scan over all names like the {@code LIKE '%x%'} query it replaces.
+ * Two-character queries are shorter than a trigram and scan in both cases.
+ * The heap retained by the index is printed once per fork when it is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngredientNameIndexBenchmark {
+
+    static final int INGREDIENT_COUNT = 100_000;
+
+    private static final String[] SYLLABLES = {
+            "ba", "be", "ca", "chi", "co", "da", "do", "fe", "ga", "gi", "ka", "ko", "la", "le", "li", "lo",
+            "ma", "me", "mi", "mo", "na", "ne", "nel", "pa", "pe", "po", "ra", "ran", "ri", "ro", "sa", "se",
+            "si", "so", "ta", "te", "ter", "ti", "to", "va", "ve", "zo"};
+
+    /**
+     * A short query, common and rare trigram queries, and one without any match.
+     */
+    @Param({"to", "ran", "nelka", "zochiver"})
+    public String query;
+
+    private IngredientNameIndex index;
+    private List<String> names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = new ArrayList<>(names(INGREDIENT_COUNT, 42));
+        long before = usedHeap();
+        index = new IngredientNameIndex(null);
+        for (int i = 0; i < names.size(); i++) {
+            index.index((long) i + 1, names.get(i));
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%nIngredientNameIndex: %d ingredients, %d trigrams, %.1f MB retained%n",
+                index.size(), index.trigramCount(), retained / (1024.0 * 1024.0));
+    }
+
+    @Benchmark
+    public int trigramSearch() {
+        return index.search(query).getCardinality();
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String normalizedQuery = Ingredient.normalizeName(query);
+        int matches = 0;
+        for (String name : names) {
+            if (name.contains(normalizedQuery)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Distinct, normalized names of one or two made up words of two to four syllables.
+     */
+    static Set<String> names(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < count) {
+            String name = word(random);
+            if (random.nextBoolean()) {
+                name += " " + word(random);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,57 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.index.RecipeCatalogueLoader;
+import nl.quintor.index.RecipeSnapshot;
+import nl.quintor.index.RecipeSnapshotFile;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the recipe snapshot and search indexes at startup: from the database, against from a recipe snapshot
+ * file that matches the database, so only the recipe versions are read from it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeCatalogueLoadBenchmark {
+
+    @Param({"10000", "100000"})
+    public int recipeCount;
+
+    private ConfigurableApplicationContext context;
+    private RecipeCatalogueLoader loader;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkCatalogue.start(recipeCount, WebApplicationType.NONE);
+        loader = context.getBean(RecipeCatalogueLoader.class);
+        file = Files.createTempFile("recipe-snapshot", ".bin");
+        RecipeSnapshotFile.write(context.getBean(RecipeSnapshot.class).columns(), file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void fromDatabase() {
+        loader.rebuildFromDatabase();
+    }
+
+    @Benchmark
+    public boolean fromSnapshotFile() {
+        return loader.restore(file);
+    }
+}
@@ -0,0 +1,53 @@
+package nl.quintor.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.quintor.web.rest.cache.RecipeJsonCache;
+import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.transformer.RecipeTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a list of recipes to JSON, as returned by {@code GET /recipe} and {@code GET /recipe/search}:
+ * serialising the DTOs, against joining the JSON of the single recipes as cached by {@link RecipeJsonCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeDtoSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int recipeCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<RecipeDto> recipeDtos;
+    private List<byte[]> recipeJsons;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        recipeDtos = RecipeFixtures.recipes(recipeCount, 8, 42).stream()
+                .map(RecipeTransformer::toDto)
+                .toList();
+        recipeJsons = new ArrayList<>();
+        for (RecipeDto recipeDto : recipeDtos) {
+            recipeJsons.add(objectMapper.writeValueAsBytes(recipeDto));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeRecipeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(recipeDtos);
+    }
+
+    @Benchmark
+    public byte[] joinCachedRecipeJson() {
+        return RecipeJsonCache.toJsonArray(recipeJsons);
+    }
+}
@@ -0,0 +1,82 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.service.RecipeSearchCriteria;
+import nl.quintor.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facet counts as served by {@code GET /recipe/facets}, against counting every facet value with a separate
+ * search, as clients did before: two vegetarian values, five types, eight serving capacities and ten ingredients.
+ * Both run without a filter and with a filter that excludes an ingredient. The search result cache is disabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeFacetsBenchmark {
+
+    private static final List<String> TYPES = List.of("Main Course", "Dessert", "Appetizer", "Soup", "Salad");
+    private static final int SERVING_CAPACITIES = 8;
+    private static final int TOP_INGREDIENTS = 10;
+
+    @Param({"10000", "100000"})
+    public int recipeCount;
+
+    @Param({"false", "true"})
+    public boolean filtered;
+
+    private ConfigurableApplicationContext context;
+    private RecipeService recipeService;
+    private Set<String> excludeValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalogue.start(recipeCount, WebApplicationType.NONE, "--recipe.search-cache.max-size=0");
+        recipeService = context.getBean(RecipeService.class);
+        excludeValue = filtered ? Set.of(RecipeFixtures.ingredientName(TOP_INGREDIENTS)) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int facets() {
+        return recipeService.getFacets(criteria(null, null, null, null), TOP_INGREDIENTS).total();
+    }
+
+    @Benchmark
+    public int searchPerFacetValue() {
+        int matches = 0;
+        for (Boolean isVegetarian : List.of(true, false)) {
+            matches += recipeService.searchRecipeVersions(criteria(isVegetarian, null, null, null)).size();
+        }
+        for (String type : TYPES) {
+            matches += recipeService.searchRecipeVersions(criteria(null, null, type, null)).size();
+        }
+        for (int servingCapacity = 1; servingCapacity <= SERVING_CAPACITIES; servingCapacity++) {
+            matches += recipeService.searchRecipeVersions(criteria(null, servingCapacity, null, null)).size();
+        }
+        for (int i = 0; i < TOP_INGREDIENTS; i++) {
+            matches += recipeService.searchRecipeVersions(criteria(null, null, null, RecipeFixtures.ingredientName(i))).size();
+        }
+        return matches;
+    }
+
+    /**
+     * The benchmark filter, narrowed to a single facet value.
+     */
+    private RecipeSearchCriteria criteria(Boolean isVegetarian, Integer servingCapacity, String type, String ingredient) {
+        return new RecipeSearchCriteria(isVegetarian, servingCapacity, servingCapacity, type == null ? null : Set.of(type),
+                ingredient == null ? null : Set.of(ingredient), false, excludeValue, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic recipe data for the benchmarks. The same seed always yields the same catalogue,
+ * so results of different runs are comparable.
+ */
+final class RecipeFixtures {
+
+    static final int INGREDIENT_POOL_SIZE = 500;
+
+    private static final String[] TYPES = {"Main Course", "Dessert", "Appetizer", "Soup", "Salad"};
+    private static final String[] WORDS = {
+            "mix", "stir", "bake", "simmer", "boil", "chop", "slice", "dice", "whisk", "fold",
+            "roast", "grill", "fry", "sear", "season", "serve", "chill", "blend", "knead", "rest",
+            "the", "and", "until", "golden", "tender", "sauce", "dough", "oven", "pan", "pot",
+            "minutes", "gently", "heat", "low", "medium", "high", "with", "salt", "pepper", "butter"};
+
+    private RecipeFixtures() {
+    }
+
+    static String ingredientName(int index) {
+        return "Ingredient " + index;
+    }
+
+    static List<Recipe> recipes(int count, int ingredientsPerRecipe, long seed) {
+        Random random = new Random(seed);
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recipes.add(recipe(random, i, ingredientsPerRecipe));
+        }
+        return recipes;
+    }
+
+    static Recipe recipe(Random random, int index, int ingredientCount) {
+        Recipe recipe = new Recipe();
+        recipe.setName("Recipe " + index);
+        recipe.setType(TYPES[random.nextInt(TYPES.length)]);
+        recipe.setServingCapacity(1 + random.nextInt(8));
+        recipe.setIsVegetarian(random.nextBoolean());
+
+        recipe.setInstructions(instructions(random, 8 + random.nextInt(16)));
+
+        Set<Integer> ingredientIndexes = new HashSet<>();
+        while (ingredientIndexes.size() < ingredientCount) {
+            ingredientIndexes.add(random.nextInt(INGREDIENT_POOL_SIZE));
+        }
+        Set<Ingredient> ingredients = new HashSet<>();
+        for (int ingredientIndex : ingredientIndexes) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setName(ingredientName(ingredientIndex));
+            ingredients.add(ingredient);
+        }
+        recipe.setIngredientList(ingredients);
+        return recipe;
+    }
+
+    /**
+     * @return Instructions of the given number of words, in sentences of eight words.
+     */
+    static String instructions(Random random, int wordCount) {
+        StringBuilder instructions = new StringBuilder();
+        for (int w = 0; w < wordCount; w++) {
+            instructions.append(WORDS[random.nextInt(WORDS.length)]).append(w % 8 == 7 ? ". " : " ");
+        }
+        return instructions.toString().trim();
+    }
+}
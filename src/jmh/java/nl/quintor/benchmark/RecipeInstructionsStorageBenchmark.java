@@ -0,0 +1,110 @@
+package nl.quintor.benchmark;
+
+import jakarta.persistence.EntityManager;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a page of 100 recipes from the database, as done for recipes the snapshot does not hold, with and without
+ * the instructions, which are only joined from their compressed table when they are selected.
+ * At setup, the size of the instructions is printed as stored and as plain UTF-8, together with the disk space
+ * of the recipe table, the instructions table and a scratch table holding the same instructions uncompressed.
+ * The catalogue is set up by {@link BenchmarkCatalogue}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeInstructionsStorageBenchmark {
+
+    private static final int CATALOGUE_SIZE = 10_000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"all", "name,type,isVegetarian"})
+    public String fields;
+
+    private ConfigurableApplicationContext context;
+    private RecipeRepository recipeRepository;
+    private TransactionTemplate transactionTemplate;
+    private Set<RecipeField> selected;
+    private List<Long> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalogue.start(CATALOGUE_SIZE, WebApplicationType.NONE);
+        recipeRepository = context.getBean(RecipeRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        selected = fields.equals("all") ? RecipeField.ALL : EnumSet.noneOf(RecipeField.class);
+        if (!fields.equals("all")) {
+            Arrays.stream(fields.split(",")).map(RecipeField::of).forEach(selected::add);
+        }
+        page = new ArrayList<>();
+        for (long id = 5_001; id < 5_001 + PAGE_SIZE; id++) {
+            page.add(id);
+        }
+        transactionTemplate.executeWithoutResult(status -> printStorage(context.getBean(EntityManager.class)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<RecipeView> findViews() {
+        return transactionTemplate.execute(status -> recipeRepository.findViewsByIdIn(page, selected));
+    }
+
+    private static void printStorage(EntityManager entityManager) {
+        long stored = ((Number) entityManager.createNativeQuery(
+                "SELECT SUM(OCTET_LENGTH(text)) FROM RECIPE_INSTRUCTIONS").getSingleResult()).longValue();
+        List<String> texts = entityManager.createQuery("SELECT i.text FROM RecipeInstructions i", String.class)
+                .getResultList();
+        long plain = 0;
+        for (String text : texts) {
+            plain += text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        int count = texts.size();
+
+        entityManager.createNativeQuery("DROP TABLE IF EXISTS RECIPE_INSTRUCTIONS_PLAIN").executeUpdate();
+        entityManager.createNativeQuery("CREATE TABLE RECIPE_INSTRUCTIONS_PLAIN (id BIGINT PRIMARY KEY, text VARCHAR)")
+                .executeUpdate();
+        long id = 0;
+        for (String text : texts) {
+            entityManager.createNativeQuery("INSERT INTO RECIPE_INSTRUCTIONS_PLAIN (id, text) VALUES (?1, ?2)")
+                    .setParameter(1, ++id)
+                    .setParameter(2, text)
+                    .executeUpdate();
+        }
+        entityManager.createNativeQuery("CHECKPOINT").executeUpdate();
+
+        System.out.printf("%nInstructions of %d recipes: %d bytes stored (%.1f per recipe), %d bytes as plain UTF-8 "
+                        + "(%.1f per recipe)%n", count, stored, (double) stored / count, plain, (double) plain / count);
+        System.out.printf("Disk space: RECIPE %d bytes, RECIPE_INSTRUCTIONS %d bytes, uncompressed instructions %d bytes%n",
+                diskSpace(entityManager, "RECIPE"),
+                diskSpace(entityManager, "RECIPE_INSTRUCTIONS"), diskSpace(entityManager, "RECIPE_INSTRUCTIONS_PLAIN"));
+        entityManager.createNativeQuery("DROP TABLE RECIPE_INSTRUCTIONS_PLAIN").executeUpdate();
+    }
+
+    private static long diskSpace(EntityManager entityManager, String table) {
+        return ((Number) entityManager.createNativeQuery("SELECT DISK_SPACE_USED('" + table + "')")
+                .getSingleResult()).longValue();
+    }
+}
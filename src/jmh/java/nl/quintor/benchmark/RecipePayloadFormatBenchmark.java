@@ -0,0 +1,76 @@
+package nl.quintor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import nl.quintor.model.Recipe;
+import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.transformer.RecipeTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding a page of 100 recipes as JSON and as Smile, plain and gzip compressed, as a client of
+ * {@code GET /recipe} would receive it. Instructions are either as long as the current schema allows, or long-form.
+ * The payload size of every combination is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipePayloadFormatBenchmark {
+
+    private static final int RECIPE_COUNT = 100;
+
+    @Param({"json", "smile"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"16", "200"})
+    public int instructionWords;
+
+    private ObjectMapper mapper;
+    private List<RecipeDto> recipeDtos;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = format.equals("smile") ? new SmileMapper() : new ObjectMapper();
+        Random random = new Random(42);
+        List<Recipe> recipes = RecipeFixtures.recipes(RECIPE_COUNT, 8, 42);
+        recipes.forEach(recipe -> recipe.setInstructions(RecipeFixtures.instructions(random, instructionWords)));
+        recipeDtos = recipes.stream().map(RecipeTransformer::toDto).toList();
+        payload = encode();
+        System.out.printf("%nPayload of %d recipes as %s%s with %d instruction words: %d bytes%n",
+                RECIPE_COUNT, format, gzip ? "+gzip" : "", instructionWords, payload.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            mapper.writeValue(out, recipeDtos);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public RecipeDto[] decode() throws IOException {
+        try (InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(payload)) : new ByteArrayInputStream(payload)) {
+            return mapper.readValue(in, RecipeDto[].class);
+        }
+    }
+}
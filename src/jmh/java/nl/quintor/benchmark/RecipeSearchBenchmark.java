@@ -0,0 +1,100 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.service.RecipeSearchCriteria;
+import nl.quintor.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static nl.quintor.repository.RecipeSpecifications.*;
+
+/**
+ * Recipe search against an H2 database seeded with a deterministic catalogue, for every combination of the
+ * six search criteria. {@link #searchRecipes()} measures the service as used by {@code GET /recipe/search},
+ * {@link #findAllBySpecification()} measures the same criteria as plain {@code RecipeSpecifications} predicates,
+ * apart from the instructions, which are stored compressed and can only be searched through the text index.
+ * The catalogue is set up by {@link BenchmarkCatalogue}. The search result cache is disabled, since every
+ * invocation repeats the same search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int recipeCount;
+
+    @Param({"false", "true"})
+    public boolean vegetarian;
+
+    @Param({"false", "true"})
+    public boolean servingCapacity;
+
+    @Param({"false", "true"})
+    public boolean includeIngredients;
+
+    @Param({"false", "true"})
+    public boolean excludeIngredients;
+
+    @Param({"false", "true"})
+    public boolean instructions;
+
+    @Param({"false", "true"})
+    public boolean ingredientName;
+
+    private ConfigurableApplicationContext context;
+    private RecipeService recipeService;
+    private RecipeRepository recipeRepository;
+
+    private Boolean isVegetarianValue;
+    private Integer servingCapacityValue;
+    private Set<String> includeValue;
+    private Set<String> excludeValue;
+    private String instructionsValue;
+    private String ingredientNameValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalogue.start(recipeCount, WebApplicationType.NONE, "--recipe.search-cache.max-size=0");
+        recipeService = context.getBean(RecipeService.class);
+        recipeRepository = context.getBean(RecipeRepository.class);
+
+        isVegetarianValue = vegetarian ? Boolean.TRUE : null;
+        servingCapacityValue = servingCapacity ? 4 : null;
+        includeValue = includeIngredients ? Set.of(RecipeFixtures.ingredientName(1), RecipeFixtures.ingredientName(2)) : null;
+        excludeValue = excludeIngredients ? Set.of(RecipeFixtures.ingredientName(3)) : null;
+        instructionsValue = instructions ? "simmer sauce" : null;
+        ingredientNameValue = ingredientName ? RecipeFixtures.ingredientName(4) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int searchRecipes() {
+        return recipeService.getRecipeViews(recipeService.searchRecipeVersions(new RecipeSearchCriteria(isVegetarianValue,
+                servingCapacityValue, servingCapacityValue, null, includeValue, false, excludeValue, instructionsValue,
+                ingredientNameValue))).size();
+    }
+
+    @Benchmark
+    public int findAllBySpecification() {
+        Specification<Recipe> spec = Specification.allOf(isVegetarian(isVegetarianValue),
+                servingCapacity(servingCapacityValue),
+                includeIngredients(includeValue),
+                excludeIngredients(excludeValue),
+                ingredientNameContains(ingredientNameValue));
+        return recipeRepository.findAll(spec).size();
+    }
+}
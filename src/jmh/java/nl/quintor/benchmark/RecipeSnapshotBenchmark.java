@@ -0,0 +1,89 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.index.RecipeSnapshot;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link RecipeSnapshot} of {@value #RECIPE_COUNT} recipes from their entities, as done at startup.
+ * The heap retained per recipe by the snapshot and by the equivalent entity graph is printed once per fork when it
+ * is set up. Both hold the same name and instruction strings and the ingredients are shared between recipes, like in
+ * a persistence context, so the difference is the per-recipe object overhead the columnar layout removes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeSnapshotBenchmark {
+
+    static final int RECIPE_COUNT = 50_000;
+    private static final int INGREDIENT_POOL_SIZE = 500;
+    private static final int INGREDIENTS_PER_RECIPE = 6;
+
+    private List<Recipe> entities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        entities = entities();
+        long entityBytes = usedHeap() - before;
+
+        RecipeSnapshot snapshot = new RecipeSnapshot(null);
+        snapshot.rebuild(entities);
+        entities = null;
+        long snapshotBytes = usedHeap() - before;
+        System.out.printf("%nHeap per recipe: entity graph %d bytes, columnar snapshot %d bytes (%d recipes)%n",
+                entityBytes / RECIPE_COUNT, snapshotBytes / RECIPE_COUNT, snapshot.size());
+
+        entities = entities();
+    }
+
+    @Benchmark
+    public int rebuild() {
+        RecipeSnapshot snapshot = new RecipeSnapshot(null);
+        snapshot.rebuild(entities);
+        return snapshot.size();
+    }
+
+    private static List<Recipe> entities() {
+        List<Ingredient> ingredientPool = new ArrayList<>(INGREDIENT_POOL_SIZE);
+        for (int i = 0; i < INGREDIENT_POOL_SIZE; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setId(i + 1L);
+            ingredient.setName(RecipeFixtures.ingredientName(i));
+            ingredientPool.add(ingredient);
+        }
+        Random random = new Random(42);
+        List<Recipe> recipes = new ArrayList<>(RECIPE_COUNT);
+        for (int i = 0; i < RECIPE_COUNT; i++) {
+            Recipe recipe = RecipeFixtures.recipe(random, i, 0);
+            recipe.setId(i + 1L);
+            recipe.setVersion(0L);
+            Set<Ingredient> ingredients = new HashSet<>();
+            while (ingredients.size() < INGREDIENTS_PER_RECIPE) {
+                ingredients.add(ingredientPool.get(random.nextInt(ingredientPool.size())));
+            }
+            recipe.setIngredientList(ingredients);
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,72 @@
+package nl.quintor.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.quintor.index.RecipeSnapshot;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.transformer.RecipeTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an uncached page of 100 recipes from the {@link RecipeSnapshot}: reading the views, building the DTOs and
+ * writing them to JSON, for the complete recipe and for the sparse fieldset of a typical list view. The size of the
+ * response is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeSparseFieldsBenchmark {
+
+    private static final int CATALOGUE_SIZE = 10_000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"all", "name,type,isVegetarian"})
+    public String fields;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RecipeSnapshot snapshot;
+    private Set<RecipeField> selected;
+    private List<Long> page;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        List<Recipe> recipes = RecipeFixtures.recipes(CATALOGUE_SIZE, 8, 42);
+        for (int i = 0; i < recipes.size(); i++) {
+            recipes.get(i).setId(i + 1L);
+            recipes.get(i).setVersion(0L);
+            recipes.get(i).getIngredientList().forEach(ingredient ->
+                    ingredient.setId(Long.parseLong(ingredient.getName().substring("Ingredient ".length()))));
+        }
+        snapshot = new RecipeSnapshot(null);
+        snapshot.rebuild(recipes);
+
+        selected = fields.equals("all") ? RecipeField.ALL : EnumSet.noneOf(RecipeField.class);
+        if (!fields.equals("all")) {
+            Arrays.stream(fields.split(",")).map(RecipeField::of).forEach(selected::add);
+        }
+        page = new ArrayList<>();
+        for (long id = 5_001; id < 5_001 + PAGE_SIZE; id++) {
+            page.add(id);
+        }
+        System.out.printf("%nPage of %d recipes with fields %s: %d bytes%n", PAGE_SIZE, fields, writePage().length);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        List<RecipeDto> recipeDtos = new ArrayList<>(PAGE_SIZE);
+        snapshot.getAll(page, selected).values().forEach(view -> recipeDtos.add(RecipeTransformer.toDto(view, selected)));
+        return objectMapper.writeValueAsBytes(recipeDtos);
+    }
+}
@@ -0,0 +1,42 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.model.Recipe;
+import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.transformer.RecipeTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting a single recipe between entity and DTO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeTransformerBenchmark {
+
+    @Param({"5", "20"})
+    public int ingredientCount;
+
+    private Recipe recipe;
+    private RecipeDto recipeDto;
+
+    @Setup
+    public void setUp() {
+        recipe = RecipeFixtures.recipes(1, ingredientCount, 42).get(0);
+        recipeDto = RecipeTransformer.toDto(recipe);
+    }
+
+    @Benchmark
+    public RecipeDto toDto() {
+        return RecipeTransformer.toDto(recipe);
+    }
+
+    @Benchmark
+    public Recipe toEntity() {
+        return RecipeTransformer.toEntity(recipeDto);
+    }
+}
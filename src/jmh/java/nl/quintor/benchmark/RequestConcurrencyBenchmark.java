@@ -0,0 +1,92 @@
+package nl.quintor.benchmark;
+
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency percentiles of the recipe endpoints under high concurrency, with requests handled by
+ * Tomcat's platform thread pool or by virtual threads ({@code spring.threads.virtual.enabled}).
+ * {@value #CONCURRENCY} client threads keep requests in flight over HTTP, twice the default Tomcat pool size,
+ * so the platform thread mode queues requests while virtual threads serve all of them and wait on the
+ * connection pool instead. The sample time mode reports the p99 latency.
+ * <p>
+ * H2 runs in process, so requests block on the connection pool but not on database network round trips;
+ * against MySQL the difference between the two modes is larger.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(RequestConcurrencyBenchmark.CONCURRENCY)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestConcurrencyBenchmark {
+
+    static final int CONCURRENCY = 400;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"10000"})
+    public int recipeCount;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUri;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalogue.start(recipeCount, WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.hikari.maximum-pool-size=50");
+        baseUri = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/recipe";
+        ids = context.getBean(RecipeService.class).getRecipeVersions(null, recipeCount).stream()
+                .map(RecipeVersion::id)
+                .toList();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        private final Random random = new Random();
+    }
+
+    @Benchmark
+    public int getRecipeById(ClientState client) throws IOException, InterruptedException {
+        return get(baseUri + "/" + ids.get(client.random.nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public int getRecipePage(ClientState client) throws IOException, InterruptedException {
+        return get(baseUri + "?limit=20&after=" + ids.get(client.random.nextInt(ids.size())));
+    }
+
+    private int get(String uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("GET " + uri + " returned " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,149 @@
+package nl.quintor.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least-recently-used map with hit, miss and eviction counters, shared by the recipe caches.
+ * Values are loaded by the caller without holding the cache lock, so a value is put together with the
+ * {@link #generation()} read before it was loaded, and dropped when the cache was invalidated in the meantime,
+ * since it may be stale. Hits, misses, evictions and size are published as the standard Micrometer {@code cache.*}
+ * meters, tagged with the name of the cache.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type. Values are shared between callers.
+ */
+public class LruCache<K, V> implements MeterBinder {
+
+    private final String name;
+    private final Map<K, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    /**
+     * Incremented on every invalidation, so a load that started before an invalidation does not cache its
+     * possibly stale result.
+     */
+    private long generation;
+
+    /**
+     * @param name    The name of the cache in the {@code cache} tag of its meters.
+     * @param maxSize The maximum number of entries. {@code 0} caches nothing.
+     */
+    public LruCache(String name, int maxSize) {
+        this.name = name;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Counts a hit and returns the cached value, or counts a miss and returns null.
+     */
+    public synchronized V get(K key) {
+        return get(key, value -> true);
+    }
+
+    /**
+     * Counts a hit and returns the cached value when it is still current, or counts a miss and returns null.
+     * A cached value that is no longer current is dropped and counted as an eviction.
+     */
+    public synchronized V get(K key, Predicate<V> current) {
+        V value = entries.get(key);
+        if (value != null) {
+            if (current.test(value)) {
+                hits++;
+                return value;
+            }
+            entries.remove(key);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * @return The generation to pass to {@link #put} for a value that is loaded from now on.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a value, unless the cache was invalidated since the given generation.
+     */
+    public synchronized void put(long loadGeneration, K key, V value) {
+        if (loadGeneration == generation) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Caches several values, unless the cache was invalidated since the given generation.
+     */
+    public synchronized void putAll(long loadGeneration, Map<K, V> values) {
+        if (loadGeneration == generation) {
+            entries.putAll(values);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().hits())
+                .tags("cache", name, "result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value.")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().misses())
+                .tags("cache", name, "result", "miss")
+                .description("The number of times cache lookup methods have returned an uncached value.")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, cache -> cache.stats().evictions())
+                .tags("cache", name)
+                .description("The number of times the cache was evicted.")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.stats().size())
+                .tags("cache", name)
+                .description("The number of entries in this cache.")
+                .register(registry);
+    }
+
+    /**
+     * Cache counters since startup. Evictions count entries dropped to stay within the maximum size and outdated
+     * entries dropped on lookup, not the entries dropped by an invalidation.
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            long gets = hits + misses;
+            return gets == 0 ? 0 : (double) hits / gets;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package nl.quintor.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import nl.quintor.model.Ingredient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that publishes an {@link IngredientSavedEvent} when an ingredient is inserted or updated,
+ * and an {@link IngredientRemovedEvent} when it is deleted.
+ */
+@Component
+public class IngredientEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public IngredientEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Ingredient ingredient) {
+        eventPublisher.publishEvent(new IngredientSavedEvent(ingredient.getId(), ingredient.getNormalizedName()));
+    }
+
+    @PostRemove
+    public void onRemove(Ingredient ingredient) {
+        eventPublisher.publishEvent(new IngredientRemovedEvent(ingredient.getId(), ingredient.getName()));
+    }
+}
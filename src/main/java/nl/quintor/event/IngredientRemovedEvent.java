@@ -0,0 +1,18 @@
+package nl.quintor.event;
+
+import lombok.Getter;
+
+/**
+ * Published when an ingredient is deleted, so caches holding its id can drop it.
+ */
+@Getter
+public class IngredientRemovedEvent {
+
+    private final Long ingredientId;
+    private final String name;
+
+    public IngredientRemovedEvent(Long ingredientId, String name) {
+        this.ingredientId = ingredientId;
+        this.name = name;
+    }
+}
@@ -0,0 +1,18 @@
+package nl.quintor.event;
+
+import lombok.Getter;
+
+/**
+ * Published when an ingredient is inserted or updated, so indexes over ingredient names can pick it up.
+ */
+@Getter
+public class IngredientSavedEvent {
+
+    private final Long ingredientId;
+    private final String normalizedName;
+
+    public IngredientSavedEvent(Long ingredientId, String normalizedName) {
+        this.ingredientId = ingredientId;
+        this.normalizedName = normalizedName;
+    }
+}
@@ -0,0 +1,39 @@
+package nl.quintor.event;
+
+import lombok.Getter;
+import nl.quintor.model.Recipe;
+
+/**
+ * Published whenever a recipe is inserted, updated or removed.
+ * Listeners that keep derived state (indexes, caches) should consume it after commit, ordered by
+ * {@link #UPDATE_INDEXES} or {@link #INVALIDATE_CACHES}.
+ */
+@Getter
+public class RecipeChangedEvent {
+
+    /**
+     * The order of the listeners that apply a write to the in-memory indexes and the snapshot.
+     */
+    public static final int UPDATE_INDEXES = 0;
+    /**
+     * The order of the listeners that invalidate cached results. They run after the indexes are updated, so a read
+     * that starts after an invalidation sees the write.
+     */
+    public static final int INVALIDATE_CACHES = 100;
+
+    private final Long recipeId;
+
+    /**
+     * The persisted recipe, or null when the recipe was removed.
+     */
+    private final Recipe recipe;
+
+    public RecipeChangedEvent(Long recipeId, Recipe recipe) {
+        this.recipeId = recipeId;
+        this.recipe = recipe;
+    }
+
+    public boolean isDeleted() {
+        return recipe == null;
+    }
+}
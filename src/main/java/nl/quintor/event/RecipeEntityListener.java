@@ -0,0 +1,35 @@
+package nl.quintor.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import nl.quintor.model.Recipe;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that turns recipe lifecycle callbacks into {@link RecipeChangedEvent}s.
+ * Hooking into JPA rather than the service means writes through the repositories are seen as well.
+ */
+@Component
+public class RecipeEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public RecipeEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Recipe recipe) {
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId(), recipe));
+    }
+
+    @PostRemove
+    public void onRemove(Recipe recipe) {
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId(), null));
+    }
+}
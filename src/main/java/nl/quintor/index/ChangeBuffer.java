@@ -0,0 +1,74 @@
+package nl.quintor.index;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Applies the changes committed while an index or the snapshot is being loaded after the load instead of during it,
+ * so a write that commits between reading the catalogue and replacing the loaded state is not lost. Changes run
+ * right away unless the buffer is held, in which case they are queued and replayed in order when the last hold is
+ * released. Replaying a change the load already saw is harmless, since every change puts or removes the current
+ * state of one recipe or ingredient.
+ */
+class ChangeBuffer {
+
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private int holds;
+    private boolean replaying;
+
+    /**
+     * Applies the change, or queues it while the buffer is held or replaying.
+     */
+    void run(Runnable change) {
+        synchronized (this) {
+            if (holds > 0 || replaying) {
+                pending.add(change);
+                return;
+            }
+        }
+        change.run();
+    }
+
+    /**
+     * Queues every change from now on until {@link #release()} is called.
+     */
+    synchronized void hold() {
+        holds++;
+    }
+
+    /**
+     * Releases a hold, and once no hold is left, replays the queued changes, including the ones queued while
+     * replaying, before new changes run directly again.
+     */
+    void release() {
+        synchronized (this) {
+            if (--holds > 0 || replaying) {
+                return;
+            }
+            replaying = true;
+        }
+        Runnable change;
+        while ((change = next()) != null) {
+            change.run();
+        }
+    }
+
+    /**
+     * @return Whether changes are being queued or replayed rather than applied directly.
+     */
+    synchronized boolean isHeld() {
+        return holds > 0 || replaying;
+    }
+
+    /**
+     * @return The next queued change, or null when the queue is empty or the buffer is held again, in which case the
+     * rest is replayed when that hold is released.
+     */
+    private synchronized Runnable next() {
+        Runnable change = holds > 0 ? null : pending.poll();
+        if (change == null) {
+            replaying = false;
+        }
+        return change;
+    }
+}
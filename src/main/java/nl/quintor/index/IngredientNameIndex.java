@@ -0,0 +1,249 @@
+package nl.quintor.index;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.event.IngredientRemovedEvent;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.event.IngredientSavedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.repository.IngredientRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over normalized ingredient names, for substring search without scanning every ingredient.
+ * Every three-character sequence of a name keeps a bitmap of the ingredients containing it; a query intersects
+ * the bitmaps of its own trigrams and checks the few remaining candidates against their full name.
+ * A query shorter than a trigram is answered by the union of the bitmaps of all trigrams containing it.
+ * The index is loaded at startup and kept current through {@link IngredientSavedEvent}s and
+ * {@link IngredientRemovedEvent}s.
+ */
+@Slf4j
+@Component
+public class IngredientNameIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final IngredientRepository ingredientRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeBuffer changes = new ChangeBuffer();
+
+    private final Map<Long, RoaringBitmap> postings = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    /**
+     * Ingredients with names shorter than a trigram, which have no posting lists.
+     */
+    private final RoaringBitmap shortNames = new RoaringBitmap();
+    private volatile boolean loaded;
+
+    @Autowired
+    public IngredientNameIndex(IngredientRepository ingredientRepository) {
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    /**
+     * Rebuilds the index from the database. Ingredients saved or removed while the index is loaded are applied
+     * afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        changes.hold();
+        List<Ingredient> ingredients;
+        try {
+            ingredients = ingredientRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                names.clear();
+                shortNames.clear();
+                ingredients.forEach(ingredient -> add(toIndexId(ingredient.getId()), Ingredient.normalizeName(ingredient.getName())));
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            changes.release();
+        }
+        log.info("Ingredient name index loaded with {} ingredients and {} trigrams", ingredients.size(), postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.UPDATE_INDEXES)
+    public void onIngredientSaved(IngredientSavedEvent event) {
+        changes.run(() -> index(event.getIngredientId(), event.getNormalizedName()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.UPDATE_INDEXES)
+    public void onIngredientRemoved(IngredientRemovedEvent event) {
+        changes.run(() -> remove(event.getIngredientId()));
+    }
+
+    /**
+     * Indexes the name of an ingredient, replacing any previously indexed name for the same id.
+     *
+     * @param normalizedName The name normalized with {@link Ingredient#normalizeName(String)}.
+     */
+    public void index(Long ingredientId, String normalizedName) {
+        int id = toIndexId(ingredientId);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            add(id, normalizedName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ingredient from the index.
+     *
+     * @param ingredientId The ID of the ingredient to remove.
+     */
+    public void remove(Long ingredientId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndexId(ingredientId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ingredients whose normalized name contains the normalized text.
+     *
+     * @param text The text to look for. Normalized with {@link Ingredient#normalizeName(String)} first.
+     * @return A new bitmap of the matching ingredient ids, owned by the caller.
+     */
+    public RoaringBitmap search(String text) {
+        String query = Ingredient.normalizeName(text);
+        RoaringBitmap matches = new RoaringBitmap();
+        if (query == null) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates;
+            if (query.length() < GRAM_LENGTH) {
+                postings.forEach((trigram, ingredients) -> {
+                    if (decode(trigram).contains(query)) {
+                        matches.or(ingredients);
+                    }
+                });
+                candidates = shortNames;
+            } else {
+                candidates = candidates(query);
+            }
+            candidates.forEach((int id) -> {
+                if (names.get(id).contains(query)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether the index was loaded and has applied every change committed since.
+     */
+    public boolean isLoaded() {
+        return loaded && !changes.isHeld();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the posting lists of the trigrams of the query, smallest first.
+     */
+    private RoaringBitmap candidates(String query) {
+        List<RoaringBitmap> lists = new ArrayList<>();
+        for (long trigram : trigrams(query)) {
+            RoaringBitmap ingredients = postings.get(trigram);
+            if (ingredients == null) {
+                return new RoaringBitmap();
+            }
+            lists.add(ingredients);
+        }
+        lists.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap candidates = lists.get(0).clone();
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.and(lists.get(i));
+        }
+        return candidates;
+    }
+
+    private void add(int id, String normalizedName) {
+        if (normalizedName == null) {
+            return;
+        }
+        names.put(id, normalizedName);
+        if (normalizedName.length() < GRAM_LENGTH) {
+            shortNames.add(id);
+        }
+        for (long trigram : trigrams(normalizedName)) {
+            postings.computeIfAbsent(trigram, key -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private void removeUnlocked(int id) {
+        String name = names.remove(id);
+        if (name == null) {
+            return;
+        }
+        shortNames.remove(id);
+        for (long trigram : trigrams(name)) {
+            RoaringBitmap ingredients = postings.get(trigram);
+            if (ingredients != null) {
+                ingredients.remove(id);
+                if (ingredients.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * The distinct trigrams of a name, each packed into a long as three 16-bit chars.
+     */
+    private static Set<Long> trigrams(String name) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            trigrams.add(((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static String decode(long trigram) {
+        return new String(new char[]{(char) (trigram >>> 32), (char) (trigram >>> 16), (char) trigram});
+    }
+
+    private static int toIndexId(Long ingredientId) {
+        return Math.toIntExact(ingredientId);
+    }
+}
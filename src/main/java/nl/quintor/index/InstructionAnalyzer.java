@@ -0,0 +1,81 @@
+package nl.quintor.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns instruction text into index terms: splits on anything that is not a letter or digit,
+ * lowercases and reduces each token with a light English suffix stemmer,
+ * so that "Bake", "baked", "baking" and "bakes" all map to the same term.
+ */
+public final class InstructionAnalyzer {
+
+    private InstructionAnalyzer() {
+    }
+
+    /**
+     * @return The terms of the text in order of appearance, including repeated terms. Empty for null text.
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                terms.add(stem(text.substring(start, i).toLowerCase(Locale.ROOT)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        if (token.length() <= 3) {
+            return token;
+        }
+        String stem = token;
+        if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("ies")) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        if (stem.endsWith("ing") && stem.length() >= 6 && hasVowel(stem, stem.length() - 3)) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.endsWith("ed") && stem.length() >= 5 && hasVowel(stem, stem.length() - 2)) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        }
+        if (stem.endsWith("e") && stem.length() > 3) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+
+    private static boolean hasVowel(String stem, int end) {
+        for (int i = 0; i < end; i++) {
+            if ("aeiouy".indexOf(stem.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reduces a doubled final consonant left behind by suffix removal, as in "stirr" from "stirring".
+     */
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length >= 2 && stem.charAt(length - 1) == stem.charAt(length - 2)
+                && "aeioulsz".indexOf(stem.charAt(length - 1)) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,245 @@
+package nl.quintor.index;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over recipe instructions.
+ * Instructions are split into terms by {@link InstructionAnalyzer}; every term keeps a bitmap of the recipes
+ * containing it and every recipe keeps its term frequencies, so queries are answered by intersecting posting
+ * lists and ranking the matches with BM25.
+ * The index is loaded at startup by the {@link RecipeCatalogueLoader} and kept current through
+ * {@link RecipeChangedEvent}s.
+ */
+@Slf4j
+@Component
+public class InstructionTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeBuffer changes = new ChangeBuffer();
+
+    private final Map<String, RoaringBitmap> postings = new HashMap<>();
+    private final Map<Integer, IndexedInstructions> indexedRecipes = new HashMap<>();
+    private long totalTerms;
+    private volatile boolean loaded;
+
+    @Autowired
+    public InstructionTextIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Rebuilds the index from the database. Recipes changed while it is loaded are applied afterwards.
+     */
+    public void rebuild() {
+        holdChanges();
+        try {
+            rebuild(recipeRepository.findAllWithIngredients());
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Queues the changes committed from now on until {@link #releaseChanges()}, while the index is loaded.
+     */
+    void holdChanges() {
+        changes.hold();
+    }
+
+    /**
+     * Applies the changes queued since {@link #holdChanges()}.
+     */
+    void releaseChanges() {
+        changes.release();
+    }
+
+    /**
+     * Rebuilds the index from the instructions of the given recipes.
+     */
+    public void rebuild(Collection<Recipe> recipes) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            indexedRecipes.clear();
+            totalTerms = 0;
+            recipes.forEach(recipe -> add(toIndexId(recipe.getId()), recipe.getInstructions()));
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Instruction text index loaded with {} recipes and {} terms", recipes.size(), postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.UPDATE_INDEXES)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        changes.run(() -> apply(event));
+    }
+
+    private void apply(RecipeChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getRecipeId());
+        } else if (event.getRecipe().isInstructionsLoaded()) {
+            index(event.getRecipeId(), event.getRecipe().getInstructions());
+        } else {
+            recipeRepository.findAllWithIngredientsByIdIn(List.of(event.getRecipeId()))
+                    .forEach(recipe -> index(recipe.getId(), recipe.getInstructions()));
+        }
+    }
+
+    /**
+     * Indexes the instructions of a recipe, replacing any previously indexed instructions for the same id.
+     */
+    public void index(Long recipeId, String instructions) {
+        int id = toIndexId(recipeId);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            add(id, instructions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the index.
+     *
+     * @param recipeId The ID of the recipe to remove.
+     */
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndexId(recipeId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the recipes whose instructions contain all terms of the query, most relevant first.
+     * Recipes with equal scores are ordered by id.
+     *
+     * @param query  The search text. A query without any terms matches nothing.
+     * @param within Optional set of recipe ids to restrict the search to, or null to search all recipes.
+     * @return The ids of the matching recipes in order of relevance.
+     */
+    public List<Long> search(String query, RoaringBitmap within) {
+        Set<String> terms = new LinkedHashSet<>(InstructionAnalyzer.analyze(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> termPostings = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                RoaringBitmap recipes = postings.get(term);
+                if (recipes == null) {
+                    return List.of();
+                }
+                termPostings.add(recipes);
+            }
+            // intersect the rarest terms first to keep intermediate results small
+            termPostings.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+            RoaringBitmap matches = within == null ? termPostings.get(0).clone() : RoaringBitmap.and(within, termPostings.get(0));
+            for (int i = 1; i < termPostings.size() && !matches.isEmpty(); i++) {
+                matches.and(termPostings.get(i));
+            }
+            return rank(terms, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether the index was loaded and has applied every change committed since.
+     */
+    public boolean isLoaded() {
+        return loaded && !changes.isHeld();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedRecipes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> rank(Set<String> terms, RoaringBitmap matches) {
+        int documentCount = indexedRecipes.size();
+        double averageLength = documentCount == 0 ? 0 : (double) totalTerms / documentCount;
+        Map<String, Double> idf = new HashMap<>();
+        for (String term : terms) {
+            int documentFrequency = postings.get(term).getCardinality();
+            idf.put(term, Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5)));
+        }
+
+        List<ScoredRecipe> scored = new ArrayList<>(matches.getCardinality());
+        for (int id : matches) {
+            IndexedInstructions indexed = indexedRecipes.get(id);
+            double lengthNorm = K1 * (1 - B + B * indexed.length() / averageLength);
+            double score = 0;
+            for (String term : terms) {
+                int frequency = indexed.termFrequencies().get(term);
+                score += idf.get(term) * frequency * (K1 + 1) / (frequency + lengthNorm);
+            }
+            scored.add(new ScoredRecipe(id, score));
+        }
+        scored.sort(Comparator.comparingDouble(ScoredRecipe::score).reversed().thenComparingInt(ScoredRecipe::id));
+
+        List<Long> ranked = new ArrayList<>(scored.size());
+        scored.forEach(recipe -> ranked.add((long) recipe.id()));
+        return ranked;
+    }
+
+    private void add(int id, String instructions) {
+        List<String> terms = InstructionAnalyzer.analyze(instructions);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        terms.forEach(term -> termFrequencies.merge(term, 1, Integer::sum));
+        termFrequencies.keySet().forEach(term -> postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(id));
+        indexedRecipes.put(id, new IndexedInstructions(termFrequencies, terms.size()));
+        totalTerms += terms.size();
+    }
+
+    private void removeUnlocked(int id) {
+        IndexedInstructions indexed = indexedRecipes.remove(id);
+        if (indexed == null) {
+            return;
+        }
+        for (String term : indexed.termFrequencies().keySet()) {
+            RoaringBitmap recipes = postings.get(term);
+            recipes.remove(id);
+            if (recipes.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalTerms -= indexed.length();
+    }
+
+    private static int toIndexId(Long recipeId) {
+        return Math.toIntExact(recipeId);
+    }
+
+    private record IndexedInstructions(Map<String, Integer> termFrequencies, int length) {
+    }
+
+    private record ScoredRecipe(int id, double score) {
+    }
+}
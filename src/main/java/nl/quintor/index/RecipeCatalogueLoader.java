@@ -0,0 +1,236 @@
+package nl.quintor.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the {@link RecipeSnapshot}, {@link RecipeSearchIndex} and {@link InstructionTextIndex} at startup, from one
+ * read of the catalogue.
+ * <p>
+ * When {@code recipe.snapshot.file} is set, the snapshot is written to that {@link RecipeSnapshotFile} every
+ * {@code recipe.snapshot.write-interval} if it changed, and on shutdown. At startup the file is mapped and only the
+ * recipes that changed since it was written are replayed from the database: the ids and versions of all recipes are
+ * compared with the file, recipes that are new or have a higher version are loaded, and recipes that are gone are
+ * removed. The indexes are then built from the snapshot. A file that cannot be read, or that has a recipe at a
+ * higher version than the database, was not written against this database and is ignored in favour of a full load.
+ * <p>
+ * Recipes changed while the catalogue is loaded are queued by the snapshot and the indexes and applied once it is
+ * loaded, so a write that commits after the catalogue was read is not lost when the loaded state replaces theirs.
+ */
+@Slf4j
+@Component
+public class RecipeCatalogueLoader {
+
+    /**
+     * The number of recipe versions compared with the file per query.
+     */
+    static final int VERSION_PAGE_SIZE = 10_000;
+    /**
+     * The number of changed recipes loaded per query.
+     */
+    static final int RELOAD_CHUNK_SIZE = 1_000;
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeSnapshot recipeSnapshot;
+    private final RecipeSearchIndex recipeSearchIndex;
+    private final InstructionTextIndex instructionTextIndex;
+    private final Path snapshotFile;
+
+    private volatile boolean loaded;
+    private long writtenModifications = -1;
+
+    @Autowired
+    public RecipeCatalogueLoader(RecipeRepository recipeRepository, RecipeSnapshot recipeSnapshot,
+                                 RecipeSearchIndex recipeSearchIndex, InstructionTextIndex instructionTextIndex,
+                                 @Value("${recipe.snapshot.file:}") String snapshotFile) {
+        this.recipeRepository = recipeRepository;
+        this.recipeSnapshot = recipeSnapshot;
+        this.recipeSearchIndex = recipeSearchIndex;
+        this.instructionTextIndex = instructionTextIndex;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    }
+
+    /**
+     * Loads the catalogue from the snapshot file when there is a usable one, and from the database otherwise.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        holdChanges();
+        try {
+            if (snapshotFile == null || !Files.exists(snapshotFile) || !restore(snapshotFile)) {
+                rebuildFromDatabase();
+            }
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Loads all recipes with their ingredients and builds the snapshot and the indexes from them.
+     */
+    public void rebuildFromDatabase() {
+        holdChanges();
+        try {
+            List<Recipe> recipes = recipeRepository.findAllWithIngredients();
+            recipeSnapshot.rebuild(recipes);
+            recipeSearchIndex.rebuild(recipes);
+            instructionTextIndex.rebuild(recipes);
+            loaded = true;
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Restores the snapshot from the file, replays the recipes that changed since it was written and builds the
+     * indexes from the snapshot.
+     *
+     * @return Whether the file could be used. If not, nothing is loaded.
+     */
+    public boolean restore(Path file) {
+        holdChanges();
+        try {
+            long start = System.nanoTime();
+            RecipeSnapshot.Columns columns;
+            try {
+                columns = RecipeSnapshotFile.read(file);
+            } catch (IOException e) {
+                log.warn("Loading recipes from the database: {}", e.getMessage());
+                return false;
+            }
+            Delta delta = compareWithDatabase(columns);
+            if (delta == null) {
+                log.warn("Loading recipes from the database: recipe snapshot file {} is ahead of the database", file);
+                return false;
+            }
+
+            recipeSnapshot.restore(columns);
+            delta.deleted().forEach(recipeSnapshot::remove);
+            for (int from = 0; from < delta.changed().size(); from += RELOAD_CHUNK_SIZE) {
+                List<Long> chunk = delta.changed().subList(from, Math.min(from + RELOAD_CHUNK_SIZE, delta.changed().size()));
+                Set<Long> reloaded = new HashSet<>();
+                for (Recipe recipe : recipeRepository.findAllWithIngredientsByIdIn(chunk)) {
+                    recipeSnapshot.put(recipe);
+                    reloaded.add(recipe.getId());
+                }
+                // deleted after the versions were compared
+                chunk.stream().filter(id -> !reloaded.contains(id)).forEach(recipeSnapshot::remove);
+            }
+            if (delta.changed().isEmpty() && delta.deleted().isEmpty()) {
+                writtenModifications = recipeSnapshot.modifications();
+            }
+
+            List<Recipe> recipes = recipeSnapshot.toRecipes();
+            recipeSearchIndex.rebuild(recipes);
+            instructionTextIndex.rebuild(recipes);
+            loaded = true;
+            log.info("Recipes restored from {} up to id {} in {} ms, replaying {} changed and {} deleted recipes",
+                    file, columns.maxId(), (System.nanoTime() - start) / 1_000_000, delta.changed().size(),
+                    delta.deleted().size());
+            return true;
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Merges the ids and versions in the database with the rows of the file, both in id order.
+     *
+     * @return The recipes that changed since the file was written, or null if the database has a recipe at a
+     * lower version than the file.
+     */
+    private Delta compareWithDatabase(RecipeSnapshot.Columns columns) {
+        List<Long> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long[] ids = columns.ids();
+        long[] versions = columns.versions();
+        int row = 0;
+        long after = 0;
+        List<RecipeVersion> page;
+        do {
+            page = recipeRepository.findVersionsAfter(after, Limit.of(VERSION_PAGE_SIZE));
+            for (RecipeVersion current : page) {
+                while (row < ids.length && ids[row] < current.id()) {
+                    deleted.add(ids[row++]);
+                }
+                if (row < ids.length && ids[row] == current.id()) {
+                    if (current.version() < versions[row]) {
+                        return null;
+                    }
+                    if (current.version() > versions[row]) {
+                        changed.add(current.id());
+                    }
+                    row++;
+                } else {
+                    changed.add(current.id());
+                }
+                after = current.id();
+            }
+        } while (page.size() == VERSION_PAGE_SIZE);
+        while (row < ids.length) {
+            deleted.add(ids[row++]);
+        }
+        return new Delta(changed, deleted);
+    }
+
+    /**
+     * Writes the snapshot to the snapshot file if it changed since it was last written.
+     */
+    @Scheduled(fixedDelayString = "${recipe.snapshot.write-interval:PT5M}",
+            initialDelayString = "${recipe.snapshot.write-interval:PT5M}")
+    public synchronized void writeSnapshot() {
+        if (snapshotFile == null || !loaded) {
+            return;
+        }
+        long modifications = recipeSnapshot.modifications();
+        if (modifications == writtenModifications) {
+            return;
+        }
+        try {
+            RecipeSnapshot.Columns columns = recipeSnapshot.columns();
+            RecipeSnapshotFile.write(columns, snapshotFile);
+            writtenModifications = modifications;
+            log.info("Recipe snapshot with {} recipes written to {}", columns.rows(), snapshotFile);
+        } catch (IOException e) {
+            log.warn("Recipe snapshot could not be written to {}", snapshotFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writeSnapshot();
+    }
+
+    private void holdChanges() {
+        recipeSnapshot.holdChanges();
+        recipeSearchIndex.holdChanges();
+        instructionTextIndex.holdChanges();
+    }
+
+    private void releaseChanges() {
+        recipeSnapshot.releaseChanges();
+        recipeSearchIndex.releaseChanges();
+        instructionTextIndex.releaseChanges();
+    }
+
+    private record Delta(List<Long> changed, List<Long> deleted) {
+    }
+}
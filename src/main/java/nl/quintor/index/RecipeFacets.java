@@ -0,0 +1,19 @@
+package nl.quintor.index;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Number of recipes matching a search per value of the search filters.
+ * Values without any matching recipe are left out.
+ *
+ * @param total             The number of matching recipes.
+ * @param vegetarian        The number of vegetarian matches; the remaining matches are not vegetarian.
+ * @param types             Matches per type, most frequent first.
+ * @param servingCapacities Matches per serving capacity, in ascending order of capacity.
+ * @param ingredients       Matches per normalized ingredient name, most frequent first,
+ *                          limited to the requested number of ingredients.
+ */
+public record RecipeFacets(int total, int vegetarian, Map<String, Integer> types,
+                           SortedMap<Integer, Integer> servingCapacities, Map<String, Integer> ingredients) {
+}
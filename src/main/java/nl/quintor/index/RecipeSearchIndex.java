@@ -0,0 +1,410 @@
+package nl.quintor.index;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.hibernate.Hibernate;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the recipe catalogue.
+ * Keeps a compressed bitmap of recipe ids per ingredient, type, serving capacity and vegetarian flag,
+ * so the structured search filters resolve with bitmap AND/ANDNOT instead of SQL joins.
+ * Serving capacities are kept sorted, so a range of capacities is the union of the bitmaps in a sub map.
+ * The index is loaded at startup by the {@link RecipeCatalogueLoader} and kept current through
+ * {@link RecipeChangedEvent}s.
+ */
+@Slf4j
+@Component
+public class RecipeSearchIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeBuffer changes = new ChangeBuffer();
+
+    private final RoaringBitmap allRecipes = new RoaringBitmap();
+    private final RoaringBitmap vegetarian = new RoaringBitmap();
+    private final NavigableMap<Integer, RoaringBitmap> byServingCapacity = new TreeMap<>();
+    private final Map<String, RoaringBitmap> byType = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byIngredient = new HashMap<>();
+    private final Map<String, Long> ingredientIdsByName = new HashMap<>();
+    private final Map<Long, String> ingredientNamesById = new HashMap<>();
+    private final Map<Integer, IndexedRecipe> indexedRecipes = new HashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public RecipeSearchIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Rebuilds the index from the database. Recipes changed while it is loaded are applied afterwards.
+     */
+    public void rebuild() {
+        holdChanges();
+        try {
+            rebuild(recipeRepository.findAllWithIngredients());
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Queues the changes committed from now on until {@link #releaseChanges()}, while the index is loaded.
+     */
+    void holdChanges() {
+        changes.hold();
+    }
+
+    /**
+     * Applies the changes queued since {@link #holdChanges()}.
+     */
+    void releaseChanges() {
+        changes.release();
+    }
+
+    /**
+     * Rebuilds the index from the given recipes.
+     *
+     * @param recipes All recipes, with their ingredient lists initialized.
+     */
+    public void rebuild(Collection<Recipe> recipes) {
+        lock.writeLock().lock();
+        try {
+            allRecipes.clear();
+            vegetarian.clear();
+            byServingCapacity.clear();
+            byType.clear();
+            byIngredient.clear();
+            ingredientIdsByName.clear();
+            ingredientNamesById.clear();
+            indexedRecipes.clear();
+            recipes.forEach(this::add);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe search index loaded with {} recipes", recipes.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.UPDATE_INDEXES)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        changes.run(() -> apply(event));
+    }
+
+    private void apply(RecipeChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getRecipeId());
+            return;
+        }
+        Recipe recipe = event.getRecipe();
+        if (!isIndexable(recipe)) {
+            List<Recipe> reloaded = recipeRepository.findAllWithIngredientsByIdIn(List.of(recipe.getId()));
+            if (reloaded.isEmpty()) {
+                remove(event.getRecipeId());
+                return;
+            }
+            recipe = reloaded.get(0);
+        }
+        index(recipe);
+    }
+
+    /**
+     * A recipe can be indexed as is when its ingredients are loaded, or are references to ingredients whose
+     * name is already known to the index.
+     */
+    private boolean isIndexable(Recipe recipe) {
+        if (!Hibernate.isInitialized(recipe.getIngredientList())) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            for (Ingredient ingredient : recipe.getIngredientList()) {
+                if (!Hibernate.isInitialized(ingredient) && !ingredientNamesById.containsKey(ingredient.getId())) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the recipe to the index, replacing any previously indexed state for the same id.
+     *
+     * @param recipe The recipe to index. Its ingredient list must be initialized and its ingredients must have ids.
+     */
+    public void index(Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndexId(recipe.getId()));
+            add(recipe);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the index.
+     *
+     * @param recipeId The ID of the recipe to remove.
+     */
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndexId(recipeId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resolves the structured search filters to the ids of matching recipes.
+     * Null or empty criteria are ignored, like in {@link nl.quintor.repository.RecipeSpecifications}.
+     * Ingredient names match on their {@link Ingredient#normalizeName(String) normalized} form, types match exactly.
+     *
+     * @param minServings           The minimum serving capacity, inclusive.
+     * @param maxServings           The maximum serving capacity, inclusive.
+     * @param types                 Recipes must have one of these types.
+     * @param includeAllIngredients Whether recipes must contain all of the included ingredients instead of at least one.
+     * @return A new bitmap of matching recipe ids, owned by the caller.
+     */
+    public RoaringBitmap search(Boolean isVegetarian, Integer minServings, Integer maxServings, Set<String> types,
+                                Set<String> includeIngredients, boolean includeAllIngredients, Set<String> excludeIngredients) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = allRecipes.clone();
+            if (isVegetarian != null) {
+                if (isVegetarian) {
+                    result.and(vegetarian);
+                } else {
+                    result.andNot(vegetarian);
+                }
+            }
+            if (minServings != null || maxServings != null) {
+                result.and(servingCapacityBetween(minServings, maxServings));
+            }
+            if (types != null && !types.isEmpty()) {
+                result.and(FastAggregation.or(types.stream().map(type -> byType.getOrDefault(type, EMPTY)).iterator()));
+            }
+            if (includeIngredients != null && !includeIngredients.isEmpty()) {
+                if (includeAllIngredients) {
+                    includeIngredients.forEach(name -> result.and(recipesWith(name)));
+                } else {
+                    result.and(union(includeIngredients));
+                }
+            }
+            if (excludeIngredients != null && !excludeIngredients.isEmpty()) {
+                result.andNot(union(excludeIngredients));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param ingredientIds Ingredient ids, as found by {@link IngredientNameIndex#search(String)}.
+     * @return A new bitmap of the recipes containing at least one of the ingredients, owned by the caller.
+     */
+    public RoaringBitmap recipesWithAnyIngredient(RoaringBitmap ingredientIds) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap recipes = new RoaringBitmap();
+            ingredientIds.forEach((int ingredientId) -> {
+                RoaringBitmap withIngredient = byIngredient.get((long) ingredientId);
+                if (withIngredient != null) {
+                    recipes.or(withIngredient);
+                }
+            });
+            return recipes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the matching recipes per vegetarian flag, type, serving capacity and ingredient.
+     * Each count is the cardinality of the intersection of the matches with the bitmap of that value,
+     * so all facets are counted in one pass over the index without materializing any intersection.
+     *
+     * @param matches        The ids of the matching recipes, or null to count all recipes.
+     * @param topIngredients The maximum number of ingredients to return, most frequent first.
+     */
+    public RecipeFacets facets(RoaringBitmap matches, int topIngredients) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap recipes = matches == null ? allRecipes : RoaringBitmap.and(matches, allRecipes);
+
+            Map<String, Integer> typeCounts = new HashMap<>();
+            byType.forEach((type, withType) -> countIntersection(typeCounts, type, recipes, withType));
+            SortedMap<Integer, Integer> servingCapacityCounts = new TreeMap<>();
+            byServingCapacity.forEach((servingCapacity, withCapacity) ->
+                    countIntersection(servingCapacityCounts, servingCapacity, recipes, withCapacity));
+            Map<String, Integer> ingredientCounts = new HashMap<>();
+            countIngredients(recipes).forEach((ingredientId, count) -> {
+                String name = ingredientNamesById.get(ingredientId);
+                if (name != null) {
+                    ingredientCounts.put(name, count);
+                }
+            });
+
+            return new RecipeFacets(recipes.getCardinality(), RoaringBitmap.andCardinality(recipes, vegetarian),
+                    mostFrequent(typeCounts, Integer.MAX_VALUE), servingCapacityCounts,
+                    mostFrequent(ingredientCounts, topIngredients));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether the index was loaded and has applied every change committed since.
+     */
+    public boolean isLoaded() {
+        return loaded && !changes.isHeld();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedRecipes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the matches per ingredient id. Fewer matches than ingredients are counted from the ingredients
+     * of each matching recipe, otherwise every ingredient bitmap is intersected with the matches.
+     */
+    private Map<Long, Integer> countIngredients(RoaringBitmap recipes) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (recipes.getCardinality() < byIngredient.size()) {
+            recipes.forEach((int id) -> indexedRecipes.get(id).ingredientIds()
+                    .forEach(ingredientId -> counts.merge(ingredientId, 1, Integer::sum)));
+        } else {
+            byIngredient.forEach((ingredientId, withIngredient) -> countIntersection(counts, ingredientId, recipes, withIngredient));
+        }
+        return counts;
+    }
+
+    private static <K> void countIntersection(Map<K, Integer> counts, K key, RoaringBitmap recipes, RoaringBitmap withValue) {
+        int count = RoaringBitmap.andCardinality(recipes, withValue);
+        if (count > 0) {
+            counts.put(key, count);
+        }
+    }
+
+    /**
+     * @return The most frequent entries, ordered by descending count and then by name.
+     */
+    private static Map<String, Integer> mostFrequent(Map<String, Integer> counts, int limit) {
+        Map<String, Integer> mostFrequent = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(entry -> mostFrequent.put(entry.getKey(), entry.getValue()));
+        return mostFrequent;
+    }
+
+    private RoaringBitmap servingCapacityBetween(Integer minServings, Integer maxServings) {
+        int from = minServings != null ? minServings : Integer.MIN_VALUE;
+        int to = maxServings != null ? maxServings : Integer.MAX_VALUE;
+        if (from > to) {
+            return EMPTY;
+        }
+        return FastAggregation.or(byServingCapacity.subMap(from, true, to, true).values().iterator());
+    }
+
+    private RoaringBitmap union(Set<String> ingredientNames) {
+        RoaringBitmap union = new RoaringBitmap();
+        ingredientNames.forEach(name -> union.or(recipesWith(name)));
+        return union;
+    }
+
+    private RoaringBitmap recipesWith(String ingredientName) {
+        Long ingredientId = ingredientIdsByName.get(Ingredient.normalizeName(ingredientName));
+        RoaringBitmap recipes = ingredientId == null ? null : byIngredient.get(ingredientId);
+        return recipes != null ? recipes : EMPTY;
+    }
+
+    private void add(Recipe recipe) {
+        int id = toIndexId(recipe.getId());
+        Set<Long> ingredientIds = new HashSet<>();
+        for (Ingredient ingredient : recipe.getIngredientList()) {
+            // ids of uninitialized references are available without loading them
+            ingredientIds.add(ingredient.getId());
+            if (Hibernate.isInitialized(ingredient)) {
+                ingredientIdsByName.put(ingredient.getNormalizedName(), ingredient.getId());
+                ingredientNamesById.put(ingredient.getId(), ingredient.getNormalizedName());
+            }
+        }
+        IndexedRecipe indexed = new IndexedRecipe(recipe.getServingCapacity(), recipe.getType(),
+                Boolean.TRUE.equals(recipe.getIsVegetarian()), ingredientIds);
+
+        allRecipes.add(id);
+        if (indexed.vegetarian()) {
+            vegetarian.add(id);
+        }
+        if (indexed.servingCapacity() != null) {
+            byServingCapacity.computeIfAbsent(indexed.servingCapacity(), key -> new RoaringBitmap()).add(id);
+        }
+        if (indexed.type() != null) {
+            byType.computeIfAbsent(indexed.type(), key -> new RoaringBitmap()).add(id);
+        }
+        for (Long ingredientId : ingredientIds) {
+            byIngredient.computeIfAbsent(ingredientId, key -> new RoaringBitmap()).add(id);
+        }
+        indexedRecipes.put(id, indexed);
+    }
+
+    private void removeUnlocked(int id) {
+        IndexedRecipe indexed = indexedRecipes.remove(id);
+        if (indexed == null) {
+            return;
+        }
+        allRecipes.remove(id);
+        vegetarian.remove(id);
+        if (indexed.servingCapacity() != null) {
+            clearPosting(byServingCapacity, indexed.servingCapacity(), id);
+        }
+        if (indexed.type() != null) {
+            clearPosting(byType, indexed.type(), id);
+        }
+        for (Long ingredientId : indexed.ingredientIds()) {
+            clearPosting(byIngredient, ingredientId, id);
+        }
+    }
+
+    private static <K> void clearPosting(Map<K, RoaringBitmap> postings, K key, int id) {
+        RoaringBitmap bitmap = postings.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static int toIndexId(Long recipeId) {
+        return Math.toIntExact(recipeId);
+    }
+
+    private record IndexedRecipe(Integer servingCapacity, String type, boolean vegetarian, Set<Long> ingredientIds) {
+    }
+}
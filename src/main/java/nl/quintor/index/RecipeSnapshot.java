@@ -0,0 +1,554 @@
+package nl.quintor.index;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeView;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-optimised, columnar copy of the recipe catalogue, from which recipes are listed without loading entities.
+ * Every recipe is a row, and rows are kept in ascending id order. Types and ingredient names are stored once in
+ * dictionaries and referenced from the rows by code, serving capacities are an {@code int[]}, the vegetarian flags
+ * a bitset, and the ingredient codes of all rows share one {@code int[]} that each row addresses by start offset
+ * and count (compressed sparse rows). Recipe names and instructions are the only objects held per row.
+ * <p>
+ * The snapshot is loaded at startup by the {@link RecipeCatalogueLoader} and kept current through
+ * {@link RecipeChangedEvent}s. A changed recipe appends its ingredient codes and abandons its previous ones; the
+ * shared array is compacted once more than half of it is abandoned. Ingredient names never change once persisted,
+ * so the dictionary only grows.
+ */
+@Slf4j
+@Component
+public class RecipeSnapshot {
+
+    private static final int INITIAL_ROWS = 64;
+    private static final int INITIAL_INGREDIENT_CODES = 512;
+
+    private final RecipeRepository recipeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeBuffer changes = new ChangeBuffer();
+
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<Long, Integer> ingredientCodes = new HashMap<>();
+    private final List<String> ingredientNames = new ArrayList<>();
+    /**
+     * The normalized ingredient names by code, to sort the ingredients of a row in {@link Ingredient#NAME_ORDER}
+     * without normalizing them on every lookup.
+     */
+    private final List<String> ingredientKeys = new ArrayList<>();
+
+    private int rows;
+    private long[] ids = new long[INITIAL_ROWS];
+    private long[] versions = new long[INITIAL_ROWS];
+    private String[] names = new String[INITIAL_ROWS];
+    private String[] instructions = new String[INITIAL_ROWS];
+    private int[] typeColumn = new int[INITIAL_ROWS];
+    private int[] servingCapacities = new int[INITIAL_ROWS];
+    private final BitSet vegetarian = new BitSet();
+    private int[] ingredientStarts = new int[INITIAL_ROWS];
+    private int[] ingredientCounts = new int[INITIAL_ROWS];
+
+    private int[] ingredientColumn = new int[INITIAL_INGREDIENT_CODES];
+    /**
+     * Number of positions of the ingredient column written so far, including abandoned ones.
+     */
+    private int ingredientColumnSize;
+    /**
+     * Number of positions of the ingredient column referenced by a row.
+     */
+    private int ingredientColumnLive;
+    /**
+     * Incremented on every change, so the snapshot is only written to file when it changed.
+     */
+    private long modifications;
+
+    @Autowired
+    public RecipeSnapshot(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database. Recipes changed while it is loaded are applied afterwards.
+     */
+    public void rebuild() {
+        holdChanges();
+        try {
+            rebuild(recipeRepository.findAllWithIngredients());
+        } finally {
+            releaseChanges();
+        }
+    }
+
+    /**
+     * Queues the changes committed from now on until {@link #releaseChanges()}, while the snapshot is loaded.
+     */
+    void holdChanges() {
+        changes.hold();
+    }
+
+    /**
+     * Applies the changes queued since {@link #holdChanges()}.
+     */
+    void releaseChanges() {
+        changes.release();
+    }
+
+    /**
+     * Rebuilds the snapshot from the given recipes.
+     *
+     * @param recipes All recipes, with their ingredient lists initialized.
+     */
+    public void rebuild(Collection<Recipe> recipes) {
+        List<Recipe> sorted = new ArrayList<>(recipes);
+        sorted.sort(Comparator.comparing(Recipe::getId));
+        lock.writeLock().lock();
+        try {
+            typeCodes.clear();
+            types.clear();
+            ingredientCodes.clear();
+            ingredientNames.clear();
+            ingredientKeys.clear();
+            rows = 0;
+            vegetarian.clear();
+            ingredientColumnSize = 0;
+            ingredientColumnLive = 0;
+            sorted.forEach(this::putUnlocked);
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe snapshot loaded with {} recipes", sorted.size());
+    }
+
+    /**
+     * Replaces the snapshot with columns that were copied from a snapshot before, typically read from a
+     * {@link RecipeSnapshotFile}.
+     */
+    public void restore(Columns columns) {
+        lock.writeLock().lock();
+        try {
+            typeCodes.clear();
+            types.clear();
+            columns.types().forEach(type -> {
+                typeCodes.put(type, types.size());
+                types.add(type);
+            });
+            ingredientCodes.clear();
+            ingredientNames.clear();
+            ingredientKeys.clear();
+            for (int code = 0; code < columns.ingredientIds().length; code++) {
+                ingredientCodes.put(columns.ingredientIds()[code], code);
+                ingredientNames.add(columns.ingredientNames().get(code));
+                ingredientKeys.add(Ingredient.normalizeName(columns.ingredientNames().get(code)));
+            }
+
+            rows = columns.rows();
+            int capacity = Math.max(INITIAL_ROWS, rows);
+            ids = Arrays.copyOf(columns.ids(), capacity);
+            versions = Arrays.copyOf(columns.versions(), capacity);
+            names = Arrays.copyOf(columns.names(), capacity);
+            instructions = Arrays.copyOf(columns.instructions(), capacity);
+            typeColumn = Arrays.copyOf(columns.typeColumn(), capacity);
+            servingCapacities = Arrays.copyOf(columns.servingCapacities(), capacity);
+            vegetarian.clear();
+            vegetarian.or(columns.vegetarian());
+            ingredientCounts = Arrays.copyOf(columns.ingredientCounts(), capacity);
+            ingredientStarts = new int[capacity];
+            int start = 0;
+            for (int row = 0; row < rows; row++) {
+                ingredientStarts[row] = start;
+                start += ingredientCounts[row];
+            }
+            ingredientColumn = Arrays.copyOf(columns.ingredientColumn(), Math.max(INITIAL_INGREDIENT_CODES, start));
+            ingredientColumnSize = start;
+            ingredientColumnLive = start;
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe snapshot restored with {} recipes", columns.rows());
+    }
+
+    /**
+     * Copies the snapshot into columns that are trimmed to the number of rows, with the ingredient codes of
+     * every row stored consecutively in row order.
+     */
+    public Columns columns() {
+        lock.readLock().lock();
+        try {
+            int[] rowIngredients = new int[ingredientColumnLive];
+            int size = 0;
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(ingredientColumn, ingredientStarts[row], rowIngredients, size, ingredientCounts[row]);
+                size += ingredientCounts[row];
+            }
+            long[] ingredientIds = new long[ingredientNames.size()];
+            ingredientCodes.forEach((ingredientId, code) -> ingredientIds[code] = ingredientId);
+            return new Columns(Arrays.copyOf(ids, rows), Arrays.copyOf(versions, rows), Arrays.copyOf(names, rows),
+                    Arrays.copyOf(instructions, rows), Arrays.copyOf(typeColumn, rows),
+                    Arrays.copyOf(servingCapacities, rows), vegetarian.get(0, rows), Arrays.copyOf(ingredientCounts, rows),
+                    rowIngredients, List.copyOf(types), ingredientIds, List.copyOf(ingredientNames));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Converts every row back into a detached recipe, with one ingredient instance per dictionary entry shared
+     * between the recipes, so the other indexes can be rebuilt from the snapshot instead of the database.
+     */
+    public List<Recipe> toRecipes() {
+        lock.readLock().lock();
+        try {
+            List<Ingredient> ingredients = new ArrayList<>(ingredientNames.size());
+            ingredientNames.forEach(name -> ingredients.add(new Ingredient()));
+            ingredientCodes.forEach((ingredientId, code) -> {
+                ingredients.get(code).setId(ingredientId);
+                ingredients.get(code).setName(ingredientNames.get(code));
+            });
+            List<Recipe> recipes = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                Recipe recipe = new Recipe();
+                recipe.setId(ids[row]);
+                recipe.setVersion(versions[row]);
+                recipe.setName(names[row]);
+                recipe.setType(types.get(typeColumn[row]));
+                recipe.setServingCapacity(servingCapacities[row]);
+                recipe.setInstructions(instructions[row]);
+                recipe.setIsVegetarian(vegetarian.get(row));
+                Set<Ingredient> rowIngredients = new HashSet<>();
+                int start = ingredientStarts[row];
+                for (int i = start; i < start + ingredientCounts[row]; i++) {
+                    rowIngredients.add(ingredients.get(ingredientColumn[i]));
+                }
+                recipe.setIngredientList(rowIngredients);
+                recipes.add(recipe);
+            }
+            return recipes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.UPDATE_INDEXES)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        changes.run(() -> apply(event));
+    }
+
+    private void apply(RecipeChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getRecipeId());
+            return;
+        }
+        Recipe recipe = event.getRecipe();
+        if (!isStorable(recipe)) {
+            List<Recipe> reloaded = recipeRepository.findAllWithIngredientsByIdIn(List.of(recipe.getId()));
+            if (reloaded.isEmpty()) {
+                remove(event.getRecipeId());
+                return;
+            }
+            recipe = reloaded.get(0);
+        }
+        put(recipe);
+    }
+
+    /**
+     * A recipe can be stored as is when its instructions are loaded and its ingredients are loaded, or are
+     * references to ingredients that are already in the dictionary.
+     */
+    private boolean isStorable(Recipe recipe) {
+        if (!recipe.isInstructionsLoaded() || !Hibernate.isInitialized(recipe.getIngredientList())) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            for (Ingredient ingredient : recipe.getIngredientList()) {
+                if (!Hibernate.isInitialized(ingredient) && !ingredientCodes.containsKey(ingredient.getId())) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the recipe, replacing the row with the same id if there is one.
+     *
+     * @param recipe The recipe to store. Its ingredient list must be initialized and its ingredients must have ids.
+     */
+    public void put(Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            putUnlocked(recipe);
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a recipe from the snapshot.
+     *
+     * @param recipeId The ID of the recipe to remove.
+     */
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, rows, recipeId);
+            if (row >= 0) {
+                removeRow(row);
+                modifications++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The recipe as a {@link RecipeView}, with its ingredient names in alphabetical order,
+     * or null if it is not in the snapshot.
+     */
+    public RecipeView get(Long recipeId) {
+        lock.readLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, rows, recipeId);
+            return row >= 0 ? view(row, RecipeField.ALL) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up several recipes under one lock, like {@link #get(Long)}.
+     *
+     * @return The recipes that are in the snapshot, by id.
+     */
+    public Map<Long, RecipeView> getAll(Collection<Long> recipeIds) {
+        return getAll(recipeIds, RecipeField.ALL);
+    }
+
+    /**
+     * Looks up several recipes like {@link #getAll(Collection)}, but only copies the given fields into the views.
+     * Fields that are not selected are null, and the ingredient names are empty unless
+     * {@link RecipeField#INGREDIENT_LIST} is selected, so they are neither collected nor sorted.
+     */
+    public Map<Long, RecipeView> getAll(Collection<Long> recipeIds, Set<RecipeField> fields) {
+        lock.readLock().lock();
+        try {
+            Map<Long, RecipeView> views = new HashMap<>();
+            for (Long recipeId : recipeIds) {
+                int row = Arrays.binarySearch(ids, 0, rows, recipeId);
+                if (row >= 0) {
+                    views.put(recipeId, view(row, fields));
+                }
+            }
+            return views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of changes made to the snapshot since it was created.
+     */
+    public long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RecipeView view(int row, Set<RecipeField> fields) {
+        List<String> rowIngredients = List.of();
+        if (fields.contains(RecipeField.INGREDIENT_LIST)) {
+            List<Integer> codes = new ArrayList<>(ingredientCounts[row]);
+            int start = ingredientStarts[row];
+            for (int i = start; i < start + ingredientCounts[row]; i++) {
+                codes.add(ingredientColumn[i]);
+            }
+            codes.sort(Comparator.comparing(ingredientKeys::get).thenComparing(ingredientNames::get));
+            rowIngredients = new ArrayList<>(codes.size());
+            for (int code : codes) {
+                rowIngredients.add(ingredientNames.get(code));
+            }
+        }
+        return new RecipeView(ids[row], versions[row],
+                fields.contains(RecipeField.NAME) ? names[row] : null,
+                fields.contains(RecipeField.TYPE) ? types.get(typeColumn[row]) : null,
+                fields.contains(RecipeField.SERVING_CAPACITY) ? servingCapacities[row] : null,
+                fields.contains(RecipeField.INSTRUCTIONS) ? instructions[row] : null,
+                fields.contains(RecipeField.IS_VEGETARIAN) ? vegetarian.get(row) : null,
+                rowIngredients);
+    }
+
+    private void putUnlocked(Recipe recipe) {
+        int row = Arrays.binarySearch(ids, 0, rows, recipe.getId());
+        if (row >= 0) {
+            ingredientColumnLive -= ingredientCounts[row];
+        } else {
+            row = -row - 1;
+            insertRow(row);
+        }
+        ids[row] = recipe.getId();
+        versions[row] = recipe.getVersion();
+        names[row] = recipe.getName();
+        instructions[row] = recipe.getInstructions();
+        typeColumn[row] = typeCodes.computeIfAbsent(recipe.getType(), type -> {
+            types.add(type);
+            return types.size() - 1;
+        });
+        servingCapacities[row] = recipe.getServingCapacity();
+        vegetarian.set(row, Boolean.TRUE.equals(recipe.getIsVegetarian()));
+
+        Set<Ingredient> ingredients = recipe.getIngredientList();
+        ensureIngredientCapacity(ingredients.size());
+        ingredientStarts[row] = ingredientColumnSize;
+        ingredientCounts[row] = ingredients.size();
+        for (Ingredient ingredient : ingredients) {
+            ingredientColumn[ingredientColumnSize++] = ingredientCode(ingredient);
+        }
+        ingredientColumnLive += ingredients.size();
+    }
+
+    private int ingredientCode(Ingredient ingredient) {
+        Integer code = ingredientCodes.get(ingredient.getId());
+        if (code == null) {
+            code = ingredientNames.size();
+            ingredientNames.add(ingredient.getName());
+            ingredientKeys.add(Ingredient.normalizeName(ingredient.getName()));
+            ingredientCodes.put(ingredient.getId(), code);
+        }
+        return code;
+    }
+
+    /**
+     * Opens an empty row at the given position, moving the rows after it one position up.
+     */
+    private void insertRow(int row) {
+        if (rows == ids.length) {
+            int capacity = rows * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            names = Arrays.copyOf(names, capacity);
+            instructions = Arrays.copyOf(instructions, capacity);
+            typeColumn = Arrays.copyOf(typeColumn, capacity);
+            servingCapacities = Arrays.copyOf(servingCapacities, capacity);
+            ingredientStarts = Arrays.copyOf(ingredientStarts, capacity);
+            ingredientCounts = Arrays.copyOf(ingredientCounts, capacity);
+        }
+        moveRows(row, row + 1);
+        rows++;
+    }
+
+    private void removeRow(int row) {
+        ingredientColumnLive -= ingredientCounts[row];
+        moveRows(row + 1, row);
+        rows--;
+        names[rows] = null;
+        instructions[rows] = null;
+    }
+
+    /**
+     * Moves the rows from the given position to the end of the snapshot to start at another position.
+     */
+    private void moveRows(int from, int to) {
+        int count = rows - from;
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(versions, from, versions, to, count);
+        System.arraycopy(names, from, names, to, count);
+        System.arraycopy(instructions, from, instructions, to, count);
+        System.arraycopy(typeColumn, from, typeColumn, to, count);
+        System.arraycopy(servingCapacities, from, servingCapacities, to, count);
+        System.arraycopy(ingredientStarts, from, ingredientStarts, to, count);
+        System.arraycopy(ingredientCounts, from, ingredientCounts, to, count);
+
+        BitSet moved = vegetarian.get(from, rows);
+        vegetarian.clear(Math.min(from, to), rows + 1);
+        moved.stream().forEach(bit -> vegetarian.set(to + bit));
+    }
+
+    /**
+     * Makes room for appending ingredient codes, compacting the ingredient column first when more than half
+     * of it is abandoned.
+     */
+    private void ensureIngredientCapacity(int additional) {
+        if (ingredientColumnSize + additional <= ingredientColumn.length) {
+            return;
+        }
+        if (ingredientColumnLive * 2 < ingredientColumnSize) {
+            compactIngredientColumn();
+        }
+        if (ingredientColumnSize + additional > ingredientColumn.length) {
+            ingredientColumn = Arrays.copyOf(ingredientColumn,
+                    Math.max(ingredientColumn.length * 2, ingredientColumnSize + additional));
+        }
+    }
+
+    private void compactIngredientColumn() {
+        int[] compacted = new int[ingredientColumn.length];
+        int size = 0;
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(ingredientColumn, ingredientStarts[row], compacted, size, ingredientCounts[row]);
+            ingredientStarts[row] = size;
+            size += ingredientCounts[row];
+        }
+        ingredientColumn = compacted;
+        ingredientColumnSize = size;
+    }
+
+    /**
+     * The columns of a snapshot, trimmed to its rows. Row {@code i} has ingredient codes
+     * {@code ingredientColumn[start, start + ingredientCounts[i])}, where start is the sum of the counts of the rows
+     * before it. Type codes index {@code types}; ingredient codes index {@code ingredientIds} and
+     * {@code ingredientNames}.
+     */
+    public record Columns(long[] ids, long[] versions, String[] names, String[] instructions, int[] typeColumn,
+                          int[] servingCapacities, BitSet vegetarian, int[] ingredientCounts, int[] ingredientColumn,
+                          List<String> types, long[] ingredientIds, List<String> ingredientNames) {
+
+        public int rows() {
+            return ids.length;
+        }
+
+        /**
+         * @return The highest recipe id in the columns, or 0 without rows.
+         */
+        public long maxId() {
+            return ids.length == 0 ? 0 : ids[ids.length - 1];
+        }
+
+        /**
+         * @return The highest recipe version in the columns, or 0 without rows.
+         */
+        public long maxVersion() {
+            return Arrays.stream(versions).max().orElse(0);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package nl.quintor.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary file format of the {@link RecipeSnapshot.Columns columns} of a {@link RecipeSnapshot}, from which a node
+ * starts instead of loading the whole catalogue from the database.
+ * <p>
+ * The file starts with a fixed size header: magic number, format version, the high-water mark of the snapshot
+ * (its highest recipe id and version), the row, type, ingredient and ingredient code counts, and a CRC-32 of the
+ * body. The body holds the fixed width columns one after another, then the type and ingredient dictionaries and
+ * the recipe names and instructions as length prefixed UTF-8. Files are read through a memory mapping, so the fixed
+ * width columns are bulk copies out of the page cache. A single mapping holds at most {@value #MAX_FILE_BYTES}
+ * bytes, so larger snapshots are neither written nor read.
+ * <p>
+ * A file is written next to its destination and moved over it atomically, so a crash while writing leaves the
+ * previous file in place.
+ */
+public final class RecipeSnapshotFile {
+
+    static final int MAGIC = 0x52435053;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4 + 8;
+    static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    private static final int NULL_STRING = -1;
+
+    private RecipeSnapshotFile() {
+    }
+
+    /**
+     * Writes the columns to the file, replacing it if it exists.
+     */
+    public static void write(RecipeSnapshot.Columns columns, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_BYTES);
+                CRC32 checksum = new CRC32();
+                DataOutputStream body = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+                writeBody(columns, body);
+                body.flush();
+                if (channel.size() > MAX_FILE_BYTES) {
+                    throw new IOException("Recipe snapshot of " + columns.rows() + " recipes is " + channel.size()
+                            + " bytes, more than the " + MAX_FILE_BYTES + " bytes a snapshot file can hold");
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(columns.maxId())
+                        .putLong(columns.maxVersion())
+                        .putInt(columns.rows())
+                        .putInt(columns.types().size())
+                        .putInt(columns.ingredientIds().length)
+                        .putInt(columns.ingredientColumn().length)
+                        .putLong(checksum.getValue())
+                        .flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeBody(RecipeSnapshot.Columns columns, DataOutputStream out) throws IOException {
+        int rows = columns.rows();
+        for (long id : columns.ids()) {
+            out.writeLong(id);
+        }
+        for (long version : columns.versions()) {
+            out.writeLong(version);
+        }
+        for (int type : columns.typeColumn()) {
+            out.writeInt(type);
+        }
+        for (int servingCapacity : columns.servingCapacities()) {
+            out.writeInt(servingCapacity);
+        }
+        long[] vegetarian = columns.vegetarian().toLongArray();
+        for (int i = 0; i < vegetarianWords(rows); i++) {
+            out.writeLong(i < vegetarian.length ? vegetarian[i] : 0);
+        }
+        for (int count : columns.ingredientCounts()) {
+            out.writeInt(count);
+        }
+        for (int code : columns.ingredientColumn()) {
+            out.writeInt(code);
+        }
+        for (long ingredientId : columns.ingredientIds()) {
+            out.writeLong(ingredientId);
+        }
+        for (String type : columns.types()) {
+            writeString(out, type);
+        }
+        for (String ingredientName : columns.ingredientNames()) {
+            writeString(out, ingredientName);
+        }
+        for (String name : columns.names()) {
+            writeString(out, name);
+        }
+        for (String instructions : columns.instructions()) {
+            writeString(out, instructions);
+        }
+    }
+
+    /**
+     * Maps the file and reads the columns from it.
+     *
+     * @throws IOException If the file cannot be read, is larger than {@value #MAX_FILE_BYTES} bytes, is not a snapshot
+     *                     file of this format version, or its contents do not match the checksum or are
+     *                     inconsistent.
+     */
+    public static RecipeSnapshot.Columns read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw corrupt(file, "it is shorter than the header");
+            }
+            if (channel.size() > MAX_FILE_BYTES) {
+                throw corrupt(file, "it is " + channel.size() + " bytes, more than the " + MAX_FILE_BYTES
+                        + " bytes that can be mapped");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw corrupt(file, "it is not a recipe snapshot");
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw corrupt(file, "its format version " + formatVersion + " is not supported");
+            }
+            long maxId = buffer.getLong();
+            long maxVersion = buffer.getLong();
+            int rows = buffer.getInt();
+            int typeCount = buffer.getInt();
+            int ingredientCount = buffer.getInt();
+            int ingredientColumnSize = buffer.getInt();
+            long expectedChecksum = buffer.getLong();
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice());
+            if (checksum.getValue() != expectedChecksum) {
+                throw corrupt(file, "its checksum does not match");
+            }
+
+            RecipeSnapshot.Columns columns = readBody(buffer, rows, typeCount, ingredientCount, ingredientColumnSize);
+            if (columns.maxId() != maxId || columns.maxVersion() != maxVersion) {
+                throw corrupt(file, "its rows do not match its high-water mark");
+            }
+            validate(file, columns);
+            return columns;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw corrupt(file, "it is truncated");
+        }
+    }
+
+    private static RecipeSnapshot.Columns readBody(ByteBuffer buffer, int rows, int typeCount, int ingredientCount,
+                                                   int ingredientColumnSize) {
+        long[] ids = new long[rows];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        long[] versions = new long[rows];
+        buffer.asLongBuffer().get(versions);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        int[] typeColumn = readInts(buffer, rows);
+        int[] servingCapacities = readInts(buffer, rows);
+        long[] vegetarianWords = new long[vegetarianWords(rows)];
+        buffer.asLongBuffer().get(vegetarianWords);
+        buffer.position(buffer.position() + vegetarianWords.length * Long.BYTES);
+        int[] ingredientCounts = readInts(buffer, rows);
+        int[] ingredientColumn = readInts(buffer, ingredientColumnSize);
+        long[] ingredientIds = new long[ingredientCount];
+        buffer.asLongBuffer().get(ingredientIds);
+        buffer.position(buffer.position() + ingredientCount * Long.BYTES);
+        List<String> types = readStrings(buffer, typeCount);
+        List<String> ingredientNames = readStrings(buffer, ingredientCount);
+        String[] names = readStrings(buffer, rows).toArray(String[]::new);
+        String[] instructions = readStrings(buffer, rows).toArray(String[]::new);
+        return new RecipeSnapshot.Columns(ids, versions, names, instructions, typeColumn, servingCapacities,
+                BitSet.valueOf(vegetarianWords), ingredientCounts, ingredientColumn, types, ingredientIds, ingredientNames);
+    }
+
+    /**
+     * Checks the invariants the snapshot relies on, which the checksum does not cover for a file written by a
+     * faulty writer: ascending ids, codes within their dictionaries and ingredient counts that add up.
+     */
+    private static void validate(Path file, RecipeSnapshot.Columns columns) throws IOException {
+        long ingredientCodes = 0;
+        for (int row = 0; row < columns.rows(); row++) {
+            if (row > 0 && columns.ids()[row] <= columns.ids()[row - 1]) {
+                throw corrupt(file, "its ids are not in ascending order");
+            }
+            if (columns.typeColumn()[row] < 0 || columns.typeColumn()[row] >= columns.types().size()) {
+                throw corrupt(file, "it has an unknown type code");
+            }
+            ingredientCodes += columns.ingredientCounts()[row];
+        }
+        if (ingredientCodes != columns.ingredientColumn().length) {
+            throw corrupt(file, "its ingredient counts do not add up");
+        }
+        for (int code : columns.ingredientColumn()) {
+            if (code < 0 || code >= columns.ingredientIds().length) {
+                throw corrupt(file, "it has an unknown ingredient code");
+            }
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer, int count) {
+        List<String> strings = new ArrayList<>(count);
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length == NULL_STRING) {
+                strings.add(null);
+                continue;
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            strings.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int vegetarianWords(int rows) {
+        return (rows + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static IOException corrupt(Path file, String reason) {
+        return new IOException("Recipe snapshot file " + file + " cannot be used, because " + reason);
+    }
+}
@@ -0,0 +1,89 @@
+package nl.quintor.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores text as raw Deflate at its fastest level, behind a one byte header naming the encoding. Text that does not
+ * get smaller, which happens for a short sentence, is stored as plain UTF-8 behind the header instead.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    static final byte PLAIN = 0;
+    static final byte DEFLATE = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            byte[] compressed = new byte[1 + utf8.length];
+            compressed[0] = DEFLATE;
+            // only finishes when the compressed text is shorter than the plain one
+            int length = deflater.deflate(compressed, 1, Math.max(0, utf8.length - 1));
+            if (deflater.finished()) {
+                return Arrays.copyOf(compressed, 1 + length);
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] plain = new byte[1 + utf8.length];
+        plain[0] = PLAIN;
+        System.arraycopy(utf8, 0, plain, 1, utf8.length);
+        return plain;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (stored.length == 0) {
+            throw new IllegalArgumentException("Compressed text has no header");
+        }
+        return switch (stored[0]) {
+            case PLAIN -> new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+            case DEFLATE -> inflate(stored);
+            default -> throw new IllegalArgumentException("Compressed text has an unknown encoding " + stored[0]);
+        };
+    }
+
+    private static String inflate(byte[] stored) {
+        Inflater inflater = new Inflater(true);
+        try {
+            // raw inflate may need one byte past the end of the stream
+            inflater.setInput(Arrays.copyOfRange(stored, 1, stored.length + 1));
+            ByteArrayOutputStream text = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[Math.max(64, stored.length * 3)];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Compressed text is truncated");
+                }
+                text.write(buffer, 0, length);
+            }
+            // a truncated stream can be ended by the extra byte, a complete one does not read it
+            if (inflater.getBytesRead() != stored.length - 1) {
+                throw new IllegalArgumentException("Compressed text is truncated");
+            }
+            return text.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
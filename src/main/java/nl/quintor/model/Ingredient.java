@@ -3,26 +3,74 @@ package nl.quintor.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import nl.quintor.event.IngredientEntityListener;
 
+import java.text.Normalizer;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Getter
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "INGREDIENT")
+@Table(name = "INGREDIENT", indexes = @Index(name = "uk_ingredient_normalized_name", columnList = "normalizedName", unique = true))
+@EntityListeners(IngredientEntityListener.class)
 public class Ingredient {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * The order of the ingredient names of a recipe view: by {@link #normalizeName(String) normalized} name, then by
+     * name. Compared in Java rather than by the database collation, so views from the snapshot and the database list
+     * the ingredients in the same order.
+     */
+    public static final Comparator<String> NAME_ORDER = Comparator.comparing(Ingredient::normalizeName)
+            .thenComparing(Comparator.naturalOrder());
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_seq")
+    @SequenceGenerator(name = "ingredient_seq", sequenceName = "ingredient_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
     private String name;
 
+    /**
+     * The {@link #normalizeName(String) normalized} name, kept in sync by {@link #setName(String)}.
+     * Unique, so names that only differ in case, accents or spacing share one ingredient.
+     * Not marked as not null, so the schema update can add the column to existing rows before
+     * {@link nl.quintor.service.IngredientNameMigration} fills it in.
+     */
+    @Setter(AccessLevel.NONE)
+    private String normalizedName;
+
     @ManyToMany(mappedBy = "ingredientList")
     @JsonIgnore
     private List<Recipe> recipes;
+
+    public void setName(String name) {
+        this.name = name;
+        this.normalizedName = normalizeName(name);
+    }
+
+    /**
+     * The canonical form of an ingredient name, used for lookups and equality searches: compatibility characters
+     * folded, accents removed, lowercased, trimmed and with runs of whitespace collapsed to a single space.
+     *
+     * @return The normalized name, or null for a null name.
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFKD)).replaceAll("");
+        return WHITESPACE.matcher(folded.toLowerCase(Locale.ROOT).strip()).replaceAll(" ");
+    }
 }
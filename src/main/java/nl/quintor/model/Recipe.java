@@ -2,9 +2,13 @@ package nl.quintor.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import nl.quintor.event.RecipeEntityListener;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,12 +17,21 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "RECIPE")
+@Table(name = "RECIPE", indexes = @Index(name = "idx_recipe_servings_vegetarian_type",
+        columnList = "servingCapacity, isVegetarian, type"))
+@EntityListeners(RecipeEntityListener.class)
 public class Recipe {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_seq")
+    @SequenceGenerator(name = "recipe_seq", sequenceName = "recipe_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Incremented on every update, including changes to the ingredient list. Used for optimistic locking and ETags.
+     */
+    @Version
+    private Long version;
+
     @NotNull
     private String name;
 
@@ -28,8 +41,16 @@ public class Recipe {
     @NotNull
     private Integer servingCapacity;
 
-    @NotNull
-    private String instructions;
+    /**
+     * Loaded on first access, since most reads do not show the instructions. Replaced rather than modified when the
+     * instructions change, so the recipe version is incremented with them.
+     * Not marked as not null in the schema, so the schema update can add the column to existing rows before
+     * {@link nl.quintor.service.RecipeInstructionsMigration} fills it in.
+     */
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "instructions_id")
+    @Setter(AccessLevel.NONE)
+    private RecipeInstructions recipeInstructions;
 
     @NotNull
     private Boolean isVegetarian;
@@ -40,5 +61,24 @@ public class Recipe {
             joinColumns = @JoinColumn(name = "recipe_id"),
             inverseJoinColumns = @JoinColumn(name = "ingredient_id")
     )
+    @BatchSize(size = 100)
     private Set<Ingredient> ingredientList = new HashSet<>();
+
+    /**
+     * @return The instructions, loading them if this recipe is managed and they are not loaded yet.
+     */
+    public String getInstructions() {
+        return recipeInstructions == null ? null : recipeInstructions.getText();
+    }
+
+    public void setInstructions(String instructions) {
+        this.recipeInstructions = instructions == null ? null : new RecipeInstructions(instructions);
+    }
+
+    /**
+     * Whether {@link #getInstructions()} can be called on this recipe after its session is closed.
+     */
+    public boolean isInstructionsLoaded() {
+        return Hibernate.isInitialized(recipeInstructions);
+    }
 }
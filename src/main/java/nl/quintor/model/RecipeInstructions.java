@@ -0,0 +1,36 @@
+package nl.quintor.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+
+/**
+ * The instructions of a {@link Recipe}, kept in their own table so that loading a recipe does not read them.
+ * The text is stored compressed by the {@link CompressedTextConverter}, so the column has no length limit.
+ * Proxies of several recipes' instructions are initialized together, in batches.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "RECIPE_INSTRUCTIONS")
+@BatchSize(size = 100)
+public class RecipeInstructions {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_instructions_seq")
+    @SequenceGenerator(name = "recipe_instructions_seq", sequenceName = "recipe_instructions_seq", allocationSize = 50)
+    private Long id;
+
+    @NotNull
+    @Lob
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(nullable = false)
+    private String text;
+
+    public RecipeInstructions(String text) {
+        this.text = text;
+    }
+}
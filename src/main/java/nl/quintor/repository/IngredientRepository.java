@@ -4,10 +4,25 @@ import nl.quintor.model.Ingredient;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
 
-    Optional<Ingredient> findByName(String name);
-}
\ No newline at end of file
+    /**
+     * @param normalizedName A name normalized with {@link Ingredient#normalizeName(String)}.
+     */
+    Optional<Ingredient> findByNormalizedName(String normalizedName);
+
+    /**
+     * @param normalizedNames Names normalized with {@link Ingredient#normalizeName(String)}.
+     */
+    List<Ingredient> findByNormalizedNameIn(Collection<String> normalizedNames);
+
+    /**
+     * Finds ingredients saved before the normalized name was introduced.
+     */
+    List<Ingredient> findByNormalizedNameIsNull();
+}
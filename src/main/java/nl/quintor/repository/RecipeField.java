@@ -0,0 +1,60 @@
+package nl.quintor.repository;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The fields of a recipe a client can select with a sparse fieldset, by {@code RecipeDto} property. The id and version
+ * are always loaded, since they identify the recipe and its representation.
+ */
+public enum RecipeField {
+
+    NAME("name", "r.name"),
+    TYPE("type", "r.type"),
+    SERVING_CAPACITY("servingCapacity", "r.servingCapacity"),
+    INGREDIENT_LIST("ingredientList", null),
+    INSTRUCTIONS("instructions", "ri.text"),
+    IS_VEGETARIAN("isVegetarian", "r.isVegetarian");
+
+    public static final Set<RecipeField> ALL = Collections.unmodifiableSet(EnumSet.allOf(RecipeField.class));
+
+    private final String property;
+    private final String attributePath;
+
+    RecipeField(String property, String attributePath) {
+        this.property = property;
+        this.attributePath = attributePath;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    /**
+     * @return The path of the field in a query over {@code Recipe r LEFT JOIN r.recipeInstructions ri}, or null for
+     * the ingredient list, which is queried separately.
+     */
+    public String attributePath() {
+        return attributePath;
+    }
+
+    /**
+     * Whether the field is selected as a single value, rather than through the ingredient join.
+     */
+    public boolean isColumn() {
+        return attributePath != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException If no field has the given property name.
+     */
+    public static RecipeField of(String property) {
+        for (RecipeField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown recipe field: " + property);
+    }
+}
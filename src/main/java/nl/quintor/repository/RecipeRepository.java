@@ -1,14 +1,69 @@
 package nl.quintor.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.quintor.model.Recipe;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface RecipeRepository extends JpaRepository<Recipe, Long>, JpaSpecificationExecutor<Recipe> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
-    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.ingredientList")
+public interface RecipeRepository extends JpaRepository<Recipe, Long>, JpaSpecificationExecutor<Recipe>, RecipeRepositoryCustom {
+
+    /**
+     * Loads the recipe together with its ingredients in a single query, so the ingredient list can be read
+     * after the session is closed.
+     */
+    @Override
+    @EntityGraph(attributePaths = "ingredientList")
+    Optional<Recipe> findById(Long id);
+
+    /**
+     * Loads the matching recipes together with their ingredients in a single query, instead of one
+     * extra query per recipe when the ingredient lists are read.
+     */
+    @Override
+    @EntityGraph(attributePaths = "ingredientList")
+    List<Recipe> findAll(Specification<Recipe> spec);
+
+    /**
+     * Loads all recipes with their ingredients and instructions.
+     */
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.ingredientList LEFT JOIN FETCH r.recipeInstructions")
     List<Recipe> findAllWithIngredients();
+
+    @Query("SELECT new nl.quintor.repository.RecipeVersion(r.id, r.version) FROM Recipe r WHERE r.id > :after ORDER BY r.id")
+    List<RecipeVersion> findVersionsAfter(@Param("after") Long after, Limit limit);
+
+    @Query("SELECT r.version FROM Recipe r WHERE r.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Loads the recipes with their ingredients and instructions, so they can be read after the session is closed.
+     */
+    @Query("SELECT DISTINCT r FROM Recipe r LEFT JOIN FETCH r.ingredientList LEFT JOIN FETCH r.recipeInstructions "
+            + "WHERE r.id IN :ids ORDER BY r.id")
+    List<Recipe> findAllWithIngredientsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams all recipes in id order through a scrollable result, without loading the catalogue at once.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Recipe r ORDER BY r.id")
+    Stream<Recipe> streamAll();
 }
@@ -0,0 +1,31 @@
+package nl.quintor.repository;
+
+import nl.quintor.model.Recipe;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface RecipeRepositoryCustom {
+
+    /**
+     * Selects only the id and version of the recipes matching the specification, in id order.
+     */
+    List<RecipeVersion> findVersions(Specification<Recipe> spec);
+
+    /**
+     * Selects the recipes with the given ids and the names of their ingredients as {@link RecipeView}s, in id order,
+     * without loading any entities.
+     */
+    default List<RecipeView> findViewsByIdIn(Collection<Long> ids) {
+        return findViewsByIdIn(ids, RecipeField.ALL);
+    }
+
+    /**
+     * Selects the recipes with the given ids like {@link #findViewsByIdIn(Collection)}, but only the given fields.
+     * Columns that are not selected are null in the views, and the ingredient names are only queried when
+     * {@link RecipeField#INGREDIENT_LIST} is selected, otherwise they are empty.
+     */
+    List<RecipeView> findViewsByIdIn(Collection<Long> ids, Set<RecipeField> fields);
+}
@@ -0,0 +1,105 @@
+package nl.quintor.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+class RecipeRepositoryCustomImpl implements RecipeRepositoryCustom {
+
+    private static final String INGREDIENT_NAMES_QUERY = "SELECT r.id AS recipeId, i.name AS name "
+            + "FROM Recipe r JOIN r.ingredientList i WHERE r.id IN :ids ORDER BY r.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecipeVersion> findVersions(Specification<Recipe> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RecipeVersion> query = cb.createQuery(RecipeVersion.class);
+        Root<Recipe> root = query.from(Recipe.class);
+        query.select(cb.construct(RecipeVersion.class, root.get("id"), root.get("version")))
+                .where(spec.toPredicate(root, query, cb))
+                .distinct(true)
+                .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    /**
+     * Runs two tuple queries, one for the selected recipe columns and one for the ingredient names, both in recipe id
+     * order, and merges them in a single pass, sorting the ingredient names of each recipe in
+     * {@link Ingredient#NAME_ORDER}. Selecting the names separately keeps the instructions from being
+     * repeated on every ingredient row, as a join fetch would. The ingredient query is skipped when the ingredient
+     * list is not selected.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecipeView> findViewsByIdIn(Collection<Long> ids, Set<RecipeField> fields) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Tuple> recipes = entityManager.createQuery(recipeColumnsQuery(fields), Tuple.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        List<Tuple> ingredients = List.of();
+        if (fields.contains(RecipeField.INGREDIENT_LIST)) {
+            ingredients = entityManager.createQuery(INGREDIENT_NAMES_QUERY, Tuple.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        }
+
+        List<RecipeView> views = new ArrayList<>(recipes.size());
+        int next = 0;
+        for (Tuple recipe : recipes) {
+            Long id = recipe.get("id", Long.class);
+            List<String> ingredientNames = new ArrayList<>();
+            while (next < ingredients.size() && ingredients.get(next).get("recipeId", Long.class).equals(id)) {
+                ingredientNames.add(ingredients.get(next++).get("name", String.class));
+            }
+            ingredientNames.sort(Ingredient.NAME_ORDER);
+            views.add(new RecipeView(id, recipe.get("version", Long.class),
+                    column(recipe, fields, RecipeField.NAME, String.class),
+                    column(recipe, fields, RecipeField.TYPE, String.class),
+                    column(recipe, fields, RecipeField.SERVING_CAPACITY, Integer.class),
+                    column(recipe, fields, RecipeField.INSTRUCTIONS, String.class),
+                    column(recipe, fields, RecipeField.IS_VEGETARIAN, Boolean.class),
+                    List.copyOf(ingredientNames)));
+        }
+        return views;
+    }
+
+    /**
+     * Selects the id, the version and the selected columns, each aliased by its property name. The instructions are
+     * joined from their own table only when they are selected, with an outer join, so a recipe without instructions
+     * is still found.
+     */
+    static String recipeColumnsQuery(Set<RecipeField> fields) {
+        StringBuilder query = new StringBuilder("SELECT r.id AS id, r.version AS version");
+        for (RecipeField field : fields) {
+            if (field.isColumn()) {
+                query.append(", ").append(field.attributePath()).append(" AS ").append(field.property());
+            }
+        }
+        query.append(" FROM Recipe r");
+        if (fields.contains(RecipeField.INSTRUCTIONS)) {
+            query.append(" LEFT JOIN r.recipeInstructions ri");
+        }
+        return query.append(" WHERE r.id IN :ids ORDER BY r.id").toString();
+    }
+
+    private static <T> T column(Tuple recipe, Set<RecipeField> fields, RecipeField field, Class<T> type) {
+        return fields.contains(field) ? recipe.get(field.property(), type) : null;
+    }
+}
@@ -4,13 +4,31 @@ import nl.quintor.model.Recipe;
 import nl.quintor.model.Ingredient;
 import org.springframework.data.jpa.domain.Specification;
 
-import jakarta.persistence.criteria.JoinType;
-import jakarta.persistence.criteria.SetJoin;
+import jakarta.persistence.criteria.*;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * Search predicates for recipes. Ingredient predicates are correlated subqueries rather than joins,
+ * so every recipe is returned at most once and a recipe is only excluded when none of its ingredients match.
+ * Ingredient names are compared on the indexed normalized name column, see {@link Ingredient#normalizeName(String)}.
+ * Searches are normally resolved by the in-memory indexes; these predicates answer them while the indexes are
+ * loaded at startup.
+ */
 public class RecipeSpecifications {
 
+    public static Specification<Recipe> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> {
+            if (ids == null) {
+                return cb.conjunction();
+            }
+            return root.get("id").in(ids);
+        };
+    }
+
     public static Specification<Recipe> isVegetarian(Boolean isVegetarian) {
         return (root, query, cb) -> {
             if (isVegetarian == null) {
@@ -29,32 +47,77 @@ public class RecipeSpecifications {
         };
     }
 
+    /**
+     * Matches recipes whose serving capacity lies in the range. Either bound may be null to leave that side open.
+     */
+    public static Specification<Recipe> servingCapacityBetween(Integer minServings, Integer maxServings) {
+        return (root, query, cb) -> {
+            if (minServings == null && maxServings == null) {
+                return cb.conjunction();
+            }
+            if (maxServings == null) {
+                return cb.greaterThanOrEqualTo(root.<Integer>get("servingCapacity"), minServings);
+            }
+            if (minServings == null) {
+                return cb.lessThanOrEqualTo(root.<Integer>get("servingCapacity"), maxServings);
+            }
+            return cb.between(root.<Integer>get("servingCapacity"), minServings, maxServings);
+        };
+    }
+
+    /**
+     * Matches recipes of any of the types.
+     */
+    public static Specification<Recipe> typeIn(Set<String> types) {
+        return (root, query, cb) -> {
+            if (types == null || types.isEmpty()) {
+                return cb.conjunction();
+            }
+            return root.get("type").in(types);
+        };
+    }
+
+    /**
+     * Matches recipes containing at least one of the ingredients.
+     */
     public static Specification<Recipe> includeIngredients(Set<String> includeIngredients) {
         return (root, query, cb) -> {
             if (includeIngredients == null || includeIngredients.isEmpty()) {
                 return cb.conjunction();
             }
-            SetJoin<Recipe, Ingredient> ingredientsJoin = root.joinSet("ingredientList", JoinType.LEFT);
-            return ingredientsJoin.get("name").in(includeIngredients);
+            return cb.exists(ingredientsWhere(root, query, name -> name.in(normalizeNames(includeIngredients))));
         };
     }
 
-    public static Specification<Recipe> excludeIngredients(Set<String> excludeIngredients) {
+    /**
+     * Matches recipes containing every one of the ingredients.
+     */
+    public static Specification<Recipe> includeAllIngredients(Set<String> includeIngredients) {
         return (root, query, cb) -> {
-            if (excludeIngredients == null || excludeIngredients.isEmpty()) {
+            if (includeIngredients == null || includeIngredients.isEmpty()) {
                 return cb.conjunction();
             }
-            SetJoin<Recipe, Ingredient> ingredientsJoin = root.joinSet("ingredientList", JoinType.LEFT);
-            return cb.not(ingredientsJoin.get("name").in(excludeIngredients));
+            Set<String> normalizedNames = normalizeNames(includeIngredients);
+            Subquery<Long> subquery = query.subquery(Long.class);
+            Root<Recipe> recipe = subquery.from(Recipe.class);
+            SetJoin<Recipe, Ingredient> ingredients = recipe.joinSet("ingredientList");
+            subquery.select(recipe.get("id"))
+                    .where(ingredients.get("normalizedName").in(normalizedNames))
+                    .groupBy(recipe.get("id"))
+                    .having(cb.equal(cb.countDistinct(ingredients.get("normalizedName")), (long) normalizedNames.size()));
+            return root.get("id").in(subquery);
         };
     }
 
-    public static Specification<Recipe> instructionsContain(String instructions) {
+    /**
+     * Matches recipes containing none of the ingredients.
+     */
+    public static Specification<Recipe> excludeIngredients(Set<String> excludeIngredients) {
         return (root, query, cb) -> {
-            if (instructions == null || instructions.isEmpty()) {
+            if (excludeIngredients == null || excludeIngredients.isEmpty()) {
                 return cb.conjunction();
             }
-            return cb.like(cb.lower(root.get("instructions")), "%" + instructions.toLowerCase() + "%");
+            return cb.not(cb.exists(ingredientsWhere(root, query, name -> name.in(normalizeNames(excludeIngredients)))));
         };
     }
 
@@ -63,8 +126,25 @@ public class RecipeSpecifications {
             if (ingredientName == null || ingredientName.isEmpty()) {
                 return cb.conjunction();
             }
-            SetJoin<Recipe, Ingredient> ingredientsJoin = root.joinSet("ingredientList", JoinType.LEFT);
-            return cb.like(cb.lower(ingredientsJoin.get("name")), "%" + ingredientName.toLowerCase() + "%");
+            String pattern = "%" + Ingredient.normalizeName(ingredientName) + "%";
+            return cb.exists(ingredientsWhere(root, query, name -> cb.like(name, pattern)));
         };
     }
+
+    /**
+     * Subquery selecting the ingredients of the recipe in the outer query whose normalized name satisfies the condition.
+     */
+    private static Subquery<Long> ingredientsWhere(Root<Recipe> root, CriteriaQuery<?> query,
+                                                   Function<Path<String>, Predicate> nameCondition) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        SetJoin<Recipe, Ingredient> ingredients = subquery.correlate(root).joinSet("ingredientList");
+        return subquery.select(ingredients.get("id"))
+                .where(nameCondition.apply(ingredients.get("normalizedName")));
+    }
+
+    private static Set<String> normalizeNames(Set<String> names) {
+        Set<String> normalizedNames = new HashSet<>();
+        names.forEach(name -> normalizedNames.add(Ingredient.normalizeName(name)));
+        return normalizedNames;
+    }
 }
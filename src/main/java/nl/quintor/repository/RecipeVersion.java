@@ -0,0 +1,7 @@
+package nl.quintor.repository;
+
+/**
+ * The id and version of a recipe, for checking whether a client's copy is current without loading the recipe.
+ */
+public record RecipeVersion(Long id, Long version) {
+}
@@ -0,0 +1,13 @@
+package nl.quintor.repository;
+
+import java.util.List;
+
+/**
+ * Read-only copy of a recipe and the names of its ingredients, selected column by column instead of loading
+ * managed entities, so reads do not pay for entity hydration and dirty-checking snapshots.
+ *
+ * @param ingredientNames The ingredient names in alphabetical order.
+ */
+public record RecipeView(Long id, Long version, String name, String type, Integer servingCapacity,
+                         String instructions, Boolean isVegetarian, List<String> ingredientNames) {
+}
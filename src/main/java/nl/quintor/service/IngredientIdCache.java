@@ -0,0 +1,52 @@
+package nl.quintor.service;
+
+import nl.quintor.event.IngredientRemovedEvent;
+import nl.quintor.model.Ingredient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of normalized ingredient name to ingredient id.
+ * Lets {@link RecipeService} resolve frequently used ingredients without querying the database.
+ */
+@Component
+public class IngredientIdCache {
+
+    private final Map<String, Long> ids;
+
+    @Autowired
+    public IngredientIdCache(@Value("${recipe.ingredient-cache.max-size:10000}") int maxSize) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized Long get(String name) {
+        return ids.get(name);
+    }
+
+    public synchronized void put(String name, Long id) {
+        ids.put(name, id);
+    }
+
+    public synchronized void evict(String name) {
+        ids.remove(name);
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onIngredientRemoved(IngredientRemovedEvent event) {
+        evict(Ingredient.normalizeName(event.getName()));
+    }
+}
@@ -0,0 +1,75 @@
+package nl.quintor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.IngredientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Fills in the normalized name of ingredients saved before it existed, at startup and before the search indexes
+ * are built. Ingredients whose names normalize to the same value are merged into one: recipes are moved to the
+ * ingredient that already has the normalized name, or else to the one with the lowest id, and the others are deleted.
+ * Does nothing once every ingredient has a normalized name.
+ */
+@Slf4j
+@Component
+public class IngredientNameMigration {
+
+    private final IngredientRepository ingredientRepository;
+
+    @Autowired
+    public IngredientNameMigration(IngredientRepository ingredientRepository) {
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void migrate() {
+        List<Ingredient> unmigrated = new ArrayList<>(ingredientRepository.findByNormalizedNameIsNull());
+        if (unmigrated.isEmpty()) {
+            return;
+        }
+        unmigrated.sort(Comparator.comparing(Ingredient::getId));
+        Map<String, List<Ingredient>> byNormalizedName = new LinkedHashMap<>();
+        unmigrated.forEach(ingredient -> byNormalizedName
+                .computeIfAbsent(Ingredient.normalizeName(ingredient.getName()), key -> new ArrayList<>())
+                .add(ingredient));
+        Map<String, Ingredient> migrated = new HashMap<>();
+        ingredientRepository.findByNormalizedNameIn(byNormalizedName.keySet())
+                .forEach(ingredient -> migrated.put(ingredient.getNormalizedName(), ingredient));
+
+        int merged = 0;
+        for (Map.Entry<String, List<Ingredient>> entry : byNormalizedName.entrySet()) {
+            Iterator<Ingredient> group = entry.getValue().iterator();
+            Ingredient survivor = migrated.get(entry.getKey());
+            if (survivor == null) {
+                survivor = group.next();
+                // recomputes the normalized name
+                survivor.setName(survivor.getName());
+            }
+            while (group.hasNext()) {
+                mergeInto(group.next(), survivor);
+                merged++;
+            }
+        }
+        log.info("Normalized the names of {} ingredients, merged {} duplicates", unmigrated.size(), merged);
+    }
+
+    private void mergeInto(Ingredient duplicate, Ingredient survivor) {
+        for (Recipe recipe : duplicate.getRecipes()) {
+            recipe.getIngredientList().remove(duplicate);
+            recipe.getIngredientList().add(survivor);
+        }
+        ingredientRepository.delete(duplicate);
+    }
+}
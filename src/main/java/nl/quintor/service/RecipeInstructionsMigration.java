@@ -0,0 +1,190 @@
+package nl.quintor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.model.Recipe;
+import nl.quintor.model.RecipeInstructions;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the instructions of recipes saved before they had their own table out of the legacy {@code instructions}
+ * column of the recipe table, at startup and before the snapshot and indexes are loaded. Every recipe gets a
+ * compressed {@link RecipeInstructions} row, linked without incrementing the recipe version, since the recipe did not
+ * change. Recipes are migrated in pages of {@value #PAGE_SIZE}, with the links written as one JDBC batch per page.
+ * <p>
+ * The legacy column was created not null and is no longer written, so it is made nullable as soon as this bean is
+ * created, before the server accepts requests. It is kept afterwards, so nodes still running the previous version
+ * can write it during a rolling deploy; their recipes are migrated on the next start. The column is only dropped
+ * when {@code recipe.instructions-migration.drop-legacy-column} is set, and then only once every recipe with text in
+ * it is linked to its instructions. Does nothing once the column is gone. Runs right after the
+ * {@link IngredientNameMigration}.
+ */
+@Slf4j
+@Component
+public class RecipeInstructionsMigration {
+
+    static final String LEGACY_COLUMN = "instructions";
+    static final int PAGE_SIZE = 1_000;
+
+    private final EntityManager entityManager;
+    private final DataSource dataSource;
+    private final boolean dropLegacyColumn;
+
+    @Autowired
+    public RecipeInstructionsMigration(EntityManager entityManager, DataSource dataSource,
+                                       @Value("${recipe.instructions-migration.drop-legacy-column:false}") boolean dropLegacyColumn) {
+        this.entityManager = entityManager;
+        this.dataSource = dataSource;
+        this.dropLegacyColumn = dropLegacyColumn;
+    }
+
+    /**
+     * Makes the legacy column nullable if it is not, so recipes can be saved without it.
+     */
+    @PostConstruct
+    public void allowLegacyColumnNull() throws SQLException {
+        String table = recipeTable();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            LegacyColumn column = findLegacyColumn(connection, table);
+            if (column == null || column.nullable()) {
+                return;
+            }
+            String product = connection.getMetaData().getDatabaseProductName();
+            String alter = product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB")
+                    ? "MODIFY COLUMN " + LEGACY_COLUMN + " " + column.type() + " NULL"
+                    : "ALTER COLUMN " + LEGACY_COLUMN + " SET NULL";
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE " + table + " " + alter);
+            }
+            log.info("Made the legacy {} column of {} nullable", LEGACY_COLUMN, table);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @Transactional
+    public void migrate() {
+        String table = recipeTable();
+        Session session = entityManager.unwrap(Session.class);
+        if (session.doReturningWork(connection -> findLegacyColumn(connection, table)) == null) {
+            return;
+        }
+        String unmigrated = " FROM " + table + " WHERE instructions_id IS NULL AND " + LEGACY_COLUMN + " IS NOT NULL";
+        int migrated = 0;
+        long after = 0;
+        List<Object[]> page;
+        do {
+            page = findPage(unmigrated, after);
+            if (!page.isEmpty()) {
+                migratePage(session, table, page);
+                after = ((Number) page.get(page.size() - 1)[0]).longValue();
+                migrated += page.size();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.info("Moved the instructions of {} recipes to their own table", migrated);
+
+        if (!dropLegacyColumn) {
+            return;
+        }
+        long remaining = ((Number) entityManager.createNativeQuery("SELECT COUNT(*)" + unmigrated)
+                .getSingleResult()).longValue();
+        if (remaining > 0) {
+            log.warn("{} recipes are not linked to their instructions yet, keeping the legacy {} column",
+                    remaining, LEGACY_COLUMN);
+            return;
+        }
+        entityManager.createNativeQuery("ALTER TABLE " + table + " DROP COLUMN " + LEGACY_COLUMN).executeUpdate();
+        log.info("Dropped the legacy {} column of {}", LEGACY_COLUMN, table);
+    }
+
+    /**
+     * @return The ids and legacy instructions of the next {@value #PAGE_SIZE} unmigrated recipes after the given id.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findPage(String unmigrated, long after) {
+        return entityManager.createNativeQuery("SELECT id, " + LEGACY_COLUMN + unmigrated + " AND id > ?1 ORDER BY id")
+                .setParameter(1, after)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+
+    /**
+     * Stores the instructions of one page of recipes and links the recipes to them.
+     */
+    private void migratePage(Session session, String table, List<Object[]> page) {
+        List<RecipeInstructions> instructions = new ArrayList<>(page.size());
+        for (Object[] row : page) {
+            RecipeInstructions recipeInstructions = new RecipeInstructions((String) row[1]);
+            entityManager.persist(recipeInstructions);
+            instructions.add(recipeInstructions);
+        }
+        entityManager.flush();
+        session.doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE " + table + " SET instructions_id = ? WHERE id = ?")) {
+                for (int i = 0; i < page.size(); i++) {
+                    update.setLong(1, instructions.get(i).getId());
+                    update.setLong(2, ((Number) page.get(i)[0]).longValue());
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        });
+        entityManager.clear();
+    }
+
+    /**
+     * The physical name of the recipe table, as the naming strategy created it.
+     */
+    private String recipeTable() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(Recipe.class)
+                .getMappedTableDetails()
+                .getTableName();
+    }
+
+    /**
+     * @return The legacy column of the recipe table, or null when it is gone.
+     */
+    private static LegacyColumn findLegacyColumn(Connection connection, String table) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(),
+                null, null)) {
+            while (columns.next()) {
+                if (table.equalsIgnoreCase(columns.getString("TABLE_NAME"))
+                        && LEGACY_COLUMN.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                    return new LegacyColumn(columns.getString("TYPE_NAME") + "(" + columns.getInt("COLUMN_SIZE") + ")",
+                            columns.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+                }
+            }
+            return null;
+        }
+    }
+
+    private record LegacyColumn(String type, boolean nullable) {
+    }
+}
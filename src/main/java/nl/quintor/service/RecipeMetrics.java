@@ -0,0 +1,90 @@
+package nl.quintor.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recipe specific meters, next to the request, service and repository timers that are recorded automatically.
+ * Search timings and result sizes are tagged with the {@link nl.quintor.repository.RecipeSpecifications} predicates
+ * that were active, so slow searches can be traced back to the combination of filters that caused them.
+ */
+@Component
+public class RecipeMetrics {
+
+    static final String SEARCH_TIMER = "recipe.search";
+    static final String SEARCH_RESULTS = "recipe.search.results";
+    static final String RESULT_SIZE = "recipe.results";
+    static final String INGREDIENTS_PER_RECIPE = "recipe.ingredients";
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary ingredientsPerRecipe;
+
+    @Autowired
+    public RecipeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.ingredientsPerRecipe = DistributionSummary.builder(INGREDIENTS_PER_RECIPE)
+                .description("Number of ingredients of each loaded recipe")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Tags telling which search predicates were active; every tag is always present with value true or false.
+     */
+    public static Tags searchTags(RecipeSearchCriteria criteria) {
+        boolean include = !criteria.includeIngredients().isEmpty();
+        return Tags.of(
+                "isVegetarian", String.valueOf(criteria.isVegetarian() != null),
+                "servingCapacity", String.valueOf(criteria.hasServingsRange()),
+                "type", String.valueOf(!criteria.types().isEmpty()),
+                "includeIngredients", String.valueOf(include && !criteria.includeAllIngredients()),
+                "includeAllIngredients", String.valueOf(criteria.includeAllIngredients()),
+                "excludeIngredients", String.valueOf(!criteria.excludeIngredients().isEmpty()),
+                "instructionsContain", String.valueOf(criteria.instructions() != null),
+                "ingredientNameContains", String.valueOf(criteria.ingredientName() != null));
+    }
+
+    /**
+     * Stops the timer of a search and records the number of matching recipes, both tagged with the active predicates.
+     */
+    public void recordSearch(Timer.Sample sample, Tags predicates, int resultCount) {
+        sample.stop(Timer.builder(SEARCH_TIMER)
+                .description("Time to resolve the ids of the recipes matching a search")
+                .tags(predicates)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        DistributionSummary.builder(SEARCH_RESULTS)
+                .description("Number of recipes matching a search")
+                .tags(predicates)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(resultCount);
+    }
+
+    /**
+     * Records the number of recipes returned by a read operation.
+     */
+    public void recordResultSize(String operation, int resultCount) {
+        DistributionSummary.builder(RESULT_SIZE)
+                .description("Number of recipes returned by a read operation")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(resultCount);
+    }
+
+    /**
+     * Records the ingredient count of one loaded recipe.
+     */
+    public void recordIngredientCount(int ingredientCount) {
+        ingredientsPerRecipe.record(ingredientCount);
+    }
+}
@@ -0,0 +1,86 @@
+package nl.quintor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nl.quintor.cache.LruCache;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.repository.RecipeVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded, least-recently-used cache of search results by {@link RecipeSearchCriteria}.
+ * Only the ids and versions of the matching recipes are cached, never the recipes themselves.
+ * Every committed recipe write starts a new write epoch, which drops all cached results, once the indexes have
+ * applied the write. Results larger than the configured maximum are not cached at all.
+ * Hits, misses, evictions and size are published as the standard Micrometer {@code cache.*} meters, see
+ * {@link LruCache}.
+ */
+@Component
+public class RecipeSearchCache implements MeterBinder {
+
+    static final String CACHE_NAME = "recipeSearch";
+
+    private final int maxResults;
+    /**
+     * Invalidated on every committed recipe write, so a search that started before the write does not cache its
+     * possibly stale result.
+     */
+    private final LruCache<RecipeSearchCriteria, List<RecipeVersion>> entries;
+
+    @Autowired
+    public RecipeSearchCache(@Value("${recipe.search-cache.max-size:1000}") int maxSize,
+                             @Value("${recipe.search-cache.max-results:1000}") int maxResults) {
+        this.maxResults = maxResults;
+        this.entries = new LruCache<>(CACHE_NAME, maxSize);
+    }
+
+    /**
+     * Returns the cached result of the search, or runs it with the loader and caches it.
+     *
+     * @param criteria The canonical search criteria.
+     * @param loader   Runs the search. Called without holding the cache lock.
+     * @return The matching recipe ids and versions, in result order. The list is shared and cannot be modified.
+     */
+    public List<RecipeVersion> get(RecipeSearchCriteria criteria, Function<RecipeSearchCriteria, List<RecipeVersion>> loader) {
+        long generation = entries.generation();
+        List<RecipeVersion> cached = entries.get(criteria);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<RecipeVersion> versions = List.copyOf(loader.apply(criteria));
+        if (versions.size() <= maxResults) {
+            entries.put(generation, criteria, versions);
+        }
+        return versions;
+    }
+
+    /**
+     * Starts a new write epoch, dropping all cached results.
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public LruCache.Stats stats() {
+        return entries.stats();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.INVALIDATE_CACHES)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        entries.bindTo(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package nl.quintor.service;
+
+import nl.quintor.model.Ingredient;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The criteria of a recipe search, in canonical form: searches that are bound to match the same recipes in the same
+ * order have equal criteria, so the criteria can be used as a cache key.
+ * Type and ingredient sets are sorted and never null, types are trimmed, ingredient names are
+ * {@link Ingredient#normalizeName(String) normalized} and the instruction text is trimmed and lowercased.
+ * An exact serving capacity is expressed as equal minimum and maximum.
+ *
+ * @param isVegetarian          Whether recipes must be vegetarian, or null to ignore.
+ * @param minServings           The minimum serving capacity, inclusive, or null to ignore.
+ * @param maxServings           The maximum serving capacity, inclusive, or null to ignore.
+ * @param types                 Recipes must have one of these types. Empty to ignore.
+ * @param includeIngredients    Recipes must contain at least one of these ingredients, or all of them when
+ *                              includeAllIngredients is set. Empty to ignore.
+ * @param includeAllIngredients Whether recipes must contain all included ingredients. Always false without any.
+ * @param excludeIngredients    Recipes must contain none of these ingredients. Empty to ignore.
+ * @param instructions          Words that must all occur in the instructions, or null to ignore.
+ * @param ingredientName        Text that the name of one of the ingredients must contain, or null to ignore.
+ */
+public record RecipeSearchCriteria(Boolean isVegetarian, Integer minServings, Integer maxServings, Set<String> types,
+                                   Set<String> includeIngredients, boolean includeAllIngredients,
+                                   Set<String> excludeIngredients, String instructions, String ingredientName) {
+
+    public RecipeSearchCriteria {
+        types = trimmed(types);
+        includeIngredients = normalized(includeIngredients);
+        includeAllIngredients = includeAllIngredients && !includeIngredients.isEmpty();
+        excludeIngredients = normalized(excludeIngredients);
+        instructions = instructions == null || instructions.isBlank() ? null : instructions.trim().toLowerCase(Locale.ROOT);
+        ingredientName = ingredientName == null || ingredientName.isBlank() ? null : Ingredient.normalizeName(ingredientName);
+    }
+
+    /**
+     * @return Whether any of the vegetarian, serving capacity, type and include/exclude ingredient criteria is set.
+     */
+    public boolean hasStructuredCriteria() {
+        return isVegetarian != null || hasServingsRange() || !types.isEmpty()
+                || !includeIngredients.isEmpty() || !excludeIngredients.isEmpty();
+    }
+
+    public boolean hasServingsRange() {
+        return minServings != null || maxServings != null;
+    }
+
+    private static Set<String> trimmed(Collection<String> types) {
+        if (types == null || types.isEmpty()) {
+            return Collections.emptySortedSet();
+        }
+        TreeSet<String> trimmedTypes = new TreeSet<>();
+        types.stream().filter(type -> type != null && !type.isBlank()).forEach(type -> trimmedTypes.add(type.strip()));
+        return Collections.unmodifiableSortedSet(trimmedTypes);
+    }
+
+    private static Set<String> normalized(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptySortedSet();
+        }
+        TreeSet<String> normalizedNames = new TreeSet<>();
+        names.forEach(name -> normalizedNames.add(Ingredient.normalizeName(name)));
+        return Collections.unmodifiableSortedSet(normalizedNames);
+    }
+}
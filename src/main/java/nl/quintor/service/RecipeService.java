@@ -1,68 +1,441 @@
 package nl.quintor.service;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import nl.quintor.index.IngredientNameIndex;
+import nl.quintor.index.InstructionTextIndex;
+import nl.quintor.index.RecipeFacets;
+import nl.quintor.index.RecipeSearchIndex;
+import nl.quintor.index.RecipeSnapshot;
 import nl.quintor.model.Ingredient;
 import nl.quintor.model.Recipe;
 import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeField;
 import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.repository.RecipeView;
 import nl.quintor.repository.RecipeSpecifications;
+import org.hibernate.Hibernate;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-
-import static org.springframework.data.jpa.domain.Specification.where;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "recipe.service", description = "Time spent in recipe service methods", histogram = true)
 public class RecipeService {
 
+    /**
+     * Number of recipes exported between persistence context clears. Matches the batch size of
+     * {@link Recipe#getIngredientList()}, so each chunk loads its ingredients in one query.
+     */
+    static final int EXPORT_CHUNK_SIZE = 100;
+
+    /**
+     * Maximum number of ids in one IN clause when loading recipes by id.
+     */
+    static final int LOAD_CHUNK_SIZE = 1000;
+
     private final RecipeRepository recipeRepository;
     private final IngredientRepository ingredientRepository;
+    private final RecipeSearchIndex recipeSearchIndex;
+    private final InstructionTextIndex instructionTextIndex;
+    private final IngredientNameIndex ingredientNameIndex;
+    private final RecipeSnapshot recipeSnapshot;
+    private final IngredientIdCache ingredientIdCache;
+    private final EntityManager entityManager;
+    private final RecipeSearchCache recipeSearchCache;
+    private final RecipeMetrics recipeMetrics;
 
     @Autowired
-    public RecipeService(RecipeRepository recipeRepository, IngredientRepository ingredientRepository) {
+    public RecipeService(RecipeRepository recipeRepository, IngredientRepository ingredientRepository,
+                         RecipeSearchIndex recipeSearchIndex, InstructionTextIndex instructionTextIndex,
+                         IngredientNameIndex ingredientNameIndex, RecipeSnapshot recipeSnapshot,
+                         IngredientIdCache ingredientIdCache, EntityManager entityManager,
+                         RecipeSearchCache recipeSearchCache, RecipeMetrics recipeMetrics) {
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
+        this.recipeSearchIndex = recipeSearchIndex;
+        this.instructionTextIndex = instructionTextIndex;
+        this.ingredientNameIndex = ingredientNameIndex;
+        this.recipeSnapshot = recipeSnapshot;
+        this.ingredientIdCache = ingredientIdCache;
+        this.entityManager = entityManager;
+        this.recipeSearchCache = recipeSearchCache;
+        this.recipeMetrics = recipeMetrics;
     }
 
+    @Transactional
     public Recipe saveRecipe(Recipe recipe) {
-        Set<Ingredient> managedIngredients = new HashSet<>();
-        for (Ingredient ingredient : recipe.getIngredientList()) {
-            Optional<Ingredient> existingIngredient = ingredientRepository.findByName(ingredient.getName());
-            if (existingIngredient.isPresent()) {
-                managedIngredients.add(existingIngredient.get());
+        Map<String, Ingredient> ingredients = resolveIngredients(recipe.getIngredientList());
+        recipe.setIngredientList(new HashSet<>(ingredients.values()));
+        return recipeRepository.save(recipe);
+    }
+
+    /**
+     * Saves a chunk of new recipes in a single transaction.
+     * Ingredients are resolved once for the whole chunk and the inserts are sent as JDBC batches.
+     * The persistence context is cleared afterwards, so the returned recipes are detached.
+     *
+     * @param recipes The recipes to save.
+     * @return The saved recipes, in the same order.
+     */
+    @Transactional
+    public List<Recipe> saveRecipes(List<Recipe> recipes) {
+        List<Ingredient> allIngredients = new ArrayList<>();
+        recipes.forEach(recipe -> allIngredients.addAll(recipe.getIngredientList()));
+        Map<String, Ingredient> ingredients = resolveIngredients(allIngredients);
+
+        for (Recipe recipe : recipes) {
+            Set<Ingredient> managedIngredients = new HashSet<>();
+            recipe.getIngredientList().forEach(ingredient -> managedIngredients.add(ingredients.get(ingredient.getNormalizedName())));
+            recipe.setIngredientList(managedIngredients);
+        }
+        List<Recipe> savedRecipes = recipeRepository.saveAll(recipes);
+        entityManager.flush();
+        entityManager.clear();
+        return savedRecipes;
+    }
+
+    /**
+     * Maps normalized ingredient names to their persisted ingredients, so names that only differ in case,
+     * accents or spacing resolve to the same ingredient.
+     * Cached names become references without a query, the remaining names are looked up in one query,
+     * and ingredients that do not exist yet are inserted together.
+     */
+    private Map<String, Ingredient> resolveIngredients(Collection<Ingredient> ingredients) {
+        Map<String, Ingredient> resolved = new HashMap<>();
+        Map<String, Ingredient> uncached = new HashMap<>();
+        for (Ingredient ingredient : ingredients) {
+            String normalizedName = ingredient.getNormalizedName();
+            if (resolved.containsKey(normalizedName) || uncached.containsKey(normalizedName)) {
+                continue;
+            }
+            Long id = ingredientIdCache.get(normalizedName);
+            if (id != null) {
+                resolved.put(normalizedName, ingredientRepository.getReferenceById(id));
             } else {
-                managedIngredients.add(ingredient);
+                uncached.put(normalizedName, ingredient);
             }
         }
-        recipe.setIngredientList(managedIngredients);
-        return recipeRepository.save(recipe);
+
+        if (!uncached.isEmpty()) {
+            for (Ingredient existing : ingredientRepository.findByNormalizedNameIn(new HashSet<>(uncached.keySet()))) {
+                if (uncached.remove(existing.getNormalizedName()) != null) {
+                    resolved.put(existing.getNormalizedName(), existing);
+                    ingredientIdCache.put(existing.getNormalizedName(), existing.getId());
+                }
+            }
+            if (!uncached.isEmpty()) {
+                ingredientRepository.saveAll(new ArrayList<>(uncached.values())).forEach(saved -> resolved.put(saved.getNormalizedName(), saved));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the ids and versions of one page of recipes ordered by id, starting after the given cursor.
+     * Only the two columns are selected, so callers can check whether a page changed before loading it
+     * with {@link #getRecipeViews(List)}.
+     *
+     * @param after The id of the last recipe of the previous page, or null to start at the beginning.
+     * @param limit The maximum number of recipes to return.
+     */
+    @Transactional(readOnly = true)
+    public List<RecipeVersion> getRecipeVersions(Long after, int limit) {
+        List<RecipeVersion> versions = recipeRepository.findVersionsAfter(after == null ? 0L : after, Limit.of(limit));
+        recipeMetrics.recordResultSize("page", versions.size());
+        return versions;
+    }
+
+    /**
+     * Loads the given versions of recipes as read-only {@link RecipeView}s, from the {@link RecipeSnapshot} when it
+     * holds the requested version and from the database otherwise, such as for a write whose commit has not reached
+     * the snapshot yet.
+     *
+     * @return The recipes that still exist, in the order of the given versions.
+     */
+    public List<RecipeView> getRecipeViews(List<RecipeVersion> versions) {
+        return getRecipeViews(versions, RecipeField.ALL);
+    }
+
+    /**
+     * Loads the given versions of recipes like {@link #getRecipeViews(List)}, but only the given fields, for sparse
+     * fieldsets. Fields that are not selected are null in the views and the ingredient names are empty unless
+     * selected; neither the snapshot nor the database reads what was not asked for.
+     *
+     * @return The recipes that still exist, in the order of the given versions.
+     */
+    public List<RecipeView> getRecipeViews(List<RecipeVersion> versions, Set<RecipeField> fields) {
+        List<Long> ids = versions.stream().map(RecipeVersion::id).toList();
+        Map<Long, RecipeView> viewsById = recipeSnapshot.getAll(ids, fields);
+        List<Long> staleIds = new ArrayList<>();
+        for (RecipeVersion version : versions) {
+            RecipeView view = viewsById.get(version.id());
+            if (view == null || !view.version().equals(version.version())) {
+                viewsById.remove(version.id());
+                staleIds.add(version.id());
+            }
+        }
+        if (!staleIds.isEmpty()) {
+            viewsById.putAll(findViewsByIds(staleIds, fields));
+        }
+        return inOrder(ids, viewsById, fields);
     }
 
-    public List<Recipe> getAllRecipes() {
-        return recipeRepository.findAllWithIngredients();
+    private Map<Long, RecipeView> findViewsByIds(List<Long> ids, Set<RecipeField> fields) {
+        Map<Long, RecipeView> viewsById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LOAD_CHUNK_SIZE, ids.size()));
+            recipeRepository.findViewsByIdIn(chunk, fields).forEach(view -> viewsById.put(view.id(), view));
+        }
+        return viewsById;
+    }
+
+    private List<RecipeView> inOrder(List<Long> ids, Map<Long, RecipeView> viewsById, Set<RecipeField> fields) {
+        List<RecipeView> views = new ArrayList<>(viewsById.size());
+        for (Long id : ids) {
+            RecipeView view = viewsById.get(id);
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        recipeMetrics.recordResultSize("byIds", views.size());
+        if (fields.contains(RecipeField.INGREDIENT_LIST)) {
+            views.forEach(view -> recipeMetrics.recordIngredientCount(view.ingredientNames().size()));
+        }
+        return views;
+    }
+
+    /**
+     * Passes every recipe, with its ingredients loaded, to the consumer in id order.
+     * Recipes are read through a scrollable stream and the persistence context is cleared after every
+     * {@value #EXPORT_CHUNK_SIZE} recipes, so memory use does not grow with the size of the catalogue.
+     * Recipes are detached once the consumer has seen them.
+     */
+    @Transactional(readOnly = true)
+    public void exportRecipes(Consumer<Recipe> consumer) {
+        try (Stream<Recipe> recipes = recipeRepository.streamAll()) {
+            List<Recipe> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            Iterator<Recipe> iterator = recipes.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    exportChunk(chunk, consumer);
+                }
+            }
+            exportChunk(chunk, consumer);
+        }
+    }
+
+    private void exportChunk(List<Recipe> chunk, Consumer<Recipe> consumer) {
+        // initializing one collection batch-loads the ingredients of the whole chunk
+        chunk.forEach(recipe -> Hibernate.initialize(recipe.getIngredientList()));
+        // and initializing one set of instructions batch-loads those of the chunk
+        chunk.forEach(recipe -> Hibernate.initialize(recipe.getRecipeInstructions()));
+        chunk.forEach(consumer);
+        chunk.clear();
+        entityManager.clear();
     }
 
     public Recipe getRecipeById(Long id) {
         return recipeRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Loads one version of a recipe like {@link #getRecipeViews(List)}.
+     *
+     * @return The recipe as a read-only {@link RecipeView}, or null if it does not exist.
+     */
+    public RecipeView getRecipeViewById(Long id, Long version) {
+        return getRecipeViewById(id, version, RecipeField.ALL);
+    }
+
+    /**
+     * Loads only the given fields of one version of a recipe, like {@link #getRecipeViews(List, Set)}.
+     *
+     * @return The recipe as a read-only {@link RecipeView}, or null if it does not exist.
+     */
+    public RecipeView getRecipeViewById(Long id, Long version, Set<RecipeField> fields) {
+        List<RecipeView> views = getRecipeViews(List.of(new RecipeVersion(id, version)), fields);
+        return views.isEmpty() ? null : views.get(0);
+    }
+
+    /**
+     * @return The current version of the recipe, or null if it does not exist.
+     */
+    public Long getRecipeVersion(Long id) {
+        return recipeRepository.findVersionById(id).orElse(null);
+    }
+
     public void deleteRecipe(Long id) {
         recipeRepository.deleteById(id);
     }
 
-    public Set<Recipe> searchRecipes(Boolean isVegetarian, Integer servingCapacity, Set<String> includeIngredients,
-                                     Set<String> excludeIngredients, String instructions, String ingredientName) {
-        Specification<Recipe> spec = where(RecipeSpecifications.isVegetarian(isVegetarian))
-                .and(RecipeSpecifications.servingCapacity(servingCapacity))
-                .and(RecipeSpecifications.includeIngredients(includeIngredients))
-                .and(RecipeSpecifications.excludeIngredients(excludeIngredients))
-                .and(RecipeSpecifications.instructionsContain(instructions))
-                .and(RecipeSpecifications.ingredientNameContains(ingredientName));
+    /**
+     * Searches recipes and selects only the ids and versions of the matches, which the caller loads with
+     * {@link #getRecipeViews(List)}. The vegetarian, serving capacity, type and include/exclude ingredient filters
+     * are resolved against the in-memory {@link RecipeSearchIndex}, the ingredient name against the
+     * {@link IngredientNameIndex} and the instruction text against the {@link InstructionTextIndex}; the database is
+     * only queried for the versions of the matching recipes.
+     * When instructions are given, every term must match and the recipes are returned most relevant first,
+     * otherwise they are returned in id order.
+     * Results are served from the {@link RecipeSearchCache} when possible, so a cache hit does not touch the database.
+     * Until the indexes a search needs are loaded, it runs against the database instead and is not cached.
+     * The time taken and the number of matches are recorded per combination of active predicates.
+     *
+     * @return The matching recipe ids and versions. The list cannot be modified.
+     */
+    public List<RecipeVersion> searchRecipeVersions(RecipeSearchCriteria criteria) {
+        Timer.Sample sample = recipeMetrics.startTimer();
+        List<RecipeVersion> versions = isIndexed(criteria)
+                ? recipeSearchCache.get(criteria, this::findRecipeVersions)
+                : Collections.unmodifiableList(findRecipeVersionsInDatabase(criteria));
+        recipeMetrics.recordSearch(sample, RecipeMetrics.searchTags(criteria), versions.size());
+        return versions;
+    }
+
+    /**
+     * Counts the recipes matching a search per vegetarian flag, type, serving capacity and ingredient,
+     * so every filter value can be shown with the number of recipes it would leave.
+     * The matches are resolved like in {@link #searchRecipeVersions}, from the in-memory indexes only.
+     *
+     * @param topIngredients The maximum number of ingredients to count, most frequent first.
+     */
+    public RecipeFacets getFacets(RecipeSearchCriteria criteria, int topIngredients) {
+        RoaringBitmap matches = findCandidates(criteria);
+        if (criteria.instructions() != null && (matches == null || !matches.isEmpty())) {
+            List<Long> rankedIds = instructionTextIndex.search(criteria.instructions(), matches);
+            matches = new RoaringBitmap();
+            for (Long id : rankedIds) {
+                matches.add(Math.toIntExact(id));
+            }
+        }
+        return recipeSearchIndex.facets(matches, topIngredients);
+    }
+
+    private List<RecipeVersion> findRecipeVersions(RecipeSearchCriteria criteria) {
+        RoaringBitmap candidates = findCandidates(criteria);
+        if (candidates != null && candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (criteria.instructions() == null) {
+            if (candidates == null) {
+                return recipeRepository.findVersions(RecipeSpecifications.idIn(null));
+            }
+            return findVersionsByIds(toIds(candidates));
+        }
+
+        List<Long> rankedIds = instructionTextIndex.search(criteria.instructions(), candidates);
+        if (rankedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, RecipeVersion> versionsById = new HashMap<>();
+        findVersionsByIds(rankedIds).forEach(version -> versionsById.put(version.id(), version));
+
+        List<RecipeVersion> ranked = new ArrayList<>(versionsById.size());
+        for (Long id : rankedIds) {
+            RecipeVersion version = versionsById.get(id);
+            if (version != null) {
+                ranked.add(version);
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * @return Whether every index the search needs is loaded and current.
+     */
+    private boolean isIndexed(RecipeSearchCriteria criteria) {
+        return recipeSearchIndex.isLoaded()
+                && (criteria.ingredientName() == null || ingredientNameIndex.isLoaded())
+                && (criteria.instructions() == null || instructionTextIndex.isLoaded());
+    }
+
+    /**
+     * Runs a search with {@link RecipeSpecifications} predicates, for while the indexes are loaded at startup.
+     * The instructions are stored compressed, so when they are searched, the instructions of the recipes matching
+     * the other criteria are read and ranked in a throwaway {@link InstructionTextIndex}.
+     */
+    private List<RecipeVersion> findRecipeVersionsInDatabase(RecipeSearchCriteria criteria) {
+        List<RecipeVersion> matches = recipeRepository.findVersions(Specification.allOf(
+                RecipeSpecifications.isVegetarian(criteria.isVegetarian()),
+                RecipeSpecifications.servingCapacityBetween(criteria.minServings(), criteria.maxServings()),
+                RecipeSpecifications.typeIn(criteria.types()),
+                criteria.includeAllIngredients()
+                        ? RecipeSpecifications.includeAllIngredients(criteria.includeIngredients())
+                        : RecipeSpecifications.includeIngredients(criteria.includeIngredients()),
+                RecipeSpecifications.excludeIngredients(criteria.excludeIngredients()),
+                RecipeSpecifications.ingredientNameContains(criteria.ingredientName())));
+        if (criteria.instructions() == null || matches.isEmpty()) {
+            return matches;
+        }
+
+        InstructionTextIndex matchingInstructions = new InstructionTextIndex(recipeRepository);
+        Map<Long, RecipeVersion> versionsById = new HashMap<>();
+        matches.forEach(version -> versionsById.put(version.id(), version));
+        List<Long> ids = new ArrayList<>(versionsById.keySet());
+        for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LOAD_CHUNK_SIZE, ids.size()));
+            recipeRepository.findViewsByIdIn(chunk, EnumSet.of(RecipeField.INSTRUCTIONS))
+                    .forEach(view -> matchingInstructions.index(view.id(), view.instructions()));
+        }
+        List<RecipeVersion> ranked = new ArrayList<>();
+        for (Long id : matchingInstructions.search(criteria.instructions(), null)) {
+            ranked.add(versionsById.get(id));
+        }
+        return ranked;
+    }
 
-        return new HashSet<>(recipeRepository.findAll(spec));
+    /**
+     * Selects the ids and versions of the recipes in chunks of {@value #LOAD_CHUNK_SIZE} ids.
+     *
+     * @return The recipes that still exist, in id order within every chunk.
+     */
+    private List<RecipeVersion> findVersionsByIds(List<Long> ids) {
+        List<RecipeVersion> versions = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LOAD_CHUNK_SIZE, ids.size()));
+            versions.addAll(recipeRepository.findVersions(RecipeSpecifications.idIn(chunk)));
+        }
+        return versions;
+    }
+
+    /**
+     * Resolves every search filter except the instruction text against the in-memory indexes.
+     *
+     * @return The ids of the candidate recipes, or null when no such filter is set and every recipe is a candidate.
+     */
+    private RoaringBitmap findCandidates(RecipeSearchCriteria criteria) {
+        RoaringBitmap candidates = null;
+        if (criteria.hasStructuredCriteria()) {
+            candidates = recipeSearchIndex.search(criteria.isVegetarian(), criteria.minServings(), criteria.maxServings(),
+                    criteria.types(), criteria.includeIngredients(), criteria.includeAllIngredients(),
+                    criteria.excludeIngredients());
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+        }
+        if (criteria.ingredientName() != null) {
+            RoaringBitmap withName = recipeSearchIndex.recipesWithAnyIngredient(ingredientNameIndex.search(criteria.ingredientName()));
+            candidates = candidates == null ? withName : RoaringBitmap.and(candidates, withName);
+        }
+        return candidates;
+    }
+
+    private static List<Long> toIds(RoaringBitmap bitmap) {
+        List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+        for (int id : bitmap) {
+            ids.add((long) id);
+        }
+        return ids;
     }
 }
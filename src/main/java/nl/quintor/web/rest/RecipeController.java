@@ -1,38 +1,90 @@
 package nl.quintor.web.rest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.repository.RecipeView;
+import nl.quintor.service.RecipeSearchCriteria;
 import nl.quintor.service.RecipeService;
+import nl.quintor.web.rest.cache.RecipeJsonCache;
 import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.dto.RecipeFacetsDto;
+import nl.quintor.web.rest.dto.RecipeImportResultDto;
+import nl.quintor.web.rest.transformer.RecipeFacetsTransformer;
 import nl.quintor.web.rest.transformer.RecipeTransformer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.BinaryOperator;
 
 /**
  * Controller for managing recipes.
  * Provides endpoints for creating, retrieving, updating, deleting, and searching recipes.
+ * Reads are served as JSON, or as Smile (binary JSON) to clients that prefer {@value #APPLICATION_SMILE_VALUE}
+ * in their {@code Accept} header. Recipe reads take a sparse fieldset in {@code fields}, so only the requested
+ * properties are loaded and returned.
  */
 @RestController
 @RequestMapping("/recipe")
 @Slf4j
 public class RecipeController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int IMPORT_CHUNK_SIZE = 500;
+    static final int MAX_FACET_INGREDIENTS = 100;
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
     private final RecipeService recipeService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter recipeWriter;
+    private final Validator validator;
+    private final RecipeJsonCache recipeJsonCache;
 
     @Autowired
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService, ObjectMapper objectMapper, Validator validator,
+                            RecipeJsonCache recipeJsonCache) {
         this.recipeService = recipeService;
+        this.objectMapper = objectMapper;
+        this.recipeWriter = objectMapper.writerFor(RecipeDto.class);
+        this.validator = validator;
+        this.recipeJsonCache = recipeJsonCache;
     }
 
     /**
@@ -49,142 +101,498 @@ public class RecipeController {
         Recipe recipe = RecipeTransformer.toEntity(recipeDto);
         Recipe savedRecipe = recipeService.saveRecipe(recipe);
         RecipeDto savedRecipeDto = RecipeTransformer.toDto(savedRecipe);
-        return ResponseEntity.status(201).body(savedRecipeDto);
+        return ResponseEntity.status(201).eTag(etag(savedRecipe.getVersion())).body(savedRecipeDto);
+    }
+
+    /**
+     * Creates many recipes at once.
+     * Every recipe is validated on its own; valid recipes are saved in chunks of {@value #IMPORT_CHUNK_SIZE},
+     * each in its own transaction, so a failing chunk does not roll back the chunks before it.
+     *
+     * @param recipeDtos The recipes to create.
+     * @return ResponseEntity containing one result per submitted recipe, in submission order.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create many recipes at once", description = "Returns a result per recipe. Invalid recipes are skipped, valid ones are saved in chunks.")
+    @ApiResponse(responseCode = "200", description = "Recipes processed, see the per-recipe results")
+    public ResponseEntity<List<RecipeImportResultDto>> importRecipes(@RequestBody List<RecipeDto> recipeDtos) {
+        log.trace("Processing import of {} recipes", recipeDtos.size());
+        List<RecipeImportResultDto> results = new ArrayList<>(recipeDtos.size());
+        List<Recipe> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<RecipeImportResultDto> chunkResults = new ArrayList<>(IMPORT_CHUNK_SIZE);
+
+        for (int i = 0; i < recipeDtos.size(); i++) {
+            RecipeDto recipeDto = recipeDtos.get(i);
+            RecipeImportResultDto result = new RecipeImportResultDto();
+            result.setIndex(i);
+            results.add(result);
+
+            Set<ConstraintViolation<RecipeDto>> violations = validator.validate(recipeDto);
+            if (!violations.isEmpty()) {
+                result.setStatus(RecipeImportResultDto.Status.INVALID);
+                violations.forEach(violation -> result.getErrors().add(violation.getPropertyPath() + " " + violation.getMessage()));
+                continue;
+            }
+            chunk.add(RecipeTransformer.toEntity(recipeDto));
+            chunkResults.add(result);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(chunk, chunkResults);
+            }
+        }
+        importChunk(chunk, chunkResults);
+        return ResponseEntity.ok(results);
+    }
+
+    private void importChunk(List<Recipe> chunk, List<RecipeImportResultDto> chunkResults) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Recipe> savedRecipes = recipeService.saveRecipes(chunk);
+            for (int i = 0; i < savedRecipes.size(); i++) {
+                chunkResults.get(i).setStatus(RecipeImportResultDto.Status.CREATED);
+                chunkResults.get(i).setId(savedRecipes.get(i).getId());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to import a chunk of {} recipes", chunk.size(), e);
+            chunkResults.forEach(result -> {
+                result.setStatus(RecipeImportResultDto.Status.FAILED);
+                result.getErrors().add(e.getMostSpecificCause().getMessage());
+            });
+        }
+        chunk.clear();
+        chunkResults.clear();
     }
 
     /**
-     * Retrieves all recipes.
+     * Retrieves a page of recipes, ordered by id.
+     * When more recipes may follow, the id to pass as {@code after} for the next page is returned in the
+     * {@value #NEXT_CURSOR_HEADER} header.
+     * The ETag of the page is derived from the ids and versions of its recipes, which are checked against
+     * {@code If-None-Match} before the recipes are loaded. The page is assembled from the JSON of the single
+     * recipes in the {@link RecipeJsonCache}, unless only some fields are requested.
      *
-     * @return ResponseEntity containing a list of all recipes.
+     * @param after The cursor returned with the previous page. If null, the first page is returned.
+     * @param limit The maximum number of recipes to return.
+     * @param fields The properties to return for each recipe. If null, all properties are returned.
+     * @return ResponseEntity containing a page of recipes, or 304 when the client's copy is current.
      */
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    @Operation(summary = "Get all recipes")
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Get all recipes, one page at a time")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Recipes retrieved successfully"),
-            @ApiResponse(responseCode = "204", description = "No recipes found")
+            @ApiResponse(responseCode = "200", description = "Recipes retrieved successfully",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = RecipeDto.class)))),
+            @ApiResponse(responseCode = "204", description = "No recipes found"),
+            @ApiResponse(responseCode = "304", description = "Page not modified")
     })
-    public ResponseEntity<List<RecipeDto>> getAllRecipes() {
+    public ResponseEntity<?> getAllRecipes(
+            @RequestParam(required = false)
+            @Parameter(description = "Cursor returned in the " + NEXT_CURSOR_HEADER + " header of the previous page. If null, the first page is returned.") Long after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE)
+            @Parameter(description = "Maximum number of recipes to return.") int limit,
+            @RequestParam(name = "fields", required = false)
+            @Parameter(description = "Comma-separated recipe properties to return, such as name,type,isVegetarian. If null, all properties are returned.") Set<RecipeField> fields,
+            ServletWebRequest webRequest) {
         log.trace("Processing get all recipes request");
-        List<Recipe> recipes = recipeService.getAllRecipes();
-        if (recipes.isEmpty()) {
+        boolean smile = prefersSmile(webRequest);
+        Set<RecipeField> selected = selected(fields);
+        List<RecipeVersion> versions = recipeService.getRecipeVersions(after, limit);
+        if (versions.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        List<RecipeDto> recipeDtos = recipes.stream()
-                .map(RecipeTransformer::toDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(recipeDtos);
+        if (versions.size() == limit) {
+            // set on the servlet response, so it is also sent with a 304
+            webRequest.getResponse().setHeader(NEXT_CURSOR_HEADER, String.valueOf(versions.get(versions.size() - 1).id()));
+        }
+        if (webRequest.checkNotModified(etag(etag(versions), selected, smile))) {
+            return null;
+        }
+        if (smile || !selected.equals(RecipeField.ALL)) {
+            return dtoResponse(recipeDtos(versions, selected), smile);
+        }
+        return jsonResponse(RecipeJsonCache.toJsonArray(recipeJsons(versions)));
     }
 
     /**
-     * Retrieves a recipe by its ID.
+     * Exports the whole recipe catalogue as newline-delimited JSON, one recipe per line.
+     * Recipes are written to the response as they are read, so memory use stays flat regardless of catalogue size.
+     *
+     * @return ResponseEntity streaming all recipes.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all recipes as newline-delimited JSON")
+    @ApiResponse(responseCode = "200", description = "Recipes exported successfully")
+    public ResponseEntity<StreamingResponseBody> exportRecipes() {
+        log.trace("Processing export recipes request");
+        StreamingResponseBody body = outputStream -> recipeService.exportRecipes(recipe -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(RecipeTransformer.toDto(recipe)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Retrieves a recipe by its ID. The recipe version is checked against {@code If-None-Match} first,
+     * and the recipe itself is written from the {@link RecipeJsonCache} when possible.
      *
      * @param id The ID of the recipe to retrieve.
-     * @return ResponseEntity containing the recipe if found.
+     * @param fields The properties to return. If null, all properties are returned.
+     * @return ResponseEntity containing the recipe if found, or 304 when the client's copy is current.
      */
-    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
     @Operation(summary = "Get a recipe by ID")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Recipe retrieved successfully"),
+            @ApiResponse(responseCode = "200", description = "Recipe retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = RecipeDto.class))),
+            @ApiResponse(responseCode = "304", description = "Recipe not modified"),
             @ApiResponse(responseCode = "404", description = "Recipe not found")
     })
-    public ResponseEntity<RecipeDto> getRecipeById(@PathVariable Long id) {
+    public ResponseEntity<?> getRecipeById(@PathVariable Long id,
+                                           @RequestParam(name = "fields", required = false)
+                                           @Parameter(description = "Comma-separated recipe properties to return, such as name,type,isVegetarian. If null, all properties are returned.") Set<RecipeField> fields,
+                                           ServletWebRequest webRequest) {
         log.trace("Processing get recipe by ID request");
-        Recipe recipe = recipeService.getRecipeById(id);
-        if (recipe == null) {
+        boolean smile = prefersSmile(webRequest);
+        Set<RecipeField> selected = selected(fields);
+        Long version = recipeService.getRecipeVersion(id);
+        if (version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(etag(etag(version), selected, smile))) {
+            return null;
+        }
+        if (smile || !selected.equals(RecipeField.ALL)) {
+            RecipeView view = recipeService.getRecipeViewById(id, version, selected);
+            return view == null ? ResponseEntity.notFound().build() : dtoResponse(RecipeTransformer.toDto(view, selected), smile);
+        }
+        byte[] json = recipeJsonCache.get(id, version, recipeId -> {
+            RecipeView view = recipeService.getRecipeViewById(recipeId, version);
+            return view == null ? null : toJson(view);
+        });
+        if (json == null) {
             return ResponseEntity.notFound().build();
         }
-        RecipeDto recipeDto = RecipeTransformer.toDto(recipe);
-        return ResponseEntity.ok(recipeDto);
+        return jsonResponse(json);
     }
 
     /**
      * Updates an existing recipe.
      *
+     * When {@code If-Match} is given, the update is only applied if it matches the ETag of the current version.
+     *
      * @param id The ID of the recipe to update.
      * @param recipeDto The recipe data transfer object containing the updated recipe details.
+     * @param ifMatch Optional ETag of the version the client based its changes on.
      * @return ResponseEntity containing the updated recipe.
      */
     @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Update an existing recipe")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Recipe updated successfully"),
-            @ApiResponse(responseCode = "404", description = "Recipe not found")
+            @ApiResponse(responseCode = "404", description = "Recipe not found"),
+            @ApiResponse(responseCode = "409", description = "Recipe was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "Recipe does not match If-Match")
     })
-    public ResponseEntity<RecipeDto> updateRecipe(@PathVariable Long id, @RequestBody @Valid RecipeDto recipeDto) {
+    public ResponseEntity<RecipeDto> updateRecipe(@PathVariable Long id, @RequestBody @Valid RecipeDto recipeDto,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.trace("Processing update recipe request");
-        Recipe existingRecipe = recipeService.getRecipeById(id);
-        if (existingRecipe == null) {
+        Long version = recipeService.getRecipeVersion(id);
+        if (version == null) {
             return ResponseEntity.notFound().build();
         }
+        if (ifMatch != null && !matches(ifMatch, etag(version))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag(version)).build();
+        }
         Recipe updatedRecipe = RecipeTransformer.toEntity(recipeDto);
         updatedRecipe.setId(id); // Ensure the ID is set to update the correct entity
+        updatedRecipe.setVersion(version);
 
-        Recipe savedRecipe = recipeService.saveRecipe(updatedRecipe);
+        Recipe savedRecipe;
+        try {
+            savedRecipe = recipeService.saveRecipe(updatedRecipe);
+        } catch (OptimisticLockingFailureException e) {
+            // another update committed after the version check
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        }
         RecipeDto savedRecipeDto = RecipeTransformer.toDto(savedRecipe);
-        return ResponseEntity.ok(savedRecipeDto);
+        return ResponseEntity.ok().eTag(etag(savedRecipe.getVersion())).body(savedRecipeDto);
     }
 
     /**
      * Deletes a recipe by its ID.
      *
+     * When {@code If-Match} is given, the recipe is only deleted if it matches the ETag of the current version.
+     *
      * @param id The ID of the recipe to delete.
+     * @param ifMatch Optional ETag of the version the client expects to delete.
      * @return ResponseEntity indicating the deletion status.
      */
     @DeleteMapping(value = "/{id}")
     @Operation(summary = "Delete a recipe by ID")
     @ApiResponses({
             @ApiResponse(responseCode = "204", description = "Recipe deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Recipe not found")
+            @ApiResponse(responseCode = "404", description = "Recipe not found"),
+            @ApiResponse(responseCode = "409", description = "Recipe was modified concurrently"),
+            @ApiResponse(responseCode = "412", description = "Recipe does not match If-Match")
     })
-    public ResponseEntity<Void> deleteRecipe(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteRecipe(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.trace("Processing delete recipe request");
-        Recipe recipe = recipeService.getRecipeById(id);
-        if (recipe == null) {
+        Long version = recipeService.getRecipeVersion(id);
+        if (version == null) {
             return ResponseEntity.notFound().build();
         }
-        recipeService.deleteRecipe(id);
+        if (ifMatch != null && !matches(ifMatch, etag(version))) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag(version)).build();
+        }
+        try {
+            recipeService.deleteRecipe(id);
+        } catch (OptimisticLockingFailureException e) {
+            // another update committed after the version check
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        }
         return ResponseEntity.noContent().build();
     }
 
     /**
      * Searches for recipes based on various criteria.
-     * Returns recipes that match all provided criteria.
+     * Returns recipes that match all provided criteria, assembled from the JSON of the single recipes in the
+     * {@link RecipeJsonCache}.
      *
      * @param isVegetarian Filter recipes based on whether they are vegetarian. If null, this criterion is ignored.
      * @param servingCapacity Filter recipes by exact match for serving capacity. If null, this criterion is ignored.
+     * @param minServings Filter recipes serving at least this many people. If null, this criterion is ignored.
+     * @param maxServings Filter recipes serving at most this many people. If null, this criterion is ignored.
+     * @param types Filter recipes of one of the given types. If null, this criterion is ignored.
      * @param includeIngredients Filter recipes that include certain ingredients. If null, this criterion is ignored.
-     * @param excludeIngredients Filter recipes that exclude certain ingredients. If null, this criterion is ignored.
+     * @param includeAllIngredients Whether recipes must include all of includeIngredients instead of at least one.
+     * @param excludeIngredients Filter recipes that contain none of the given ingredients. If null, this criterion is ignored.
      * @param instructions Filter recipes containing specific text in their instructions. If null, this criterion is ignored.
      * @param ingredientName Filter recipes containing a specific ingredient name. If null, this criterion is ignored.
+     * @param fields The properties to return for each recipe. If null, all properties are returned.
      * @return ResponseEntity containing a set of recipes that match the criteria.
      */
-    @GetMapping("/search")
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
     @Operation(summary = "Search for recipes", description = "Search for recipes based on various criteria. Returns recipes that match all provided criteria.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Recipes retrieved successfully"),
+            @ApiResponse(responseCode = "200", description = "Recipes retrieved successfully",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = RecipeDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Search results not modified"),
             @ApiResponse(responseCode = "404", description = "No recipes found matching the criteria")
     })
-    public ResponseEntity<Set<RecipeDto>> searchRecipes(
+    public ResponseEntity<?> searchRecipes(
             @RequestParam(required = false)
             @Parameter(description = "Filter recipes based on whether they are vegetarian. If null, this criterion is ignored.") Boolean isVegetarian,
             @RequestParam(required = false)
             @Parameter(description = "Filter recipes by exact match for serving capacity. If null, this criterion is ignored.") Integer servingCapacity,
             @RequestParam(required = false)
-            @Parameter(description = "Filter recipes that include certain ingredients. If null, this criterion is ignored.") Set<String> includeIngredients,
+            @Parameter(description = "Filter recipes serving at least this many people. If null, this criterion is ignored.") Integer minServings,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes serving at most this many people. If null, this criterion is ignored.") Integer maxServings,
+            @RequestParam(name = "type", required = false)
+            @Parameter(description = "Filter recipes of one of the given types. If null, this criterion is ignored.") Set<String> types,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes that include at least one of the given ingredients. If null, this criterion is ignored.") Set<String> includeIngredients,
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "If true, recipes must include all of includeIngredients instead of at least one.") boolean includeAllIngredients,
             @RequestParam(required = false)
-            @Parameter(description = "Filter recipes that exclude certain ingredients. If null, this criterion is ignored.") Set<String> excludeIngredients,
+            @Parameter(description = "Filter recipes that contain none of the given ingredients. If null, this criterion is ignored.") Set<String> excludeIngredients,
             @RequestParam(required = false)
-            @Parameter(description = "Filter recipes containing specific text in their instructions. If null, this criterion is ignored.") String instructions,
+            @Parameter(description = "Filter recipes whose instructions contain all words of the given text, most relevant first. If null, this criterion is ignored.") String instructions,
             @RequestParam(required = false)
-            @Parameter(description = "Filter recipes containing a specific ingredient name. If null, this criterion is ignored.") String ingredientName) {
+            @Parameter(description = "Filter recipes containing a specific ingredient name. If null, this criterion is ignored.") String ingredientName,
+            @RequestParam(name = "fields", required = false)
+            @Parameter(description = "Comma-separated recipe properties to return, such as name,type,isVegetarian. If null, all properties are returned.") Set<RecipeField> fields,
+            ServletWebRequest webRequest) {
         log.trace("Processing search recipes request");
-        Set<Recipe> recipes = recipeService.searchRecipes(isVegetarian, servingCapacity, includeIngredients, excludeIngredients, instructions, ingredientName);
-        if (recipes.isEmpty()) {
+        boolean smile = prefersSmile(webRequest);
+        Set<RecipeField> selected = selected(fields);
+        RecipeSearchCriteria criteria = criteria(isVegetarian, servingCapacity, minServings, maxServings, types,
+                includeIngredients, includeAllIngredients, excludeIngredients, instructions, ingredientName);
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(criteria);
+        if (versions.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        Set<RecipeDto> recipeDtos = recipes.stream()
-                .map(RecipeTransformer::toDto)
-                .collect(Collectors.toSet());
-        return ResponseEntity.ok(recipeDtos);
+        if (webRequest.checkNotModified(etag(etag(versions), selected, smile))) {
+            return null;
+        }
+        if (smile || !selected.equals(RecipeField.ALL)) {
+            return dtoResponse(recipeDtos(versions, selected), smile);
+        }
+        return jsonResponse(RecipeJsonCache.toJsonArray(recipeJsons(versions)));
+    }
+
+    /**
+     * Counts the recipes matching the search criteria per value of each filter, so every filter value can be shown
+     * with the number of recipes it would leave. Takes the same criteria as {@link #searchRecipes}.
+     *
+     * @param topIngredients The maximum number of ingredients to count, most frequent first.
+     * @return ResponseEntity containing the total number of matches and the counts per vegetarian flag, type,
+     * serving capacity and ingredient.
+     */
+    @GetMapping(value = "/facets", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Count search matches per filter value", description = "Counts the recipes matching the search criteria per vegetarian flag, type, serving capacity and ingredient.")
+    @ApiResponse(responseCode = "200", description = "Counts retrieved successfully")
+    public ResponseEntity<RecipeFacetsDto> getFacets(
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes based on whether they are vegetarian. If null, this criterion is ignored.") Boolean isVegetarian,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes by exact match for serving capacity. If null, this criterion is ignored.") Integer servingCapacity,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes serving at least this many people. If null, this criterion is ignored.") Integer minServings,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes serving at most this many people. If null, this criterion is ignored.") Integer maxServings,
+            @RequestParam(name = "type", required = false)
+            @Parameter(description = "Filter recipes of one of the given types. If null, this criterion is ignored.") Set<String> types,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes that include at least one of the given ingredients. If null, this criterion is ignored.") Set<String> includeIngredients,
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "If true, recipes must include all of includeIngredients instead of at least one.") boolean includeAllIngredients,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes that contain none of the given ingredients. If null, this criterion is ignored.") Set<String> excludeIngredients,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes whose instructions contain all words of the given text. If null, this criterion is ignored.") String instructions,
+            @RequestParam(required = false)
+            @Parameter(description = "Filter recipes containing a specific ingredient name. If null, this criterion is ignored.") String ingredientName,
+            @RequestParam(defaultValue = "10") @Min(0) @Max(MAX_FACET_INGREDIENTS)
+            @Parameter(description = "Maximum number of ingredients to count, most frequent first.") int topIngredients) {
+        log.trace("Processing get facets request");
+        RecipeSearchCriteria criteria = criteria(isVegetarian, servingCapacity, minServings, maxServings, types,
+                includeIngredients, includeAllIngredients, excludeIngredients, instructions, ingredientName);
+        return ResponseEntity.ok(RecipeFacetsTransformer.toDto(recipeService.getFacets(criteria, topIngredients)));
+    }
+
+    /**
+     * @return The JSON of the given versions of recipes that still exist, in order, from the cache where possible.
+     */
+    private List<byte[]> recipeJsons(List<RecipeVersion> versions) {
+        return recipeJsonCache.getAll(versions, missing -> {
+            Map<Long, byte[]> jsonById = new HashMap<>();
+            recipeService.getRecipeViews(missing).forEach(view -> jsonById.put(view.id(), toJson(view)));
+            return jsonById;
+        });
+    }
+
+    private List<RecipeDto> recipeDtos(List<RecipeVersion> versions, Set<RecipeField> fields) {
+        return recipeService.getRecipeViews(versions, fields).stream()
+                .map(view -> RecipeTransformer.toDto(view, fields))
+                .toList();
+    }
+
+    private byte[] toJson(RecipeView view) {
+        try {
+            return recipeWriter.writeValueAsBytes(RecipeTransformer.toDto(view));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> jsonResponse(byte[] json) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+    }
+
+    /**
+     * Serialises DTOs through the message converters, in the format chosen by {@link #prefersSmile}.
+     */
+    private static <T> ResponseEntity<T> dtoResponse(T body, boolean smile) {
+        return ResponseEntity.ok().contentType(smile ? APPLICATION_SMILE : MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * @return The requested fields, or {@link RecipeField#ALL} when none or all of them are requested.
+     */
+    private static Set<RecipeField> selected(Set<RecipeField> fields) {
+        return fields == null || fields.isEmpty() || fields.containsAll(RecipeField.ALL)
+                ? RecipeField.ALL
+                : Collections.unmodifiableSet(EnumSet.copyOf(fields));
+    }
+
+    private static RecipeSearchCriteria criteria(Boolean isVegetarian, Integer servingCapacity, Integer minServings,
+                                                 Integer maxServings, Set<String> types, Set<String> includeIngredients,
+                                                 boolean includeAllIngredients, Set<String> excludeIngredients,
+                                                 String instructions, String ingredientName) {
+        return new RecipeSearchCriteria(isVegetarian,
+                narrowest(servingCapacity, minServings, Math::max), narrowest(servingCapacity, maxServings, Math::min),
+                types, includeIngredients, includeAllIngredients, excludeIngredients, instructions, ingredientName);
+    }
+
+    /**
+     * Combines an exact serving capacity with one bound of a range, either of which may be null.
+     */
+    private static Integer narrowest(Integer servingCapacity, Integer bound, BinaryOperator<Integer> narrower) {
+        if (servingCapacity == null || bound == null) {
+            return servingCapacity != null ? servingCapacity : bound;
+        }
+        return narrower.apply(servingCapacity, bound);
+    }
+
+    /**
+     * Whether the client prefers Smile to JSON, by the quality values in its {@code Accept} header. JSON is served
+     * when both are equally acceptable, such as for {@code *}{@code /*}. Adds {@code Vary: Accept}, since the
+     * response then depends on that header.
+     */
+    private static boolean prefersSmile(ServletWebRequest webRequest) {
+        webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String[] accept = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(List.of(accept));
+        return quality(accepted, APPLICATION_SMILE) > quality(accepted, MediaType.APPLICATION_JSON);
+    }
+
+    private static double quality(List<MediaType> accepted, MediaType mediaType) {
+        return accepted.stream()
+                .filter(acceptedType -> acceptedType.includes(mediaType))
+                .mapToDouble(MediaType::getQualityValue)
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Every sparse fieldset and the Smile format get their own ETag, derived from the one of the complete JSON
+     * representation, so a cache never answers a conditional request for one representation with another.
+     */
+    private static String etag(String jsonEtag, Set<RecipeField> fields, boolean smile) {
+        StringBuilder etag = new StringBuilder(jsonEtag.substring(0, jsonEtag.length() - 1));
+        if (!fields.equals(RecipeField.ALL)) {
+            etag.append('-');
+            fields.forEach(field -> etag.append(field.property()).append('+'));
+            etag.setLength(etag.length() - 1);
+        }
+        if (smile) {
+            etag.append("-smile");
+        }
+        return etag.append('"').toString();
+    }
+
+    private static String etag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Weak ETag over the ids and versions of a list of recipes, in order. Weak, because the bytes of a page differ
+     * between plain and compressed responses, and the server does not compress responses with a strong ETag.
+     */
+    private static String etag(List<RecipeVersion> versions) {
+        StringBuilder content = new StringBuilder();
+        versions.forEach(version -> content.append(version.id()).append(':').append(version.version()).append(','));
+        return "W/\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private static boolean matches(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,18 @@
+package nl.quintor.web.rest;
+
+import nl.quintor.repository.RecipeField;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds the {@code fields} request parameter by {@code RecipeDto} property name, such as {@code isVegetarian}.
+ * An unknown name fails the conversion, which is answered with 400 Bad Request.
+ */
+@Component
+public class RecipeFieldConverter implements Converter<String, RecipeField> {
+
+    @Override
+    public RecipeField convert(String property) {
+        return RecipeField.of(property.trim());
+    }
+}
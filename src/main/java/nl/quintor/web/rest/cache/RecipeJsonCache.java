@@ -0,0 +1,174 @@
+package nl.quintor.web.rest.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nl.quintor.cache.LruCache;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.repository.RecipeVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, least-recently-used cache of the UTF-8 JSON of single recipes by recipe id, with a time to live,
+ * so responses are written from the cached bytes instead of building and serialising a DTO per request.
+ * Entries are invalidated when the recipe is saved or deleted, through {@link RecipeChangedEvent}s,
+ * and are only served for the recipe version they were requested for.
+ * Cached arrays are shared between requests and must not be modified.
+ * Hits, misses, evictions and size are published as the standard Micrometer {@code cache.*} meters, see
+ * {@link LruCache}; evictions include entries dropped because they expired or were outdated.
+ */
+@Component
+public class RecipeJsonCache implements MeterBinder {
+
+    static final String CACHE_NAME = "recipeJson";
+
+    private final LruCache<Long, Entry> entries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public RecipeJsonCache(@Value("${recipe.json-cache.max-size:10000}") int maxSize,
+                           @Value("${recipe.json-cache.ttl-seconds:600}") long ttlSeconds) {
+        this(maxSize, Duration.ofSeconds(ttlSeconds), System::nanoTime);
+    }
+
+    RecipeJsonCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LruCache<>(CACHE_NAME, maxSize);
+    }
+
+    /**
+     * Returns the cached JSON of the recipe, or builds it with the loader and caches it.
+     *
+     * @param id      The ID of the recipe.
+     * @param version The current version of the recipe. An entry cached for another version is replaced.
+     * @param loader  Builds the JSON for a recipe id, returning null when the recipe does not exist.
+     *                Called without holding the cache lock.
+     * @return The JSON, or null when the recipe does not exist. Missing recipes are not cached.
+     */
+    public byte[] get(Long id, Long version, Function<Long, byte[]> loader) {
+        long generation = entries.generation();
+        byte[] json = lookup(id, version);
+        if (json != null) {
+            return json;
+        }
+
+        json = loader.apply(id);
+        if (json != null) {
+            entries.put(generation, id, new Entry(json, version, nanoClock.getAsLong()));
+        }
+        return json;
+    }
+
+    /**
+     * Returns the cached JSON of several recipes, building the missing ones with a single call to the loader.
+     *
+     * @param versions The IDs and current versions of the recipes.
+     * @param loader   Builds the JSON for the versions that are not cached, by recipe id, leaving out recipes that
+     *                 do not exist. Called without holding the cache lock, and only when something is missing.
+     * @return The JSON of the recipes that exist, in the order of the given versions.
+     */
+    public List<byte[]> getAll(List<RecipeVersion> versions, Function<List<RecipeVersion>, Map<Long, byte[]>> loader) {
+        long generation = entries.generation();
+        Map<Long, byte[]> jsonById = new HashMap<>();
+        List<RecipeVersion> missing = new ArrayList<>();
+        for (RecipeVersion version : versions) {
+            byte[] json = lookup(version.id(), version.version());
+            if (json != null) {
+                jsonById.put(version.id(), json);
+            } else {
+                missing.add(version);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<Long, byte[]> loaded = loader.apply(missing);
+            jsonById.putAll(loaded);
+            long loadedAt = nanoClock.getAsLong();
+            Map<Long, Entry> loadedEntries = new HashMap<>();
+            for (RecipeVersion version : missing) {
+                byte[] json = loaded.get(version.id());
+                if (json != null) {
+                    loadedEntries.put(version.id(), new Entry(json, version.version(), loadedAt));
+                }
+            }
+            entries.putAll(generation, loadedEntries);
+        }
+
+        List<byte[]> result = new ArrayList<>(versions.size());
+        for (RecipeVersion version : versions) {
+            byte[] json = jsonById.get(version.id());
+            if (json != null) {
+                result.add(json);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached JSON when it is for the given version and has not expired.
+     */
+    private byte[] lookup(Long id, Long version) {
+        Entry entry = entries.get(id,
+                cached -> cached.version().equals(version) && nanoClock.getAsLong() - cached.loadedAt() < ttlNanos);
+        return entry == null ? null : entry.json();
+    }
+
+    public void invalidate(Long id) {
+        entries.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public LruCache.Stats stats() {
+        return entries.stats();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(RecipeChangedEvent.INVALIDATE_CACHES)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        invalidate(event.getRecipeId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        entries.bindTo(registry);
+    }
+
+    /**
+     * Concatenates JSON values into a JSON array, without parsing them.
+     */
+    public static byte[] toJsonArray(List<byte[]> elements) {
+        int length = 2 + Math.max(0, elements.size() - 1);
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        byte[] array = new byte[length];
+        array[0] = '[';
+        int position = 1;
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                array[position++] = ',';
+            }
+            byte[] element = elements.get(i);
+            System.arraycopy(element, 0, array, position, element.length);
+            position += element.length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    private record Entry(byte[] json, Long version, long loadedAt) {
+    }
+}
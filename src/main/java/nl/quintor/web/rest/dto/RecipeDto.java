@@ -1,5 +1,6 @@
 package nl.quintor.web.rest.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,8 +8,13 @@ import lombok.Setter;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A recipe as exchanged with clients. Null properties are left out of responses, so a sparse fieldset only carries
+ * the fields that were asked for; every property of a complete recipe is non-null.
+ */
 @Getter
 @Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RecipeDto {
 
     @NotNull
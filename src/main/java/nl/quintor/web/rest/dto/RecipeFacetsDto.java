@@ -0,0 +1,25 @@
+package nl.quintor.web.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Number of recipes matching a search per value of each search filter, keyed by the value to pass to that filter.
+ */
+@Getter
+@Setter
+public class RecipeFacetsDto {
+
+    private int total;
+
+    private Map<Boolean, Integer> isVegetarian = new LinkedHashMap<>();
+
+    private Map<String, Integer> types = new LinkedHashMap<>();
+
+    private Map<Integer, Integer> servingCapacities = new LinkedHashMap<>();
+
+    private Map<String, Integer> ingredients = new LinkedHashMap<>();
+}
@@ -0,0 +1,24 @@
+package nl.quintor.web.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class RecipeImportResultDto {
+
+    public enum Status {
+        CREATED, INVALID, FAILED
+    }
+
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private List<String> errors = new ArrayList<>();
+}
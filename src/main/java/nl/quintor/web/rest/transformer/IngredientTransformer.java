@@ -18,4 +18,10 @@ public class IngredientTransformer {
         dto.setName(entity.getName());
         return dto;
     }
+
+    public static IngredientDto toDto(String name) {
+        IngredientDto dto = new IngredientDto();
+        dto.setName(name);
+        return dto;
+    }
 }
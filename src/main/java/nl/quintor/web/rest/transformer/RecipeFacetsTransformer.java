@@ -0,0 +1,24 @@
+package nl.quintor.web.rest.transformer;
+
+import nl.quintor.index.RecipeFacets;
+import nl.quintor.web.rest.dto.RecipeFacetsDto;
+
+import java.util.LinkedHashMap;
+
+public class RecipeFacetsTransformer {
+
+    public static RecipeFacetsDto toDto(RecipeFacets facets) {
+        RecipeFacetsDto dto = new RecipeFacetsDto();
+        dto.setTotal(facets.total());
+        if (facets.vegetarian() > 0) {
+            dto.getIsVegetarian().put(true, facets.vegetarian());
+        }
+        if (facets.total() > facets.vegetarian()) {
+            dto.getIsVegetarian().put(false, facets.total() - facets.vegetarian());
+        }
+        dto.setTypes(new LinkedHashMap<>(facets.types()));
+        dto.setServingCapacities(new LinkedHashMap<>(facets.servingCapacities()));
+        dto.setIngredients(new LinkedHashMap<>(facets.ingredients()));
+        return dto;
+    }
+}
@@ -1,8 +1,11 @@
 package nl.quintor.web.rest.transformer;
 
 import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeView;
 import nl.quintor.web.rest.dto.RecipeDto;
 
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class RecipeTransformer {
@@ -32,4 +35,33 @@ public class RecipeTransformer {
         dto.setIsVegetarian(entity.getIsVegetarian());
         return dto;
     }
+
+    public static RecipeDto toDto(RecipeView view) {
+        RecipeDto dto = new RecipeDto();
+        dto.setName(view.name());
+        dto.setType(view.type());
+        dto.setServingCapacity(view.servingCapacity());
+        dto.setInstructions(view.instructions());
+        dto.setIngredientList(view.ingredientNames().stream()
+                .map(IngredientTransformer::toDto)
+                .collect(Collectors.toList()));
+        dto.setIsVegetarian(view.isVegetarian());
+        return dto;
+    }
+
+    /**
+     * Copies only the given fields into the DTO, leaving the others null so they are not serialised.
+     */
+    public static RecipeDto toDto(RecipeView view, Set<RecipeField> fields) {
+        RecipeDto dto = new RecipeDto();
+        dto.setName(fields.contains(RecipeField.NAME) ? view.name() : null);
+        dto.setType(fields.contains(RecipeField.TYPE) ? view.type() : null);
+        dto.setServingCapacity(fields.contains(RecipeField.SERVING_CAPACITY) ? view.servingCapacity() : null);
+        dto.setInstructions(fields.contains(RecipeField.INSTRUCTIONS) ? view.instructions() : null);
+        dto.setIngredientList(fields.contains(RecipeField.INGREDIENT_LIST)
+                ? view.ingredientNames().stream().map(IngredientTransformer::toDto).collect(Collectors.toList())
+                : null);
+        dto.setIsVegetarian(fields.contains(RecipeField.IS_VEGETARIAN) ? view.isVegetarian() : null);
+        return dto;
+    }
 }
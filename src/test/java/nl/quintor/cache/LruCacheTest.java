@@ -0,0 +1,72 @@
+package nl.quintor.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LruCacheTest {
+
+    private final LruCache<String, String> cache = new LruCache<>("test", 2);
+
+    @Test
+    public void testGet_CountsHitsAndMisses() {
+        assertThat(cache.get("a")).isNull();
+        cache.put(cache.generation(), "a", "A");
+
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(1, 1, 0, 1));
+        assertThat(cache.stats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() {
+        cache.put(cache.generation(), "a", "A");
+        cache.put(cache.generation(), "b", "B");
+        cache.get("a");
+        cache.put(cache.generation(), "c", "C");
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGet_DropsOutdatedValue() {
+        cache.put(cache.generation(), "a", "A");
+
+        assertThat(cache.get("a", value -> false)).isNull();
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(0, 2, 1, 0));
+    }
+
+    @Test
+    public void testPut_DroppedAfterInvalidation() {
+        long generation = cache.generation();
+        cache.invalidate("b");
+
+        cache.put(generation, "a", "A");
+        cache.putAll(generation, Map.of("b", "B"));
+
+        assertThat(cache.stats().size()).isZero();
+        cache.putAll(cache.generation(), Map.of("b", "B"));
+        assertThat(cache.get("b")).isEqualTo("B");
+    }
+
+    @Test
+    public void testBindTo_PublishesCacheMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("a");
+        cache.put(cache.generation(), "a", "A");
+        cache.get("a");
+
+        assertThat(registry.get("cache.gets").tags("cache", "test", "result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "test", "result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.size").tags("cache", "test").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("cache.evictions").tags("cache", "test").functionCounter().count()).isZero();
+    }
+}
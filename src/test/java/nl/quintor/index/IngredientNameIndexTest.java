@@ -0,0 +1,115 @@
+package nl.quintor.index;
+
+import nl.quintor.event.IngredientRemovedEvent;
+import nl.quintor.event.IngredientSavedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.repository.IngredientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IngredientNameIndexTest {
+
+    private IngredientNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        IngredientRepository ingredientRepository = mock(IngredientRepository.class);
+        index = new IngredientNameIndex(ingredientRepository);
+
+        when(ingredientRepository.findAll()).thenReturn(List.of(
+                ingredient(1L, "Tomato"),
+                ingredient(2L, "Cherry Tomatoes"),
+                ingredient(3L, "Potato"),
+                ingredient(4L, "Crème Fraîche"),
+                ingredient(5L, "Ox")));
+        index.rebuild();
+    }
+
+    @Test
+    public void testRebuild() {
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.trigramCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testSearch_Substring() {
+        assertThat(index.search("TOMAT")).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(index.search("tato")).isEqualTo(RoaringBitmap.bitmapOf(3));
+        assertThat(index.search("ato")).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3));
+        assertThat(index.search("creme")).isEqualTo(RoaringBitmap.bitmapOf(4));
+    }
+
+    @Test
+    public void testSearch_CandidatesAreVerified() {
+        // every trigram of these occurs in "tomato", but not in this order
+        assertThat(index.search("tomatom")).isEmpty();
+        assertThat(index.search("atom")).isEmpty();
+    }
+
+    @Test
+    public void testSearch_ShorterThanTrigram() {
+        assertThat(index.search("to")).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3));
+        assertThat(index.search("y")).isEqualTo(RoaringBitmap.bitmapOf(2));
+        assertThat(index.search("o")).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3, 5));
+        assertThat(index.search("ox")).isEqualTo(RoaringBitmap.bitmapOf(5));
+        assertThat(index.search("")).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3, 4, 5));
+        assertThat(index.search(null)).isEmpty();
+    }
+
+    @Test
+    public void testSearch_UnknownTrigram() {
+        assertThat(index.search("saffron")).isEmpty();
+    }
+
+    @Test
+    public void testOnIngredientSaved_AddsAndRenames() {
+        index.onIngredientSaved(new IngredientSavedEvent(6L, "sweet potato"));
+        assertThat(index.search("potato")).isEqualTo(RoaringBitmap.bitmapOf(3, 6));
+
+        index.onIngredientSaved(new IngredientSavedEvent(3L, "parsnip"));
+        assertThat(index.search("potato")).isEqualTo(RoaringBitmap.bitmapOf(6));
+        assertThat(index.search("snip")).isEqualTo(RoaringBitmap.bitmapOf(3));
+    }
+
+    @Test
+    public void testOnIngredientRemoved() {
+        index.onIngredientRemoved(new IngredientRemovedEvent(1L, "Tomato"));
+
+        assertThat(index.search("tomat")).isEqualTo(RoaringBitmap.bitmapOf(2));
+        assertThat(index.size()).isEqualTo(4);
+
+        index.onIngredientRemoved(new IngredientRemovedEvent(5L, "Ox"));
+        assertThat(index.search("ox")).isEmpty();
+    }
+
+    @Test
+    public void testRebuild_KeepsIngredientsSavedWhileLoading() {
+        IngredientRepository ingredientRepository = mock(IngredientRepository.class);
+        IngredientNameIndex loading = new IngredientNameIndex(ingredientRepository);
+        when(ingredientRepository.findAll()).thenAnswer(invocation -> {
+            // committed after the ingredients were read
+            loading.onIngredientSaved(new IngredientSavedEvent(6L, "sweet potato"));
+            loading.onIngredientRemoved(new IngredientRemovedEvent(1L, "Tomato"));
+            return List.of(ingredient(1L, "Tomato"), ingredient(3L, "Potato"));
+        });
+
+        loading.rebuild();
+
+        assertThat(loading.search("potato")).isEqualTo(RoaringBitmap.bitmapOf(3, 6));
+        assertThat(loading.search("tomato")).isEmpty();
+    }
+
+    private static Ingredient ingredient(Long id, String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
+}
@@ -0,0 +1,40 @@
+package nl.quintor.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstructionAnalyzerTest {
+
+    @Test
+    public void testAnalyze() {
+        assertThat(InstructionAnalyzer.analyze("Mix the eggs, then BAKE for 20 minutes."))
+                .containsExactly("mix", "the", "egg", "then", "bak", "for", "20", "minut");
+    }
+
+    @Test
+    public void testAnalyze_Null() {
+        assertThat(InstructionAnalyzer.analyze(null)).isEmpty();
+        assertThat(InstructionAnalyzer.analyze(" ,. ")).isEmpty();
+    }
+
+    @Test
+    public void testStem_InflectionsShareATerm() {
+        assertThat(InstructionAnalyzer.stem("bake")).isEqualTo("bak");
+        assertThat(InstructionAnalyzer.stem("baked")).isEqualTo("bak");
+        assertThat(InstructionAnalyzer.stem("baking")).isEqualTo("bak");
+        assertThat(InstructionAnalyzer.stem("bakes")).isEqualTo("bak");
+        assertThat(InstructionAnalyzer.stem("stirring")).isEqualTo("stir");
+        assertThat(InstructionAnalyzer.stem("stirred")).isEqualTo("stir");
+        assertThat(InstructionAnalyzer.stem("berries")).isEqualTo("berry");
+        assertThat(InstructionAnalyzer.stem("tomatoes")).isEqualTo("tomato");
+    }
+
+    @Test
+    public void testStem_LeavesShortAndIrregularWordsAlone() {
+        assertThat(InstructionAnalyzer.stem("mix")).isEqualTo("mix");
+        assertThat(InstructionAnalyzer.stem("glass")).isEqualTo("glass");
+        assertThat(InstructionAnalyzer.stem("string")).isEqualTo("string");
+        assertThat(InstructionAnalyzer.stem("couscous")).isEqualTo("couscous");
+    }
+}
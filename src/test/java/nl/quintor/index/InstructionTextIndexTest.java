@@ -0,0 +1,85 @@
+package nl.quintor.index;
+
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InstructionTextIndexTest {
+
+    private InstructionTextIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        RecipeRepository recipeRepository = mock(RecipeRepository.class);
+        index = new InstructionTextIndex(recipeRepository);
+
+        when(recipeRepository.findAllWithIngredients()).thenReturn(List.of(
+                recipe(1L, "Mix the flour and bake."),
+                recipe(2L, "Bake the fish, then bake the potatoes."),
+                recipe(3L, "Grill the fish."),
+                recipe(4L, null)));
+        index.rebuild();
+    }
+
+    @Test
+    public void testRebuild() {
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testSearch_RankedByRelevance() {
+        assertThat(index.search("baking", null)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testSearch_AllTermsMustMatch() {
+        assertThat(index.search("baked fish", null)).containsExactly(2L);
+        assertThat(index.search("fish", null)).containsExactly(3L, 2L);
+        assertThat(index.search("bake salmon", null)).isEmpty();
+    }
+
+    @Test
+    public void testSearch_Within() {
+        assertThat(index.search("bake", RoaringBitmap.bitmapOf(1, 3))).containsExactly(1L);
+    }
+
+    @Test
+    public void testSearch_NoTerms() {
+        assertThat(index.search("...", null)).isEmpty();
+        assertThat(index.search(null, null)).isEmpty();
+    }
+
+    @Test
+    public void testRecipeUpdated() {
+        index.onRecipeChanged(new RecipeChangedEvent(3L, recipe(3L, "Bake the fish.")));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.search("grill", null)).isEmpty();
+        assertThat(index.search("bake fish", null)).containsExactly(3L, 2L);
+    }
+
+    @Test
+    public void testRecipeDeleted() {
+        index.onRecipeChanged(new RecipeChangedEvent(2L, null));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search("bake", null)).containsExactly(1L);
+        assertThat(index.search("potatoes", null)).isEmpty();
+    }
+
+    private static Recipe recipe(Long id, String instructions) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setInstructions(instructions);
+        return recipe;
+    }
+}
@@ -0,0 +1,199 @@
+package nl.quintor.index;
+
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static nl.quintor.index.RecipeSnapshotFileTest.recipe;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RecipeCatalogueLoaderTest {
+
+    private static final List<Recipe> WRITTEN = List.of(
+            recipe(1L, 1L, "Main Course", 4, true, "Pasta", 1L, "Tomato", 2L, "Salt"),
+            recipe(2L, 7L, "Main Course", 6, false, "Stew", 2L, "Salt", 3L, "Beef"),
+            recipe(3L, 2L, "Dessert", 2, true, "Pudding", 4L, "Sugar"));
+
+    @TempDir
+    private Path directory;
+
+    private RecipeRepository recipeRepository;
+    private RecipeSnapshot recipeSnapshot;
+    private RecipeSearchIndex recipeSearchIndex;
+    private InstructionTextIndex instructionTextIndex;
+    private Path file;
+    private RecipeCatalogueLoader loader;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        recipeRepository = mock(RecipeRepository.class);
+        recipeSnapshot = new RecipeSnapshot(recipeRepository);
+        recipeSearchIndex = new RecipeSearchIndex(recipeRepository);
+        instructionTextIndex = new InstructionTextIndex(recipeRepository);
+        file = directory.resolve("recipes.bin");
+        loader = new RecipeCatalogueLoader(recipeRepository, recipeSnapshot, recipeSearchIndex, instructionTextIndex,
+                file.toString());
+
+        RecipeSnapshot written = new RecipeSnapshot(recipeRepository);
+        written.rebuild(WRITTEN);
+        RecipeSnapshotFile.write(written.columns(), file);
+    }
+
+    @Test
+    public void testLoad_ReplaysChangesSinceFileWasWritten() {
+        databaseVersions(new RecipeVersion(1L, 1L), new RecipeVersion(2L, 8L), new RecipeVersion(4L, 0L));
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(2L, 4L))).thenReturn(List.of(
+                recipe(2L, 8L, "Main Course", 6, true, "Stew", 1L, "Tomato"),
+                recipe(4L, 0L, "Soup", 2, true, "Soup", 5L, "Onion")));
+
+        loader.load();
+
+        verify(recipeRepository, never()).findAllWithIngredients();
+        assertThat(recipeSnapshot.size()).isEqualTo(3);
+        assertThat(recipeSnapshot.get(1L).ingredientNames()).containsExactly("Salt", "Tomato");
+        assertThat(recipeSnapshot.get(2L).version()).isEqualTo(8L);
+        assertThat(recipeSnapshot.get(3L)).isNull();
+        assertThat(recipeSnapshot.get(4L).ingredientNames()).containsExactly("Onion");
+        assertThat(recipeSearchIndex.search(true, null, null, null, Set.of(Ingredient.normalizeName("Tomato")), false, null))
+                .containsExactly(1, 2);
+        assertThat(recipeSearchIndex.size()).isEqualTo(3);
+        assertThat(instructionTextIndex.search("soup", null)).containsExactly(4L);
+    }
+
+    @Test
+    public void testLoad_UnchangedDatabaseIsNotQueriedForRecipes() {
+        databaseVersions(new RecipeVersion(1L, 1L), new RecipeVersion(2L, 7L), new RecipeVersion(3L, 2L));
+
+        loader.load();
+
+        verify(recipeRepository, never()).findAllWithIngredients();
+        verify(recipeRepository, never()).findAllWithIngredientsByIdIn(any());
+        assertThat(recipeSnapshot.size()).isEqualTo(3);
+        assertThat(recipeSearchIndex.search(null, null, null, Set.of("Dessert"), null, false, null)).containsExactly(3);
+    }
+
+    @Test
+    public void testLoad_FileAheadOfDatabaseIsIgnored() {
+        databaseVersions(new RecipeVersion(1L, 0L));
+        when(recipeRepository.findAllWithIngredients()).thenReturn(List.of(recipe(1L, 0L, "Soup", 2, true, "Soup")));
+
+        loader.load();
+
+        verify(recipeRepository).findAllWithIngredients();
+        assertThat(recipeSnapshot.size()).isEqualTo(1);
+        assertThat(recipeSnapshot.get(1L).type()).isEqualTo("Soup");
+    }
+
+    @Test
+    public void testLoad_CorruptFileIsIgnored() throws IOException {
+        Files.write(file, new byte[]{1, 2, 3});
+        when(recipeRepository.findAllWithIngredients()).thenReturn(WRITTEN);
+
+        loader.load();
+
+        verify(recipeRepository).findAllWithIngredients();
+        assertThat(recipeSnapshot.size()).isEqualTo(3);
+        assertThat(instructionTextIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLoad_WithoutFileLoadsFromDatabaseOnce() throws IOException {
+        Files.delete(file);
+        when(recipeRepository.findAllWithIngredients()).thenReturn(WRITTEN);
+
+        loader.load();
+
+        verify(recipeRepository, times(1)).findAllWithIngredients();
+        verify(recipeRepository, never()).findAll();
+        assertThat(recipeSnapshot.size()).isEqualTo(3);
+        assertThat(recipeSearchIndex.size()).isEqualTo(3);
+        assertThat(instructionTextIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLoad_KeepsRecipesChangedWhileLoading() throws IOException {
+        Files.delete(file);
+        Recipe soup = recipe(4L, 0L, "Soup", 2, true, "Soup", 5L, "Onion");
+        when(recipeRepository.findAllWithIngredients()).thenAnswer(invocation -> {
+            // committed after the catalogue was read
+            changed(new RecipeChangedEvent(4L, soup));
+            changed(new RecipeChangedEvent(3L, null));
+            return WRITTEN;
+        });
+
+        loader.load();
+
+        assertThat(recipeSnapshot.size()).isEqualTo(3);
+        assertThat(recipeSnapshot.get(3L)).isNull();
+        assertThat(recipeSnapshot.get(4L).ingredientNames()).containsExactly("Onion");
+        assertThat(recipeSearchIndex.search(null, null, null, Set.of("Soup"), null, false, null)).containsExactly(4);
+        assertThat(recipeSearchIndex.search(null, null, null, Set.of("Dessert"), null, false, null)).isEmpty();
+        assertThat(instructionTextIndex.search("soup", null)).containsExactly(4L);
+        assertThat(instructionTextIndex.search("pudding", null)).isEmpty();
+    }
+
+    @Test
+    public void testLoad_RestoreKeepsRecipesChangedWhileLoading() {
+        Recipe soup = recipe(4L, 0L, "Soup", 2, true, "Soup", 5L, "Onion");
+        when(recipeRepository.findVersionsAfter(anyLong(), any())).thenAnswer(invocation -> {
+            changed(new RecipeChangedEvent(4L, soup));
+            return List.of(new RecipeVersion(1L, 1L), new RecipeVersion(2L, 7L), new RecipeVersion(3L, 2L));
+        });
+
+        loader.load();
+
+        assertThat(recipeSnapshot.size()).isEqualTo(4);
+        assertThat(recipeSearchIndex.search(null, null, null, Set.of("Soup"), null, false, null)).containsExactly(4);
+        assertThat(instructionTextIndex.search("soup", null)).containsExactly(4L);
+    }
+
+    @Test
+    public void testWriteSnapshot_OnlyWhenChanged() throws IOException {
+        databaseVersions(new RecipeVersion(1L, 1L), new RecipeVersion(2L, 7L), new RecipeVersion(3L, 2L));
+        loader.load();
+        Files.delete(file);
+
+        loader.writeSnapshot();
+        assertThat(file).doesNotExist();
+
+        recipeSnapshot.remove(3L);
+        loader.close();
+        assertThat(RecipeSnapshotFile.read(file).ids()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void testWriteSnapshot_NotBeforeLoad() throws IOException {
+        Files.delete(file);
+
+        loader.writeSnapshot();
+
+        assertThat(file).doesNotExist();
+    }
+
+    private void changed(RecipeChangedEvent event) {
+        recipeSnapshot.onRecipeChanged(event);
+        recipeSearchIndex.onRecipeChanged(event);
+        instructionTextIndex.onRecipeChanged(event);
+    }
+
+    private void databaseVersions(RecipeVersion... versions) {
+        when(recipeRepository.findVersionsAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return List.of(versions).stream().filter(version -> version.id() > after).toList();
+        });
+    }
+}
@@ -0,0 +1,194 @@
+package nl.quintor.index;
+
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.*;
+
+public class RecipeSearchIndexTest {
+
+    private static final List<String> INGREDIENTS = List.of("Salt", "Tomato", "Beef", "Sugar");
+
+    private RecipeRepository recipeRepository;
+    private RecipeSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        index = new RecipeSearchIndex(recipeRepository);
+
+        when(recipeRepository.findAllWithIngredients()).thenReturn(List.of(
+                recipe(1L, true, 4, "Salt", "Tomato"),
+                recipe(2L, false, 4, "Salt", "Beef"),
+                dessert(recipe(3L, true, 2, "Sugar"))));
+        index.rebuild();
+    }
+
+    @Test
+    public void testRebuild() {
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search(null, null, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3));
+    }
+
+    @Test
+    public void testSearchIsVegetarian() {
+        assertThat(index.search(true, null, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 3));
+        assertThat(index.search(false, null, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(2));
+    }
+
+    @Test
+    public void testSearchServingCapacity() {
+        assertThat(index.search(null, 4, 4, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(index.search(null, 8, 8, null, null, false, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchServingsRange() {
+        assertThat(index.search(null, 2, 4, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3));
+        assertThat(index.search(null, 3, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(index.search(null, null, 3, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(3));
+        assertThat(index.search(null, 5, 8, null, null, false, null).isEmpty()).isTrue();
+        assertThat(index.search(null, 4, 2, null, null, false, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchTypes() {
+        assertThat(index.search(null, null, null, Set.of("Dessert"), null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(3));
+        assertThat(index.search(null, null, null, Set.of("Dessert", "Main Course"), null, false, null))
+                .isEqualTo(RoaringBitmap.bitmapOf(1, 2, 3));
+        assertThat(index.search(null, null, null, Set.of("Soup"), null, false, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchIncludeIngredients() {
+        assertThat(index.search(null, null, null, null, Set.of("Tomato", "Sugar"), false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 3));
+        assertThat(index.search(null, null, null, null, Set.of("Flour"), false, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchIncludeAllIngredients() {
+        assertThat(index.search(null, null, null, null, Set.of("Salt", "Tomato"), true, null)).isEqualTo(RoaringBitmap.bitmapOf(1));
+        assertThat(index.search(null, null, null, null, Set.of("Salt"), true, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(index.search(null, null, null, null, Set.of("Salt", "Flour"), true, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchExcludeIngredients() {
+        assertThat(index.search(null, null, null, null, null, false, Set.of("Beef"))).isEqualTo(RoaringBitmap.bitmapOf(1, 3));
+        assertThat(index.search(null, null, null, null, Set.of("Salt"), false, Set.of("Tomato"))).isEqualTo(RoaringBitmap.bitmapOf(2));
+    }
+
+    @Test
+    public void testRecipesWithAnyIngredient() {
+        // ingredient ids follow INGREDIENTS: Tomato is 2, Sugar is 4
+        assertThat(index.recipesWithAnyIngredient(RoaringBitmap.bitmapOf(2, 4))).isEqualTo(RoaringBitmap.bitmapOf(1, 3));
+        assertThat(index.recipesWithAnyIngredient(RoaringBitmap.bitmapOf(9)).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSearchWithAllCriteria() {
+        assertThat(index.search(true, 4, 4, null, Set.of("Salt"), false, Set.of("Beef"))).isEqualTo(RoaringBitmap.bitmapOf(1));
+    }
+
+    @Test
+    public void testFacets() {
+        RecipeFacets facets = index.facets(null, 10);
+
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.vegetarian()).isEqualTo(2);
+        assertThat(facets.types()).containsExactly(entry("Main Course", 2), entry("Dessert", 1));
+        assertThat(facets.servingCapacities()).containsExactly(entry(2, 1), entry(4, 2));
+        assertThat(facets.ingredients()).containsExactly(entry("salt", 2), entry("beef", 1), entry("sugar", 1), entry("tomato", 1));
+    }
+
+    @Test
+    public void testFacetsOfMatches() {
+        index.index(recipe(4L, true, 6, "Salt", "Sugar"));
+
+        RecipeFacets facets = index.facets(RoaringBitmap.bitmapOf(1, 3, 4, 9), 2);
+
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.vegetarian()).isEqualTo(3);
+        assertThat(facets.types()).containsExactly(entry("Main Course", 2), entry("Dessert", 1));
+        assertThat(facets.servingCapacities()).containsExactly(entry(2, 1), entry(4, 1), entry(6, 1));
+        assertThat(facets.ingredients()).containsExactly(entry("salt", 2), entry("sugar", 2));
+    }
+
+    @Test
+    public void testRecipeUpdated() {
+        index.onRecipeChanged(new RecipeChangedEvent(1L, recipe(1L, false, 6, "Salt")));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search(null, 6, 6, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1));
+        assertThat(index.search(null, 5, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(1));
+        assertThat(index.search(null, 4, 4, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(2));
+        assertThat(index.search(null, null, null, null, Set.of("Tomato"), false, null).isEmpty()).isTrue();
+        assertThat(index.search(true, null, null, null, null, false, null)).isEqualTo(RoaringBitmap.bitmapOf(3));
+    }
+
+    @Test
+    public void testRecipeSavedWithUnknownIngredientReference() {
+        Recipe saved = recipe(4L, true, 4);
+        Ingredient reference = mock(Ingredient.class, withSettings().extraInterfaces(HibernateProxy.class));
+        LazyInitializer lazyInitializer = mock(LazyInitializer.class);
+        when(((HibernateProxy) reference).asHibernateProxy()).thenReturn((HibernateProxy) reference);
+        when(((HibernateProxy) reference).getHibernateLazyInitializer()).thenReturn(lazyInitializer);
+        when(lazyInitializer.isUninitialized()).thenReturn(true);
+        when(reference.getId()).thenReturn(9L);
+        saved.getIngredientList().add(reference);
+
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(4L))).thenReturn(List.of(recipe(4L, true, 4, "Salt")));
+
+        index.onRecipeChanged(new RecipeChangedEvent(4L, saved));
+
+        verify(recipeRepository).findAllWithIngredientsByIdIn(List.of(4L));
+        assertThat(index.search(null, null, null, null, Set.of("Salt"), false, null)).isEqualTo(RoaringBitmap.bitmapOf(1, 2, 4));
+    }
+
+    @Test
+    public void testRecipeDeleted() {
+        index.onRecipeChanged(new RecipeChangedEvent(2L, null));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search(null, null, null, null, Set.of("Beef"), false, null).isEmpty()).isTrue();
+        assertThat(index.search(null, null, null, null, Set.of("Salt"), false, null)).isEqualTo(RoaringBitmap.bitmapOf(1));
+    }
+
+    private static Recipe dessert(Recipe recipe) {
+        recipe.setType("Dessert");
+        return recipe;
+    }
+
+    private static Recipe recipe(Long id, boolean vegetarian, int servingCapacity, String... ingredientNames) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName("Recipe " + id);
+        recipe.setType("Main Course");
+        recipe.setServingCapacity(servingCapacity);
+        recipe.setInstructions("Mix and cook.");
+        recipe.setIsVegetarian(vegetarian);
+        Set<Ingredient> ingredients = new HashSet<>();
+        Arrays.stream(ingredientNames).forEach(name -> {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setId((long) INGREDIENTS.indexOf(name) + 1);
+            ingredient.setName(name);
+            ingredients.add(ingredient);
+        });
+        recipe.setIngredientList(ingredients);
+        return recipe;
+    }
+}
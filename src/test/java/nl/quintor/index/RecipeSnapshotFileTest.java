@@ -0,0 +1,170 @@
+package nl.quintor.index;
+
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class RecipeSnapshotFileTest {
+
+    @TempDir
+    private Path directory;
+
+    private RecipeSnapshot snapshot;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() {
+        snapshot = new RecipeSnapshot(mock(RecipeRepository.class));
+        snapshot.rebuild(List.of(
+                recipe(3L, 2L, "Dessert", 2, true, "Crème brûlée", 1L, "Sugar"),
+                recipe(1L, 1L, "Main Course", 4, true, "Pasta", 2L, "Tomato", 3L, "Salt"),
+                recipe(2L, 7L, "Main Course", 6, false, "Stew", 3L, "Salt", 4L, "Beef")));
+        file = directory.resolve("snapshot").resolve("recipes.bin");
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        RecipeSnapshot.Columns columns = RecipeSnapshotFile.read(file);
+
+        assertThat(columns.ids()).containsExactly(1L, 2L, 3L);
+        assertThat(columns.maxId()).isEqualTo(3L);
+        assertThat(columns.maxVersion()).isEqualTo(7L);
+        RecipeSnapshot restored = new RecipeSnapshot(mock(RecipeRepository.class));
+        restored.restore(columns);
+        for (long id = 1; id <= 3; id++) {
+            assertThat(restored.get(id)).isEqualTo(snapshot.get(id));
+        }
+        assertThat(restored.get(3L).name()).isEqualTo("Crème brûlée");
+    }
+
+    @Test
+    public void testRestoredSnapshotAcceptsChanges() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        RecipeSnapshot restored = new RecipeSnapshot(mock(RecipeRepository.class));
+        restored.restore(RecipeSnapshotFile.read(file));
+
+        restored.put(recipe(4L, 1L, "Soup", 2, true, "Soup", 2L, "Tomato", 5L, "Onion"));
+        restored.remove(2L);
+
+        assertThat(restored.size()).isEqualTo(3);
+        assertThat(restored.get(4L).ingredientNames()).containsExactly("Onion", "Tomato");
+        assertThat(restored.get(1L).ingredientNames()).containsExactly("Salt", "Tomato");
+        assertThat(restored.get(3L).isVegetarian()).isTrue();
+    }
+
+    @Test
+    public void testWriteEmptySnapshot() throws IOException {
+        RecipeSnapshotFile.write(new RecipeSnapshot(mock(RecipeRepository.class)).columns(), file);
+
+        RecipeSnapshot.Columns columns = RecipeSnapshotFile.read(file);
+
+        assertThat(columns.rows()).isZero();
+        assertThat(columns.maxId()).isZero();
+    }
+
+    @Test
+    public void testWriteReplacesFile() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        snapshot.remove(3L);
+
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+
+        assertThat(RecipeSnapshotFile.read(file).ids()).containsExactly(1L, 2L);
+        assertThat(Files.list(file.getParent())).containsExactly(file);
+    }
+
+    @Test
+    public void testRead_ChecksumMismatch() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> RecipeSnapshotFile.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    public void testRead_Truncated() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, RecipeSnapshotFile.HEADER_BYTES - 1));
+
+        assertThatThrownBy(() -> RecipeSnapshotFile.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testRead_TooLarge() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(1), RecipeSnapshotFile.MAX_FILE_BYTES);
+        }
+
+        assertThatThrownBy(() -> RecipeSnapshotFile.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("more than the " + RecipeSnapshotFile.MAX_FILE_BYTES + " bytes");
+    }
+
+    @Test
+    public void testRead_OtherFormatVersion() throws IOException {
+        RecipeSnapshotFile.write(snapshot.columns(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, RecipeSnapshotFile.FORMAT_VERSION + 1);
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> RecipeSnapshotFile.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("format version");
+    }
+
+    @Test
+    public void testRead_NotASnapshot() throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[RecipeSnapshotFile.HEADER_BYTES]);
+
+        assertThatThrownBy(() -> RecipeSnapshotFile.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a recipe snapshot");
+    }
+
+    /**
+     * @param ingredients Alternating ingredient ids and names.
+     */
+    static Recipe recipe(Long id, Long version, String type, int servingCapacity, boolean vegetarian, String name,
+                         Object... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setVersion(version);
+        recipe.setName(name);
+        recipe.setType(type);
+        recipe.setServingCapacity(servingCapacity);
+        recipe.setInstructions("Mix and cook " + name + ".");
+        recipe.setIsVegetarian(vegetarian);
+        Set<Ingredient> ingredientList = new HashSet<>();
+        for (int i = 0; i < ingredients.length; i += 2) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setId((Long) ingredients[i]);
+            ingredient.setName((String) ingredients[i + 1]);
+            ingredientList.add(ingredient);
+        }
+        recipe.setIngredientList(ingredientList);
+        return recipe;
+    }
+}
@@ -0,0 +1,151 @@
+package nl.quintor.index;
+
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeView;
+import org.hibernate.collection.spi.PersistentSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class RecipeSnapshotTest {
+
+    private static final List<String> INGREDIENTS = List.of("Salt", "Tomato", "Beef", "Sugar");
+
+    private RecipeRepository recipeRepository;
+    private RecipeSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository = mock(RecipeRepository.class);
+        snapshot = new RecipeSnapshot(recipeRepository);
+
+        when(recipeRepository.findAllWithIngredients()).thenReturn(List.of(
+                recipe(3L, "Dessert", 2, true, "Sugar"),
+                recipe(1L, "Main Course", 4, true, "Tomato", "Salt"),
+                recipe(2L, "Main Course", 6, false, "Salt", "Beef")));
+        snapshot.rebuild();
+    }
+
+    @Test
+    public void testRebuild() {
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.get(1L)).isEqualTo(
+                new RecipeView(1L, 1L, "Recipe 1", "Main Course", 4, "Mix and cook 1.", true, List.of("Salt", "Tomato")));
+        assertThat(snapshot.get(2L).isVegetarian()).isFalse();
+        assertThat(snapshot.get(3L).type()).isEqualTo("Dessert");
+        assertThat(snapshot.get(4L)).isNull();
+    }
+
+    @Test
+    public void testGetAll() {
+        Map<Long, RecipeView> views = snapshot.getAll(List.of(3L, 9L, 1L));
+
+        assertThat(views).containsOnlyKeys(1L, 3L);
+        assertThat(views.get(3L).ingredientNames()).containsExactly("Sugar");
+    }
+
+    @Test
+    public void testGetAllSelectedFields() {
+        Map<Long, RecipeView> views = snapshot.getAll(List.of(1L), EnumSet.of(RecipeField.TYPE, RecipeField.SERVING_CAPACITY));
+
+        assertThat(views.get(1L)).isEqualTo(new RecipeView(1L, 1L, null, "Main Course", 4, null, null, List.of()));
+    }
+
+    @Test
+    public void testRecipeUpdated() {
+        Recipe updated = recipe(2L, "Soup", 8, true, "Tomato");
+        updated.setVersion(5L);
+
+        snapshot.onRecipeChanged(new RecipeChangedEvent(2L, updated));
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.get(2L)).isEqualTo(
+                new RecipeView(2L, 5L, "Recipe 2", "Soup", 8, "Mix and cook 2.", true, List.of("Tomato")));
+        assertThat(snapshot.get(1L).ingredientNames()).containsExactly("Salt", "Tomato");
+    }
+
+    @Test
+    public void testGet_IngredientsInNameOrder() {
+        Recipe recipe = recipe(4L, "Dessert", 2, true);
+        recipe.setIngredientList(Set.of(ingredient(11L, "Égg"), ingredient(12L, "apple"), ingredient(13L, "Banana")));
+
+        snapshot.put(recipe);
+
+        assertThat(snapshot.get(4L).ingredientNames()).containsExactly("apple", "Banana", "Égg");
+    }
+
+    @Test
+    public void testRecipeInsertedBetweenRows() {
+        snapshot.remove(2L);
+        snapshot.put(recipe(2L, "Soup", 2, false, "Beef"));
+
+        assertThat(snapshot.get(1L).isVegetarian()).isTrue();
+        assertThat(snapshot.get(2L).isVegetarian()).isFalse();
+        assertThat(snapshot.get(3L).isVegetarian()).isTrue();
+        assertThat(snapshot.get(3L).ingredientNames()).containsExactly("Sugar");
+    }
+
+    @Test
+    public void testRecipeDeleted() {
+        snapshot.onRecipeChanged(new RecipeChangedEvent(1L, null));
+
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.get(1L)).isNull();
+        assertThat(snapshot.get(2L).isVegetarian()).isFalse();
+        assertThat(snapshot.get(3L).isVegetarian()).isTrue();
+    }
+
+    @Test
+    public void testRecipeWithUnloadedIngredientsIsReloaded() {
+        Recipe saved = mock(Recipe.class);
+        when(saved.getId()).thenReturn(4L);
+        PersistentSet<Ingredient> unloadedIngredients = mock();
+        when(saved.getIngredientList()).thenReturn(unloadedIngredients);
+        when(recipeRepository.findAllWithIngredientsByIdIn(List.of(4L))).thenReturn(List.of(recipe(4L, "Soup", 2, true, "Salt")));
+
+        snapshot.onRecipeChanged(new RecipeChangedEvent(4L, saved));
+
+        assertThat(snapshot.get(4L).ingredientNames()).containsExactly("Salt");
+    }
+
+    @Test
+    public void testRepeatedUpdatesCompactIngredients() {
+        for (int i = 0; i < 1000; i++) {
+            snapshot.put(recipe(1L, "Main Course", 4, true, INGREDIENTS.get(i % INGREDIENTS.size()), "Salt"));
+        }
+
+        assertThat(snapshot.get(1L).ingredientNames()).containsExactly("Salt", "Sugar");
+        assertThat(snapshot.get(2L).ingredientNames()).containsExactly("Beef", "Salt");
+        assertThat(snapshot.get(3L).ingredientNames()).containsExactly("Sugar");
+    }
+
+    private static Recipe recipe(Long id, String type, int servingCapacity, boolean vegetarian, String... ingredientNames) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setVersion(1L);
+        recipe.setName("Recipe " + id);
+        recipe.setType(type);
+        recipe.setServingCapacity(servingCapacity);
+        recipe.setInstructions("Mix and cook " + id + ".");
+        recipe.setIsVegetarian(vegetarian);
+        Set<Ingredient> ingredients = new HashSet<>();
+        Arrays.stream(ingredientNames).forEach(name -> ingredients.add(ingredient((long) INGREDIENTS.indexOf(name) + 1, name)));
+        recipe.setIngredientList(ingredients);
+        return recipe;
+    }
+
+    private static Ingredient ingredient(Long id, String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setId(id);
+        ingredient.setName(name);
+        return ingredient;
+    }
+}
@@ -5,19 +5,23 @@ import nl.quintor.model.Ingredient;
 import nl.quintor.model.Recipe;
 import nl.quintor.repository.IngredientRepository;
 import nl.quintor.repository.RecipeRepository;
+import nl.quintor.web.rest.dto.IngredientDto;
 import nl.quintor.web.rest.dto.RecipeDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.Collections;
 import java.util.HashSet;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -61,6 +65,15 @@ public class RecipeControllerIntegrationTest {
                 .andExpect(jsonPath("$.name").value("Test Recipe"));
     }
 
+    @Test
+    public void testCreateRecipe_ReusesExistingIngredients() throws Exception {
+        createRecipe("First Recipe", "Salt", "Pepper");
+        createRecipe("Second Recipe", "Salt", "Sugar");
+        createRecipe("Third Recipe", "Salt", "Pepper", "Sugar");
+
+        assertThat(ingredientRepository.count()).isEqualTo(3);
+    }
+
     @Test
     public void testGetAllRecipes() throws Exception {
         Recipe recipe = new Recipe();
@@ -79,6 +92,54 @@ public class RecipeControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].name").value("Test Recipe"));
     }
 
+    @Test
+    public void testGetAllRecipes_Paginated() throws Exception {
+        createRecipe("First Recipe", "Salt");
+        createRecipe("Second Recipe", "Salt", "Pepper");
+        createRecipe("Third Recipe");
+
+        String cursor = mockMvc.perform(get("/recipe")
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("First Recipe"))
+                .andExpect(jsonPath("$[1].name").value("Second Recipe"))
+                .andExpect(jsonPath("$[1].ingredientList.length()").value(2))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/recipe")
+                        .param("limit", "2")
+                        .param("after", cursor)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Third Recipe"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testExportRecipes() throws Exception {
+        createRecipe("First Recipe", "Salt");
+        createRecipe("Second Recipe", "Salt", "Pepper");
+
+        MvcResult result = mockMvc.perform(get("/recipe/export")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], RecipeDto.class).getName()).isEqualTo("First Recipe");
+        RecipeDto second = objectMapper.readValue(lines[1], RecipeDto.class);
+        assertThat(second.getName()).isEqualTo("Second Recipe");
+        assertThat(second.getIngredientList()).hasSize(2);
+    }
+
     @Test
     public void testSearchRecipes() throws Exception {
         Ingredient salt = new Ingredient();
@@ -102,6 +163,42 @@ public class RecipeControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].name").value("Test Recipe"));
     }
 
+    @Test
+    public void testSearchRecipes_ExcludeIngredients() throws Exception {
+        createRecipe("Salted Recipe", "Salt");
+        createRecipe("Peppered Recipe", "Salt", "Pepper");
+
+        mockMvc.perform(get("/recipe/search")
+                        .param("includeIngredients", "Salt")
+                        .param("excludeIngredients", "Pepper")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Salted Recipe"));
+    }
+
+    @Test
+    public void testSearchRecipes_InstructionsRankedByRelevance() throws Exception {
+        createRecipeWithInstructions("Grilled Fish", "Grill the fish and serve.");
+        createRecipeWithInstructions("Baked Fish", "Bake the fish, then bake the potatoes.");
+        createRecipeWithInstructions("Baked Bread", "Knead the dough and bake.");
+
+        mockMvc.perform(get("/recipe/search")
+                        .param("instructions", "baking fish")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Baked Fish"));
+
+        mockMvc.perform(get("/recipe/search")
+                        .param("instructions", "Baked")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Baked Fish"))
+                .andExpect(jsonPath("$[1].name").value("Baked Bread"));
+    }
+
     @Test
     public void testUpdateRecipe() throws Exception {
         Recipe recipe = new Recipe();
@@ -114,6 +211,10 @@ public class RecipeControllerIntegrationTest {
 
         recipe = recipeRepository.save(recipe);
 
+        mockMvc.perform(get("/recipe/" + recipe.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Recipe"));
+
         RecipeDto updatedRecipeDto = new RecipeDto();
         updatedRecipeDto.setName("Updated Recipe");
         updatedRecipeDto.setType("Dessert");
@@ -127,6 +228,54 @@ public class RecipeControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(updatedRecipeDto)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Updated Recipe"));
+
+        mockMvc.perform(get("/recipe/" + recipe.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Updated Recipe"));
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        Recipe recipe = new Recipe();
+        recipe.setName("Test Recipe");
+        recipe.setType("Dessert");
+        recipe.setServingCapacity(4);
+        recipe.setInstructions("Mix and bake.");
+        recipe.setIsVegetarian(true);
+        recipe.setIngredientList(new HashSet<>());
+
+        recipe = recipeRepository.save(recipe);
+
+        String etag = mockMvc.perform(get("/recipe/" + recipe.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/recipe/" + recipe.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        RecipeDto updatedRecipeDto = recipeDto("Updated Recipe", "Mix and bake.");
+        String updatedEtag = mockMvc.perform(put("/recipe/" + recipe.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedRecipeDto)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updatedEtag).isNotEqualTo(etag);
+
+        mockMvc.perform(put("/recipe/" + recipe.getId())
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedRecipeDto)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/recipe/" + recipe.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, updatedEtag))
+                .andExpect(jsonPath("$.name").value("Updated Recipe"));
     }
 
     @Test
@@ -141,6 +290,10 @@ public class RecipeControllerIntegrationTest {
 
         recipe = recipeRepository.save(recipe);
 
+        mockMvc.perform(get("/recipe/" + recipe.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
         mockMvc.perform(delete("/recipe/" + recipe.getId())
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
@@ -149,4 +302,35 @@ public class RecipeControllerIntegrationTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
+
+    private void createRecipe(String name, String... ingredientNames) throws Exception {
+        RecipeDto recipeDto = recipeDto(name, "Mix and bake.");
+        for (String ingredientName : ingredientNames) {
+            IngredientDto ingredientDto = new IngredientDto();
+            ingredientDto.setName(ingredientName);
+            recipeDto.getIngredientList().add(ingredientDto);
+        }
+        postRecipe(recipeDto);
+    }
+
+    private void createRecipeWithInstructions(String name, String instructions) throws Exception {
+        postRecipe(recipeDto(name, instructions));
+    }
+
+    private static RecipeDto recipeDto(String name, String instructions) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setName(name);
+        recipeDto.setType("Dessert");
+        recipeDto.setServingCapacity(4);
+        recipeDto.setInstructions(instructions);
+        recipeDto.setIsVegetarian(true);
+        return recipeDto;
+    }
+
+    private void postRecipe(RecipeDto recipeDto) throws Exception {
+        mockMvc.perform(post("/recipe")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(recipeDto)))
+                .andExpect(status().isCreated());
+    }
 }
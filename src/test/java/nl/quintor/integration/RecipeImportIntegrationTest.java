@@ -0,0 +1,112 @@
+package nl.quintor.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.web.rest.dto.IngredientDto;
+import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.dto.RecipeImportResultDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RecipeImportIntegrationTest {
+
+    private static final int RECIPE_COUNT = 5_000;
+    private static final String[] INGREDIENTS = {"Salt", "Pepper", "Sugar", "Flour", "Butter", "Egg", "Milk", "Onion", "Garlic", "Tomato"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    @Test
+    public void testImportRecipes() throws Exception {
+        List<RecipeDto> recipeDtos = new ArrayList<>(RECIPE_COUNT);
+        for (int i = 0; i < RECIPE_COUNT; i++) {
+            recipeDtos.add(recipe(i));
+        }
+        byte[] content = objectMapper.writeValueAsBytes(recipeDtos);
+
+        long start = System.nanoTime();
+        String response = mockMvc.perform(post("/recipe/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(content))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("Imported {} recipes in {} s ({} recipes/sec)", RECIPE_COUNT, String.format("%.2f", seconds),
+                String.format("%.0f", RECIPE_COUNT / seconds));
+
+        List<RecipeImportResultDto> results = Arrays.asList(objectMapper.readValue(response, RecipeImportResultDto[].class));
+        assertThat(results).hasSize(RECIPE_COUNT);
+        assertThat(results).allMatch(result -> result.getStatus() == RecipeImportResultDto.Status.CREATED);
+        assertThat(recipeRepository.count()).isEqualTo(RECIPE_COUNT);
+        assertThat(ingredientRepository.count()).isEqualTo(INGREDIENTS.length);
+    }
+
+    @Test
+    public void testImportRecipes_WithInvalidRecipe() throws Exception {
+        RecipeDto invalid = recipe(1);
+        invalid.setName(null);
+
+        String response = mockMvc.perform(post("/recipe/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(List.of(recipe(0), invalid, recipe(2)))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        RecipeImportResultDto[] results = objectMapper.readValue(response, RecipeImportResultDto[].class);
+        assertThat(results[0].getStatus()).isEqualTo(RecipeImportResultDto.Status.CREATED);
+        assertThat(results[1].getStatus()).isEqualTo(RecipeImportResultDto.Status.INVALID);
+        assertThat(results[1].getErrors()).containsExactly("name must not be null");
+        assertThat(results[2].getStatus()).isEqualTo(RecipeImportResultDto.Status.CREATED);
+        assertThat(recipeRepository.count()).isEqualTo(2);
+    }
+
+    private static RecipeDto recipe(int i) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setName("Recipe " + i);
+        recipeDto.setType(i % 2 == 0 ? "Dessert" : "Main Course");
+        recipeDto.setServingCapacity(1 + i % 8);
+        recipeDto.setInstructions("Mix the ingredients and cook for " + (i % 60) + " minutes.");
+        recipeDto.setIsVegetarian(i % 3 == 0);
+        for (int j = 0; j < 3; j++) {
+            IngredientDto ingredientDto = new IngredientDto();
+            ingredientDto.setName(INGREDIENTS[(i + j) % INGREDIENTS.length]);
+            recipeDto.getIngredientList().add(ingredientDto);
+        }
+        return recipeDto;
+    }
+}
@@ -0,0 +1,66 @@
+package nl.quintor.integration;
+
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+public class RecipeMetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    @Test
+    public void testPrometheusEndpoint_ExposesRecipeMetrics() throws Exception {
+        Recipe recipe = new Recipe();
+        recipe.setName("Test Recipe");
+        recipe.setType("Dessert");
+        recipe.setServingCapacity(4);
+        recipe.setInstructions("Mix and bake.");
+        recipe.setIsVegetarian(true);
+        recipe.setIngredientList(new HashSet<>());
+        recipeRepository.save(recipe);
+
+        mockMvc.perform(get("/recipe/search").param("isVegetarian", "true"))
+                .andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(metrics).contains("http_server_requests_seconds_count{", "uri=\"/recipe/search\"");
+        assertThat(metrics).contains("recipe_service_seconds_count{", "method=\"searchRecipeVersions\"");
+        assertThat(metrics).contains("spring_data_repository_invocations_seconds_count{", "method=\"findVersions\"");
+        assertThat(metrics).containsPattern("recipe_search_seconds_count\\{[^}]*isVegetarian=\"true\"[^}]*servingCapacity=\"false\"");
+        assertThat(metrics).contains("recipe_search_results_count{", "recipe_results_count{", "recipe_ingredients_count");
+    }
+}
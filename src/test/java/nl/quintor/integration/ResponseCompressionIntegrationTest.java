@@ -0,0 +1,150 @@
+package nl.quintor.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.service.RecipeService;
+import nl.quintor.web.rest.dto.RecipeDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the compression and content negotiation of the embedded server, which the MockMvc tests bypass.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class ResponseCompressionIntegrationTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+        List<Recipe> recipes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recipes.add(recipe("Recipe " + i, "Chop the onions and simmer them gently in butter until golden. ".repeat(3)));
+        }
+        recipeService.saveRecipes(recipes);
+    }
+
+    @Test
+    public void testLargeJsonResponseIsCompressed() throws Exception {
+        HttpResponse<byte[]> response = get("/recipe", MediaType.APPLICATION_JSON_VALUE, "gzip");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        RecipeDto[] recipeDtos = objectMapper.readValue(gunzip(response.body()), RecipeDto[].class);
+        assertThat(recipeDtos).hasSize(20);
+        assertThat(response.body().length).isLessThan(gunzip(response.body()).length / 3);
+    }
+
+    @Test
+    public void testLargeSmileResponseIsCompressed() throws Exception {
+        HttpResponse<byte[]> response = get("/recipe", SMILE, "gzip");
+
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(SMILE);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(new SmileMapper().readValue(gunzip(response.body()), RecipeDto[].class)).hasSize(20);
+    }
+
+    @Test
+    public void testUncompressedWithoutAcceptEncoding() throws Exception {
+        HttpResponse<byte[]> response = get("/recipe", MediaType.APPLICATION_JSON_VALUE, null);
+
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(objectMapper.readValue(response.body(), RecipeDto[].class)).hasSize(20);
+    }
+
+    @Test
+    public void testSmallResponseIsNotCompressed() throws Exception {
+        recipeRepository.deleteAll();
+        recipeService.saveRecipe(recipe("Toast", "Toast the bread."));
+
+        HttpResponse<byte[]> response = get("/recipe", MediaType.APPLICATION_JSON_VALUE, "gzip");
+
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(objectMapper.readValue(response.body(), RecipeDto[].class)).hasSize(1);
+    }
+
+    @Test
+    public void testCompressedResponseIsConditional() throws Exception {
+        HttpResponse<byte[]> response = get("/recipe", MediaType.APPLICATION_JSON_VALUE, "gzip");
+        String etag = response.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+
+        HttpResponse<byte[]> notModified = httpClient.send(HttpRequest.newBuilder(uri("/recipe"))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(notModified.statusCode()).isEqualTo(304);
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).header(HttpHeaders.ACCEPT, accept);
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Recipe recipe(String name, String instructions) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setType("Main Course");
+        recipe.setServingCapacity(4);
+        recipe.setInstructions(instructions);
+        recipe.setIsVegetarian(true);
+        recipe.setIngredientList(new HashSet<>());
+        return recipe;
+    }
+}
@@ -0,0 +1,150 @@
+package nl.quintor.integration;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.service.RecipeSearchCriteria;
+import nl.quintor.service.RecipeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the request path against pinning virtual threads to their carrier threads, which happens when a virtual
+ * thread blocks while holding a monitor and would make virtual threads scale no better than the platform pool.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class VirtualThreadPinningIntegrationTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * More tasks than database connections, so tasks block waiting for a connection as well as on JDBC calls.
+     */
+    private static final int CONCURRENCY = 40;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @BeforeEach
+    public void setUp() {
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    /**
+     * MySQL Connector/J holds monitors around socket I/O before 9.0, which pins every virtual thread running a query.
+     */
+    @Test
+    public void testMysqlDriverDoesNotSynchronizeIo() throws SQLException {
+        Driver driver = new com.mysql.cj.jdbc.Driver();
+
+        assertThat(driver.getMajorVersion()).isGreaterThanOrEqualTo(9);
+    }
+
+    /**
+     * Runs saves, searches and loads on virtual threads and fails on any pinning event outside the H2 test database.
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    public void testRecipeServiceDoesNotPinVirtualThreads() throws Exception {
+        recipeService.saveRecipe(recipe("Seed", "Salt", "Pepper"));
+
+        List<RecordedEvent> pinnedEvents;
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("pinning-test-");
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                String name = "Recipe " + i;
+                tasks.add(executor.submit(() -> {
+                    Recipe saved = recipeService.saveRecipe(recipe(name, "Salt", "Pepper"));
+                    recipeService.getRecipeViews(recipeService.searchRecipeVersions(
+                            new RecipeSearchCriteria(true, null, null, null, Set.of("Salt"), false, null, null, null)));
+                    recipeService.getRecipeViews(List.of(new RecipeVersion(saved.getId(), saved.getVersion())));
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            recording.stop();
+            Path file = Files.createTempFile("virtual-thread-pinning", ".jfr");
+            try {
+                recording.dump(file);
+                pinnedEvents = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        List<String> pinnedStacks = pinnedEvents.stream()
+                .filter(event -> event.getEventType().getName().equals(PINNED_EVENT))
+                .filter(event -> !hasFrameIn(event, "org.h2."))
+                .map(event -> String.valueOf(event.getStackTrace()))
+                .toList();
+        assertThat(pinnedStacks).isEmpty();
+    }
+
+    private static boolean hasFrameIn(RecordedEvent event, String packagePrefix) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().startsWith(packagePrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Recipe recipe(String name, String... ingredientNames) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setType("Main Course");
+        recipe.setServingCapacity(4);
+        recipe.setInstructions("Mix and bake.");
+        recipe.setIsVegetarian(true);
+        Set<Ingredient> ingredients = new HashSet<>();
+        for (String ingredientName : ingredientNames) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setName(ingredientName);
+            ingredients.add(ingredient);
+        }
+        recipe.setIngredientList(ingredients);
+        return recipe;
+    }
+}
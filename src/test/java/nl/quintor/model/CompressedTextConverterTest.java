@@ -0,0 +1,52 @@
+package nl.quintor.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompressedTextConverterTest {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    public void testRoundTrip_CompressesRepetitiveText() {
+        String text = "Chop the onions, fry the onions, add the tomatoes and simmer the sauce. ".repeat(10) + "Crème brûlée.";
+
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        assertThat(stored[0]).isEqualTo(CompressedTextConverter.DEFLATE);
+        assertThat(stored.length).isLessThan(text.getBytes(StandardCharsets.UTF_8).length / 4);
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(text);
+    }
+
+    @Test
+    public void testRoundTrip_StoresShortTextPlain() {
+        byte[] stored = converter.convertToDatabaseColumn("Mix.");
+
+        assertThat(stored).containsExactly(CompressedTextConverter.PLAIN, 'M', 'i', 'x', '.');
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo("Mix.");
+    }
+
+    @Test
+    public void testRoundTrip_EmptyAndNull() {
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(""))).isEmpty();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    public void testConvertToEntityAttribute_Corrupt() {
+        byte[] stored = converter.convertToDatabaseColumn("Boil the water, add the pasta and boil the pasta. ".repeat(5));
+
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(Arrays.copyOf(stored, stored.length / 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(new byte[]{7, 'x'}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
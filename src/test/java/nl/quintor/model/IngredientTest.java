@@ -19,6 +19,26 @@ public class IngredientTest {
         assertThat(ingredient.getName()).isEqualTo("Salt");
     }
 
+    @Test
+    public void testSetName_UpdatesNormalizedName() {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(" Crème  Fraîche ");
+
+        assertThat(ingredient.getName()).isEqualTo(" Crème  Fraîche ");
+        assertThat(ingredient.getNormalizedName()).isEqualTo("creme fraiche");
+    }
+
+    @Test
+    public void testNormalizeName() {
+        assertThat(Ingredient.normalizeName("Tomato")).isEqualTo("tomato");
+        assertThat(Ingredient.normalizeName("\tTOMATO\u00A0 ")).isEqualTo("tomato");
+        assertThat(Ingredient.normalizeName("Jalapeño")).isEqualTo("jalapeno");
+        assertThat(Ingredient.normalizeName("ﬁg")).isEqualTo("fig");
+        assertThat(Ingredient.normalizeName("Ｓａｌｔ")).isEqualTo("salt");
+        assertThat(Ingredient.normalizeName("olive   oil")).isEqualTo("olive oil");
+        assertThat(Ingredient.normalizeName(null)).isNull();
+    }
+
     @Test
     public void testIngredientWithRecipes() {
         Ingredient ingredient = new Ingredient();
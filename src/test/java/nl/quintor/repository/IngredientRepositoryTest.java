@@ -8,15 +8,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -42,18 +45,34 @@ public class IngredientRepositoryTest {
     }
 
     @Test
-    public void testFindByName() {
-        Optional<Ingredient> ingredient = repository.findByName("Salt");
+    public void testFindByNormalizedName() {
+        Optional<Ingredient> ingredient = repository.findByNormalizedName("salt");
         assertThat(ingredient.isPresent(), is(true));
         assertThat(ingredient.get().getName(), is("Salt"));
+        assertThat(ingredient.get().getNormalizedName(), is("salt"));
     }
 
     @Test
-    public void testFindByName_NotFound() {
-        Optional<Ingredient> ingredient = repository.findByName("Sugar");
+    public void testFindByNormalizedName_NotFound() {
+        Optional<Ingredient> ingredient = repository.findByNormalizedName("sugar");
         assertThat(ingredient.isPresent(), is(false));
     }
 
+    @Test
+    public void testFindByNormalizedNameIn() {
+        List<Ingredient> ingredients = repository.findByNormalizedNameIn(List.of("pepper", "sugar"));
+        assertThat(ingredients.size(), is(1));
+        assertThat(ingredients.get(0).getName(), is("Pepper"));
+    }
+
+    @Test
+    public void testSaveIngredient_DuplicateNormalizedName() {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(" SALT ");
+
+        assertThrows(DataIntegrityViolationException.class, () -> repository.saveAndFlush(ingredient));
+    }
+
     @Test
     public void testSaveIngredient() {
         Ingredient ingredient = new Ingredient();
@@ -1,18 +1,26 @@
 package nl.quintor.repository;
 
+import jakarta.persistence.EntityManager;
 import nl.quintor.config.TestApplicationContext;
 import nl.quintor.model.Ingredient;
 import nl.quintor.model.Recipe;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -20,6 +28,7 @@ import java.util.Set;
 import static nl.quintor.repository.RecipeSpecifications.*;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.springframework.data.jpa.domain.Specification.where;
 
@@ -37,6 +46,9 @@ public class RecipeRepositoryTest {
     @Autowired
     private IngredientRepository ingredientRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @BeforeEach
     public void beforeEach() {
         Ingredient ingredientOne = new Ingredient();
@@ -139,6 +151,32 @@ public class RecipeRepositoryTest {
         assertThat(size, is(2));
     }
 
+    @Test
+    public void testFindById_FetchesIngredientsInOneQuery() {
+        Statistics statistics = clearedStatistics();
+
+        Recipe recipe = repository.findById(1L).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(recipe.getIngredientList()), is(true));
+        assertThat(recipe.getIngredientList().size(), is(2));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    public void testFindAllBySpecification_FetchesIngredientsInOneQuery() {
+        saveRecipe("Recipe 4", "Salt");
+        Statistics statistics = clearedStatistics();
+
+        List<Recipe> recipes = repository.findAll(where(isVegetarian(true)).and(includeIngredients(Set.of("Salt"))));
+
+        assertThat(recipes.size(), is(3));
+        for (Recipe recipe : recipes) {
+            assertThat(Hibernate.isInitialized(recipe.getIngredientList()), is(true));
+            assertThat(recipe.getIngredientList().isEmpty(), is(false));
+        }
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
     @Test
     public void testFindAllWithIngredients() {
         List<Recipe> recipes = repository.findAllWithIngredients();
@@ -148,6 +186,128 @@ public class RecipeRepositoryTest {
         assertThat(recipes.get(0).getIngredientList().size(), is(2));
     }
 
+    @Test
+    public void testFindVersionsAfter() {
+        assertThat(repository.findVersionsAfter(0L, Limit.of(2)), is(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 0L))));
+        assertThat(repository.findVersionsAfter(2L, Limit.of(2)), is(List.of(new RecipeVersion(3L, 0L))));
+        assertThat(repository.findVersionsAfter(3L, Limit.of(2)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFindVersionById() {
+        assertThat(repository.findVersionById(1L).orElseThrow(), is(0L));
+        assertThat(repository.findVersionById(4L).isPresent(), is(false));
+    }
+
+    @Test
+    public void testFindVersions() {
+        assertThat(repository.findVersions(where(idIn(List.of(3L, 1L))).and(ingredientNameContains("salt"))),
+                is(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(3L, 0L))));
+    }
+
+    @Test
+    public void testFindAllWithIngredientsByIdIn() {
+        List<Recipe> recipes = repository.findAllWithIngredientsByIdIn(List.of(3L, 1L));
+        assertThat(recipes.size(), is(2));
+        assertThat(recipes.get(0).getId(), is(1L));
+        assertThat(recipes.get(1).getId(), is(3L));
+        assertThat(recipes.get(0).getIngredientList().size(), is(2));
+    }
+
+    @Test
+    public void testFindViewsByIdIn() {
+        saveRecipe("Recipe 4", "Salt");
+        entityManager.flush();
+        entityManager.clear();
+
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(4L, 3L, 1L, 9L));
+
+        assertThat(views, is(List.of(
+                new RecipeView(1L, 0L, "Recipe 1", "Main Course", 4, "Mix and cook.", false, List.of("Pepper", "Salt")),
+                new RecipeView(3L, 0L, "Recipe 3", "Appetizer", 6, "Mix and chill.", true, List.of("Pepper", "Salt")),
+                new RecipeView(4L, 0L, "Recipe 4", "Snack", 1, "Serve.", true, List.of("Salt")))));
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount(), is(0));
+    }
+
+    @Test
+    public void testFindViewsByIdIn_WithoutIngredients() {
+        Recipe recipe = repository.findById(2L).orElseThrow();
+        recipe.getIngredientList().clear();
+        repository.saveAndFlush(recipe);
+
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(2L));
+
+        assertThat(views.size(), is(1));
+        assertThat(views.get(0).ingredientNames(), is(List.of()));
+        assertThat(repository.findViewsByIdIn(List.of()), is(List.of()));
+    }
+
+    @Test
+    public void testFindViewsByIdIn_SelectedFields() {
+        Statistics statistics = clearedStatistics();
+
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(1L), EnumSet.of(RecipeField.NAME, RecipeField.IS_VEGETARIAN));
+
+        assertThat(views, is(List.of(new RecipeView(1L, 0L, "Recipe 1", null, null, null, false, List.of()))));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        assertThat(RecipeRepositoryCustomImpl.recipeColumnsQuery(EnumSet.of(RecipeField.NAME, RecipeField.IS_VEGETARIAN)),
+                is("SELECT r.id AS id, r.version AS version, r.name AS name, r.isVegetarian AS isVegetarian "
+                        + "FROM Recipe r WHERE r.id IN :ids ORDER BY r.id"));
+        assertThat(RecipeRepositoryCustomImpl.recipeColumnsQuery(EnumSet.of(RecipeField.INSTRUCTIONS)),
+                is("SELECT r.id AS id, r.version AS version, ri.text AS instructions "
+                        + "FROM Recipe r LEFT JOIN r.recipeInstructions ri WHERE r.id IN :ids ORDER BY r.id"));
+    }
+
+    @Test
+    public void testFindViewsByIdIn_WithoutInstructions() {
+        Recipe recipe = repository.findById(2L).orElseThrow();
+        recipe.setInstructions(null);
+        repository.saveAndFlush(recipe);
+        entityManager.clear();
+
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(2L));
+
+        assertThat(views.size(), is(1));
+        assertThat(views.get(0).instructions(), is(nullValue()));
+        assertThat(views.get(0).name(), is("Recipe 2"));
+    }
+
+    @Test
+    public void testFindViewsByIdIn_OnlyIngredients() {
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(1L), EnumSet.of(RecipeField.INGREDIENT_LIST));
+
+        assertThat(views, is(List.of(new RecipeView(1L, 0L, null, null, null, null, null, List.of("Pepper", "Salt")))));
+    }
+
+    @Test
+    public void testFindViewsByIdIn_IngredientsInNameOrder() {
+        Recipe recipe = repository.findById(2L).orElseThrow();
+        recipe.getIngredientList().clear();
+        for (String name : List.of("Égg", "apple", "Banana")) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setName(name);
+            recipe.getIngredientList().add(ingredientRepository.save(ingredient));
+        }
+        repository.saveAndFlush(recipe);
+
+        List<RecipeView> views = repository.findViewsByIdIn(List.of(2L), EnumSet.of(RecipeField.INGREDIENT_LIST));
+
+        assertThat(views.get(0).ingredientNames(), is(List.of("apple", "Banana", "Égg")));
+    }
+
+    @Test
+    public void testFindVersions_AllSearchPredicates() {
+        List<RecipeVersion> versions = repository.findVersions(Specification.allOf(
+                isVegetarian(true),
+                servingCapacityBetween(2, 6),
+                typeIn(Set.of("Dessert", "Appetizer")),
+                includeAllIngredients(Set.of("Salt", "Pepper")),
+                excludeIngredients(Set.of("Sugar")),
+                ingredientNameContains("pep")));
+
+        assertThat(versions, is(List.of(new RecipeVersion(2L, 0L), new RecipeVersion(3L, 0L))));
+    }
+
     @Test
     public void testSearchRecipes() {
         Set<String> includeIngredients = new HashSet<>();
@@ -157,7 +317,6 @@ public class RecipeRepositoryTest {
                 .and(servingCapacity(null))
                 .and(includeIngredients(includeIngredients))
                 .and(excludeIngredients(null))
-                .and(instructionsContain(null))
                 .and(ingredientNameContains(null)));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(3));
@@ -169,13 +328,12 @@ public class RecipeRepositoryTest {
         includeIngredients.add("Salt");
 
         Set<String> excludeIngredients = new HashSet<>();
-        excludeIngredients.add("Pepper");
+        excludeIngredients.add("Sugar");
 
         List<Recipe> recipes = repository.findAll(where(isVegetarian(true))
                 .and(servingCapacity(2))
                 .and(includeIngredients(includeIngredients))
                 .and(excludeIngredients(excludeIngredients))
-                .and(instructionsContain("bake"))
                 .and(ingredientNameContains("Salt")));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(1));
@@ -191,7 +349,6 @@ public class RecipeRepositoryTest {
                 .and(servingCapacity(null))
                 .and(includeIngredients(includeIngredients))
                 .and(excludeIngredients(null))
-                .and(instructionsContain(null))
                 .and(ingredientNameContains(null)));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(0));
@@ -203,7 +360,6 @@ public class RecipeRepositoryTest {
                 .and(servingCapacity(null))
                 .and(includeIngredients(null))
                 .and(excludeIngredients(null))
-                .and(instructionsContain(null))
                 .and(ingredientNameContains(null)));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(3));
@@ -215,7 +371,6 @@ public class RecipeRepositoryTest {
                 .and(servingCapacity(null))
                 .and(includeIngredients(null))
                 .and(excludeIngredients(null))
-                .and(instructionsContain(null))
                 .and(ingredientNameContains(null)));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(2));
@@ -227,7 +382,6 @@ public class RecipeRepositoryTest {
                 .and(servingCapacity(4))
                 .and(includeIngredients(null))
                 .and(excludeIngredients(null))
-                .and(instructionsContain(null))
                 .and(ingredientNameContains(null)));
         assertThat(recipes, is(notNullValue()));
         assertThat(recipes.size(), is(1));
@@ -235,27 +389,64 @@ public class RecipeRepositoryTest {
     }
 
     @Test
-    public void testSearchRecipes_WithOnlyInstructions() {
+    public void testSearchRecipes_WithOnlyIngredientName() {
         List<Recipe> recipes = repository.findAll(where(isVegetarian(null))
                 .and(servingCapacity(null))
                 .and(includeIngredients(null))
                 .and(excludeIngredients(null))
-                .and(instructionsContain("cook"))
-                .and(ingredientNameContains(null)));
+                .and(ingredientNameContains("Salt")));
         assertThat(recipes, is(notNullValue()));
+        assertThat(recipes.size(), is(3));
+    }
+
+    @Test
+    public void testSearchRecipes_IncludeIngredientsReturnsEachRecipeOnce() {
+        List<Recipe> recipes = repository.findAll(where(includeIngredients(Set.of("Salt", "Pepper")))
+                .and(ingredientNameContains("e")));
+        assertThat(recipes.size(), is(3));
+    }
+
+    @Test
+    public void testSearchRecipes_ExcludeIngredients() {
+        saveRecipe("Recipe 4", "Salt");
+
+        List<Recipe> recipes = repository.findAll(where(excludeIngredients(Set.of("Pepper"))));
         assertThat(recipes.size(), is(1));
-        assertThat(recipes.get(0).getInstructions().toLowerCase(), is("mix and cook."));
+        assertThat(recipes.get(0).getName(), is("Recipe 4"));
     }
 
     @Test
-    public void testSearchRecipes_WithOnlyIngredientName() {
-        List<Recipe> recipes = repository.findAll(where(isVegetarian(null))
-                .and(servingCapacity(null))
-                .and(includeIngredients(null))
-                .and(excludeIngredients(null))
-                .and(instructionsContain(null))
-                .and(ingredientNameContains("Salt")));
-        assertThat(recipes, is(notNullValue()));
+    public void testSearchRecipes_IncludeAllIngredients() {
+        saveRecipe("Recipe 4", "Salt");
+
+        List<Recipe> recipes = repository.findAll(where(includeAllIngredients(Set.of("Salt", "Pepper"))));
         assertThat(recipes.size(), is(3));
+        assertThat(recipes.stream().noneMatch(recipe -> recipe.getName().equals("Recipe 4")), is(true));
+
+        recipes = repository.findAll(where(includeAllIngredients(Set.of("Salt", "Flour"))));
+        assertThat(recipes.size(), is(0));
+    }
+
+    /**
+     * Writes pending changes and empties the persistence context, so the next reads hit the database,
+     * and returns the statistics reset to zero.
+     */
+    private Statistics clearedStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private void saveRecipe(String name, String ingredientName) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setType("Snack");
+        recipe.setServingCapacity(1);
+        recipe.setInstructions("Serve.");
+        recipe.setIsVegetarian(true);
+        recipe.setIngredientList(new HashSet<>(ingredientRepository.findByNormalizedNameIn(Set.of(Ingredient.normalizeName(ingredientName)))));
+        repository.save(recipe);
     }
 }
@@ -12,6 +12,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 class RecipeSpecificationsTest {
@@ -20,13 +21,25 @@ class RecipeSpecificationsTest {
     private CriteriaQuery<?> query;
     private CriteriaBuilder cb;
     private SetJoin<Recipe, Ingredient> ingredientsJoin;
+    private Subquery<Long> subquery;
+    private Path<String> ingredientName;
 
     @BeforeEach
     void setUp() {
-        root = mock(Root.class);
+        root = mock();
         query = mock(CriteriaQuery.class);
         cb = mock(CriteriaBuilder.class);
-        ingredientsJoin = mock(SetJoin.class);
+        ingredientsJoin = mock();
+        subquery = mock(RETURNS_SELF);
+        ingredientName = mock();
+        doReturn(subquery).when(query).subquery(Long.class);
+        doReturn(ingredientName).when(ingredientsJoin).get("normalizedName");
+    }
+
+    private void givenCorrelatedIngredients() {
+        Root<Recipe> correlatedRoot = mock();
+        doReturn(correlatedRoot).when(subquery).correlate(root);
+        doReturn(ingredientsJoin).when(correlatedRoot).joinSet("ingredientList");
     }
 
     @Test
@@ -65,47 +78,88 @@ class RecipeSpecificationsTest {
         assertNotNull(predicate);
     }
 
+    @Test
+    void testServingCapacityBetween_HappyFlow() {
+        Path<Integer> servingCapacity = mock();
+        doReturn(servingCapacity).when(root).get("servingCapacity");
+        Predicate between = mock(Predicate.class);
+        Predicate atLeast = mock(Predicate.class);
+        when(cb.between(servingCapacity, 4, 8)).thenReturn(between);
+        when(cb.greaterThanOrEqualTo(servingCapacity, 4)).thenReturn(atLeast);
+
+        assertSame(between, RecipeSpecifications.servingCapacityBetween(4, 8).toPredicate(root, query, cb));
+        assertSame(atLeast, RecipeSpecifications.servingCapacityBetween(4, null).toPredicate(root, query, cb));
+    }
+
+    @Test
+    void testServingCapacityBetween_Null() {
+        Specification<Recipe> spec = RecipeSpecifications.servingCapacityBetween(null, null);
+        when(cb.conjunction()).thenReturn(mock(Predicate.class));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        assertNotNull(predicate);
+    }
+
+    @Test
+    void testTypeIn_HappyFlow() {
+        Path<Object> type = mock();
+        doReturn(type).when(root).get("type");
+        Predicate typeIn = mock(Predicate.class);
+        when(type.in(Set.of("Dessert", "Soup"))).thenReturn(typeIn);
+
+        Predicate predicate = RecipeSpecifications.typeIn(Set.of("Dessert", "Soup")).toPredicate(root, query, cb);
+        assertSame(typeIn, predicate);
+    }
+
     @Test
     void testIncludeIngredients_HappyFlow() {
         Set<String> ingredients = new HashSet<>();
         ingredients.add("Salt");
 
         Specification<Recipe> spec = RecipeSpecifications.includeIngredients(ingredients);
-        doReturn(ingredientsJoin).when(root).joinSet("ingredientList", JoinType.LEFT);
-        when(ingredientsJoin.get("name")).thenReturn(mock(Path.class));
-        when(ingredientsJoin.get("name").in(ingredients)).thenReturn(mock(Predicate.class));
+        givenCorrelatedIngredients();
+        Predicate nameIn = mock(Predicate.class);
+        when(ingredientName.in(Set.of("salt"))).thenReturn(nameIn);
+        when(cb.exists(subquery)).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
         assertNotNull(predicate);
+        verify(subquery).where(nameIn);
     }
 
     @Test
-    void testIncludeIngredients_Null() {
-        Specification<Recipe> spec = RecipeSpecifications.includeIngredients(null);
-        when(cb.conjunction()).thenReturn(mock(Predicate.class));
+    void testIncludeAllIngredients_HappyFlow() {
+        Set<String> ingredients = Set.of("Salt", "Pepper");
+
+        Specification<Recipe> spec = RecipeSpecifications.includeAllIngredients(ingredients);
+        Root<Recipe> subqueryRoot = mock();
+        doReturn(subqueryRoot).when(subquery).from(Recipe.class);
+        doReturn(ingredientsJoin).when(subqueryRoot).joinSet("ingredientList");
+        Expression<Long> distinctNames = mock();
+        when(cb.countDistinct(ingredientName)).thenReturn(distinctNames);
+        Predicate allNames = mock(Predicate.class);
+        when(cb.equal(distinctNames, 2L)).thenReturn(allNames);
+        Path<Object> id = mock();
+        doReturn(id).when(root).get("id");
+        when(id.in(subquery)).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
         assertNotNull(predicate);
+        verify(subquery).having(allNames);
     }
 
     @Test
-    void testExcludeIngredients_HappyFlow() {
-        Set<String> ingredients = new HashSet<>();
-        ingredients.add("Sugar");
-
-        Specification<Recipe> spec = RecipeSpecifications.excludeIngredients(ingredients);
-        doReturn(ingredientsJoin).when(root).joinSet("ingredientList", JoinType.LEFT);
-        when(ingredientsJoin.get("name")).thenReturn(mock(Path.class));
-        when(cb.not(ingredientsJoin.get("name").in(ingredients))).thenReturn(mock(Predicate.class));
-
+    void testIncludeAllIngredients_Null() {
+        Specification<Recipe> spec = RecipeSpecifications.includeAllIngredients(null);
+        when(cb.conjunction()).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
         assertNotNull(predicate);
     }
 
     @Test
-    void testExcludeIngredients_Null() {
-        Specification<Recipe> spec = RecipeSpecifications.excludeIngredients(null);
+    void testIncludeIngredients_Null() {
+        Specification<Recipe> spec = RecipeSpecifications.includeIngredients(null);
         when(cb.conjunction()).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
@@ -113,17 +167,23 @@ class RecipeSpecificationsTest {
     }
 
     @Test
-    void testInstructionsContain_HappyFlow() {
-        Specification<Recipe> spec = RecipeSpecifications.instructionsContain("Mix");
-        when(cb.like(cb.lower(root.get("instructions")), "%mix%")).thenReturn(mock(Predicate.class));
+    void testExcludeIngredients_HappyFlow() {
+        Set<String> ingredients = new HashSet<>();
+        ingredients.add("Sugar");
+
+        Specification<Recipe> spec = RecipeSpecifications.excludeIngredients(ingredients);
+        givenCorrelatedIngredients();
+        Predicate exists = mock(Predicate.class);
+        when(cb.exists(subquery)).thenReturn(exists);
+        when(cb.not(exists)).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
         assertNotNull(predicate);
     }
 
     @Test
-    void testInstructionsContain_Null() {
-        Specification<Recipe> spec = RecipeSpecifications.instructionsContain(null);
+    void testExcludeIngredients_Null() {
+        Specification<Recipe> spec = RecipeSpecifications.excludeIngredients(null);
         when(cb.conjunction()).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
@@ -132,12 +192,16 @@ class RecipeSpecificationsTest {
 
     @Test
     void testIngredientNameContains_HappyFlow() {
-        Specification<Recipe> spec = RecipeSpecifications.ingredientNameContains("Salt");
-        doReturn(ingredientsJoin).when(root).joinSet("ingredientList", JoinType.LEFT);
-        when(cb.like(cb.lower(ingredientsJoin.get("name")), "%salt%")).thenReturn(mock(Predicate.class));
+        Specification<Recipe> spec = RecipeSpecifications.ingredientNameContains(" Salt");
+        givenCorrelatedIngredients();
+        Predicate nameLike = mock(Predicate.class);
+        when(cb.like(ingredientName, "%salt%")).thenReturn(nameLike);
+        when(cb.exists(subquery)).thenReturn(mock(Predicate.class));
 
         Predicate predicate = spec.toPredicate(root, query, cb);
         assertNotNull(predicate);
+        verify(subquery).where(nameLike);
+        verify(cb, never()).lower(any());
     }
 
     @Test
@@ -0,0 +1,42 @@
+package nl.quintor.service;
+
+import nl.quintor.event.IngredientRemovedEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IngredientIdCacheTest {
+
+    @Test
+    public void testPutAndGet() {
+        IngredientIdCache cache = new IngredientIdCache(10);
+        cache.put("Salt", 1L);
+
+        assertThat(cache.get("Salt")).isEqualTo(1L);
+        assertThat(cache.get("Pepper")).isNull();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        IngredientIdCache cache = new IngredientIdCache(2);
+        cache.put("Salt", 1L);
+        cache.put("Pepper", 2L);
+        cache.get("Salt");
+        cache.put("Sugar", 3L);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("Salt")).isEqualTo(1L);
+        assertThat(cache.get("Pepper")).isNull();
+        assertThat(cache.get("Sugar")).isEqualTo(3L);
+    }
+
+    @Test
+    public void testIngredientRemoved() {
+        IngredientIdCache cache = new IngredientIdCache(10);
+        cache.put("salt", 1L);
+
+        cache.onIngredientRemoved(new IngredientRemovedEvent(1L, "Salt"));
+
+        assertThat(cache.get("salt")).isNull();
+    }
+}
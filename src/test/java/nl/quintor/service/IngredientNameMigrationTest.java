@@ -0,0 +1,102 @@
+package nl.quintor.service;
+
+import jakarta.persistence.EntityManager;
+import nl.quintor.config.TestApplicationContext;
+import nl.quintor.model.Ingredient;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestApplicationContext.class)
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@ActiveProfiles("test")
+public class IngredientNameMigrationTest {
+
+    @Autowired
+    private IngredientNameMigration migration;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Inserts rows as they were before the normalized name existed: the same ingredient under several spellings.
+     */
+    @BeforeEach
+    public void beforeEach() {
+        execute("INSERT INTO INGREDIENT (id, name) VALUES (100, 'Tomato'), (101, 'tomato '), (102, 'TOMATO'), (103, 'Basil')");
+        execute("INSERT INTO RECIPE (id, version, name, type, serving_capacity, is_vegetarian) VALUES "
+                + "(100, 0, 'Salad', 'Starter', 2, true), (101, 0, 'Soup', 'Starter', 4, true)");
+        execute("INSERT INTO recipe_ingredient_list (recipe_id, ingredient_id) VALUES (100, 100), (100, 101), (100, 103), (101, 102)");
+    }
+
+    @Test
+    public void testMigrate_NormalizesNamesAndMergesDuplicates() {
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Ingredient> ingredients = ingredientRepository.findAll();
+        assertThat(ingredients).extracting(Ingredient::getId).containsExactlyInAnyOrder(100L, 103L);
+        assertThat(ingredientRepository.findByNormalizedName("tomato").orElseThrow().getName()).isEqualTo("Tomato");
+        assertThat(ingredientRepository.findByNormalizedName("basil")).isPresent();
+        assertThat(ingredientRepository.findByNormalizedNameIsNull()).isEmpty();
+
+        Recipe salad = recipeRepository.findById(100L).orElseThrow();
+        assertThat(salad.getIngredientList()).extracting(Ingredient::getId).containsExactlyInAnyOrder(100L, 103L);
+        Recipe soup = recipeRepository.findById(101L).orElseThrow();
+        assertThat(soup.getIngredientList()).extracting(Ingredient::getId).containsExactly(100L);
+    }
+
+    @Test
+    public void testMigrate_MergesIntoAlreadyMigratedIngredient() {
+        execute("UPDATE INGREDIENT SET name = 'Basil', normalized_name = 'basil' WHERE id = 103");
+        execute("INSERT INTO INGREDIENT (id, name) VALUES (104, 'basil')");
+        execute("INSERT INTO recipe_ingredient_list (recipe_id, ingredient_id) VALUES (101, 104)");
+
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(ingredientRepository.findById(104L)).isEmpty();
+        Recipe soup = recipeRepository.findById(101L).orElseThrow();
+        assertThat(soup.getIngredientList()).extracting(Ingredient::getId).containsExactlyInAnyOrder(100L, 103L);
+    }
+
+    @Test
+    public void testMigrate_NothingToDo() {
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+        long count = ingredientRepository.count();
+
+        migration.migrate();
+
+        assertThat(ingredientRepository.count()).isEqualTo(count);
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+}
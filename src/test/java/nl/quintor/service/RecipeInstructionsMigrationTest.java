@@ -0,0 +1,154 @@
+package nl.quintor.service;
+
+import jakarta.persistence.EntityManager;
+import nl.quintor.config.TestApplicationContext;
+import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestApplicationContext.class)
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@ActiveProfiles("test")
+public class RecipeInstructionsMigrationTest {
+
+    @Autowired
+    private RecipeInstructionsMigration migration;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void testMigrate_MovesInstructionsAndDropsLegacyColumn() throws SQLException {
+        givenLegacyRecipes();
+
+        new RecipeInstructionsMigration(entityManager, dataSource, true).migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        Recipe salad = recipeRepository.findById(100L).orElseThrow();
+        assertThat(salad.getInstructions()).isEqualTo("Mix.");
+        assertThat(salad.getVersion()).isEqualTo(3L);
+        Recipe soup = recipeRepository.findById(101L).orElseThrow();
+        assertThat(soup.getInstructions()).isEqualTo("Boil the water, add the vegetables and boil the vegetables.");
+        assertThat(legacyColumnCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testMigrate_KeepsLegacyColumnUnlessAsked() throws SQLException {
+        givenLegacyRecipes();
+
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(recipeRepository.findById(100L).orElseThrow().getInstructions()).isEqualTo("Mix.");
+        assertThat(legacyColumnCount()).isEqualTo(1L);
+        Recipe saved = recipeService.saveRecipe(recipe("Stew", "Simmer for an hour."));
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(recipeRepository.findById(saved.getId()).orElseThrow().getInstructions())
+                .isEqualTo("Simmer for an hour.");
+    }
+
+    @Test
+    public void testSaveRecipe_BeforeMigration() throws SQLException {
+        givenLegacyRecipes();
+
+        Recipe saved = recipeService.saveRecipe(recipe("Stew", "Simmer for an hour."));
+        entityManager.flush();
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(recipeRepository.findById(saved.getId()).orElseThrow().getInstructions())
+                .isEqualTo("Simmer for an hour.");
+        assertThat(recipeRepository.findById(101L).orElseThrow().getInstructions())
+                .isEqualTo("Boil the water, add the vegetables and boil the vegetables.");
+    }
+
+    @Test
+    public void testMigrate_MigratesEveryPage() throws SQLException {
+        givenLegacyRecipes();
+        execute("INSERT INTO RECIPE (id, version, name, type, serving_capacity, instructions, is_vegetarian) "
+                + "SELECT X, 0, 'Recipe ' || X, 'Starter', 2, 'Step ' || X || '.', true FROM SYSTEM_RANGE(1000, "
+                + (1000 + RecipeInstructionsMigration.PAGE_SIZE) + ")");
+
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(recipeRepository.findById(1000L).orElseThrow().getInstructions()).isEqualTo("Step 1000.");
+        assertThat(recipeRepository.findById(1000L + RecipeInstructionsMigration.PAGE_SIZE).orElseThrow().getInstructions())
+                .isEqualTo("Step " + (1000 + RecipeInstructionsMigration.PAGE_SIZE) + ".");
+        assertThat(entityManager.createNativeQuery("SELECT COUNT(*) FROM RECIPE WHERE instructions_id IS NULL")
+                .getSingleResult()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testMigrate_NothingToDo() throws SQLException {
+        givenLegacyRecipes();
+        migration.migrate();
+        entityManager.flush();
+        entityManager.clear();
+
+        migration.migrate();
+
+        assertThat(recipeRepository.findById(100L).orElseThrow().getInstructions()).isEqualTo("Mix.");
+    }
+
+    /**
+     * Recreates the legacy column as it was created, inserts rows as they were before the instructions had their own
+     * table and makes the column nullable, as done when the migration starts.
+     */
+    private void givenLegacyRecipes() throws SQLException {
+        execute("ALTER TABLE RECIPE ADD COLUMN instructions VARCHAR(255) NOT NULL");
+        execute("INSERT INTO RECIPE (id, version, name, type, serving_capacity, instructions, is_vegetarian) VALUES "
+                + "(100, 3, 'Salad', 'Starter', 2, 'Mix.', true), "
+                + "(101, 0, 'Soup', 'Starter', 4, 'Boil the water, add the vegetables and boil the vegetables.', true)");
+        migration.allowLegacyColumnNull();
+    }
+
+    private Object legacyColumnCount() {
+        return entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'RECIPE' AND COLUMN_NAME = 'INSTRUCTIONS'")
+                .getSingleResult();
+    }
+
+    private static Recipe recipe(String name, String instructions) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setType("Main");
+        recipe.setServingCapacity(4);
+        recipe.setInstructions(instructions);
+        recipe.setIsVegetarian(true);
+        return recipe;
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+}
@@ -0,0 +1,135 @@
+package nl.quintor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.quintor.cache.LruCache;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.index.InstructionTextIndex;
+import nl.quintor.index.RecipeSearchIndex;
+import nl.quintor.index.RecipeSnapshot;
+import nl.quintor.repository.RecipeVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.Order;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipeSearchCacheTest {
+
+    private static final List<RecipeVersion> RESULT = List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 3L));
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private RecipeSearchCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new RecipeSearchCache(2, 2);
+    }
+
+    @Test
+    public void testGet_LoadsOnceAndCaches() {
+        List<RecipeVersion> first = cache.get(criteria(true), loader());
+        List<RecipeVersion> second = cache.get(criteria(true), loader());
+
+        assertThat(second).isSameAs(first).isEqualTo(RESULT);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(1, 1, 0, 1));
+        assertThat(cache.stats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testGet_EvictsLeastRecentlyUsed() {
+        cache.get(criteria(true), loader());
+        cache.get(criteria(false), loader());
+        cache.get(criteria(true), loader());
+        cache.get(criteria(null), loader());
+
+        cache.get(criteria(true), loader());
+        assertThat(loads.get()).isEqualTo(3);
+        cache.get(criteria(false), loader());
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGet_LargeResultsAreNotCached() {
+        Function<RecipeSearchCriteria, List<RecipeVersion>> largeResult = criteria -> {
+            loads.incrementAndGet();
+            return List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 0L), new RecipeVersion(3L, 0L));
+        };
+
+        cache.get(criteria(true), largeResult);
+        cache.get(criteria(true), largeResult);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    public void testOnRecipeChanged_DropsAllResults() {
+        cache.get(criteria(true), loader());
+        cache.get(criteria(false), loader());
+
+        cache.onRecipeChanged(new RecipeChangedEvent(7L, null));
+
+        assertThat(cache.stats().size()).isZero();
+        cache.get(criteria(true), loader());
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGet_SearchFromOlderEpochIsNotCached() {
+        cache.get(criteria(true), criteria -> {
+            cache.invalidateAll();
+            return RESULT;
+        });
+
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    public void testBindTo_PublishesCacheMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(criteria(true), loader());
+        cache.get(criteria(true), loader());
+
+        assertThat(registry.get("cache.gets").tag("cache", RecipeSearchCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.evictions").functionCounter().count()).isZero();
+        assertThat(registry.get("cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOnRecipeChanged_RunsAfterTheIndexesAreUpdated() {
+        int cacheOrder = listenerOrder(RecipeSearchCache.class);
+
+        assertThat(cacheOrder).isEqualTo(RecipeChangedEvent.INVALIDATE_CACHES);
+        assertThat(List.of(RecipeSearchIndex.class, RecipeSnapshot.class, InstructionTextIndex.class))
+                .allSatisfy(index -> assertThat(listenerOrder(index)).isLessThan(cacheOrder));
+    }
+
+    private static int listenerOrder(Class<?> listener) {
+        try {
+            return listener.getMethod("onRecipeChanged", RecipeChangedEvent.class).getAnnotation(Order.class).value();
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static RecipeSearchCriteria criteria(Boolean isVegetarian) {
+        return new RecipeSearchCriteria(isVegetarian, null, null, null, null, false, null, null, null);
+    }
+
+    private Function<RecipeSearchCriteria, List<RecipeVersion>> loader() {
+        return criteria -> {
+            loads.incrementAndGet();
+            return RESULT;
+        };
+    }
+}
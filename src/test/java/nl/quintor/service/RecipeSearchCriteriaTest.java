@@ -0,0 +1,66 @@
+package nl.quintor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipeSearchCriteriaTest {
+
+    @Test
+    public void testEquivalentCriteriaAreEqual() {
+        RecipeSearchCriteria first = new RecipeSearchCriteria(true, 4, 4, null, new LinkedHashSet<>(List.of("Salt", "Pepper")),
+                false, null, "  Bake Until Golden ", "TOMATO");
+        RecipeSearchCriteria second = new RecipeSearchCriteria(true, 4, 4, null, new LinkedHashSet<>(List.of("Pepper", "Salt")),
+                false, Set.of(), "bake until golden", "tomato");
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first.hashCode()).isEqualTo(second.hashCode());
+        assertThat(first.includeIngredients()).containsExactly("pepper", "salt");
+        assertThat(first.instructions()).isEqualTo("bake until golden");
+        assertThat(first.ingredientName()).isEqualTo("tomato");
+    }
+
+    @Test
+    public void testIngredientNamesAreNormalized() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, null, Set.of("Crème Fraîche", "creme fraiche "),
+                false, Set.of("NUTS"), null, " Crème ");
+
+        assertThat(criteria.includeIngredients()).containsExactly("creme fraiche");
+        assertThat(criteria.excludeIngredients()).containsExactly("nuts");
+        assertThat(criteria.ingredientName()).isEqualTo("creme");
+    }
+
+    @Test
+    public void testEmptyCriteriaAreIgnored() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, null, Set.of(), true, null, " ", "");
+
+        assertThat(criteria).isEqualTo(new RecipeSearchCriteria(null, null, null, null, null, false, null, null, null));
+        assertThat(criteria.includeAllIngredients()).isFalse();
+        assertThat(criteria.excludeIngredients()).isEmpty();
+        assertThat(criteria.instructions()).isNull();
+        assertThat(criteria.ingredientName()).isNull();
+        assertThat(criteria.hasStructuredCriteria()).isFalse();
+    }
+
+    @Test
+    public void testTypesAreTrimmedAndSorted() {
+        RecipeSearchCriteria criteria = new RecipeSearchCriteria(null, null, null, new LinkedHashSet<>(List.of(" Soup", "Dessert", " ")),
+                null, false, null, null, null);
+
+        assertThat(criteria.types()).containsExactly("Dessert", "Soup");
+        assertThat(criteria).isEqualTo(new RecipeSearchCriteria(null, null, null, Set.of("Soup", "Dessert"), null, false, null, null, null));
+    }
+
+    @Test
+    public void testHasStructuredCriteria() {
+        assertThat(new RecipeSearchCriteria(false, null, null, null, null, false, null, null, null).hasStructuredCriteria()).isTrue();
+        assertThat(new RecipeSearchCriteria(null, 4, null, null, null, false, null, null, null).hasStructuredCriteria()).isTrue();
+        assertThat(new RecipeSearchCriteria(null, null, null, Set.of("Soup"), null, false, null, null, null).hasStructuredCriteria()).isTrue();
+        assertThat(new RecipeSearchCriteria(null, null, null, null, null, false, Set.of("Nuts"), null, null).hasStructuredCriteria()).isTrue();
+        assertThat(new RecipeSearchCriteria(null, null, null, null, null, false, null, "bake", "salt").hasStructuredCriteria()).isFalse();
+    }
+}
@@ -1,15 +1,30 @@
 package nl.quintor.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import nl.quintor.index.IngredientNameIndex;
+import nl.quintor.index.InstructionTextIndex;
+import nl.quintor.index.RecipeFacets;
+import nl.quintor.index.RecipeSearchIndex;
+import nl.quintor.index.RecipeSnapshot;
 import nl.quintor.model.Ingredient;
 import nl.quintor.model.Recipe;
 import nl.quintor.repository.IngredientRepository;
+import nl.quintor.repository.RecipeField;
 import nl.quintor.repository.RecipeRepository;
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.repository.RecipeView;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.jpa.domain.Specification;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Limit;
 
 import java.util.*;
 
@@ -27,9 +42,42 @@ public class RecipeServiceTest {
     @Mock
     private IngredientRepository ingredientRepositoryMock;
 
+    @Mock
+    private RecipeSearchIndex recipeSearchIndexMock;
+
+    @Mock
+    private InstructionTextIndex instructionTextIndexMock;
+
+    @Mock
+    private IngredientNameIndex ingredientNameIndexMock;
+
+    @Mock
+    private RecipeSnapshot recipeSnapshotMock;
+
+    @Mock
+    private EntityManager entityManagerMock;
+
+    @Spy
+    private IngredientIdCache ingredientIdCache = new IngredientIdCache(100);
+
+    @Spy
+    private RecipeSearchCache recipeSearchCache = new RecipeSearchCache(100, 1000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RecipeMetrics recipeMetrics = new RecipeMetrics(meterRegistry);
+
     @InjectMocks
     private RecipeService recipeService;
 
+    @BeforeEach
+    public void setUp() {
+        lenient().when(recipeSearchIndexMock.isLoaded()).thenReturn(true);
+        lenient().when(instructionTextIndexMock.isLoaded()).thenReturn(true);
+        lenient().when(ingredientNameIndexMock.isLoaded()).thenReturn(true);
+    }
+
     @Test
     public void testSaveRecipe_WithExistingIngredients() {
         Recipe recipe = new Recipe();
@@ -39,16 +87,19 @@ public class RecipeServiceTest {
         recipe.setIngredientList(Collections.singleton(ingredient));
 
         Ingredient existingIngredient = new Ingredient();
+        existingIngredient.setId(3L);
         existingIngredient.setName("Salt");
 
-        when(ingredientRepositoryMock.findByName("Salt")).thenReturn(Optional.of(existingIngredient));
+        when(ingredientRepositoryMock.findByNormalizedNameIn(Set.of("salt"))).thenReturn(List.of(existingIngredient));
         when(recipeRepositoryMock.save(recipe)).thenReturn(recipe);
 
         Recipe savedRecipe = recipeService.saveRecipe(recipe);
 
         assertThat(savedRecipe).isNotNull();
         assertThat(savedRecipe.getIngredientList()).contains(existingIngredient);
-        verify(ingredientRepositoryMock).findByName("Salt");
+        assertThat(ingredientIdCache.get("salt")).isEqualTo(3L);
+        verify(ingredientRepositoryMock).findByNormalizedNameIn(Set.of("salt"));
+        verify(ingredientRepositoryMock, never()).saveAll(any());
         verify(recipeRepositoryMock).save(recipe);
     }
 
@@ -60,27 +111,211 @@ public class RecipeServiceTest {
         ingredient.setName("Salt");
         recipe.setIngredientList(Collections.singleton(ingredient));
 
-        when(ingredientRepositoryMock.findByName("Salt")).thenReturn(Optional.empty());
+        when(ingredientRepositoryMock.findByNormalizedNameIn(Set.of("salt"))).thenReturn(List.of());
+        when(ingredientRepositoryMock.saveAll(any())).thenAnswer(invocation -> new ArrayList<Ingredient>(invocation.getArgument(0)));
         when(recipeRepositoryMock.save(recipe)).thenReturn(recipe);
 
         Recipe savedRecipe = recipeService.saveRecipe(recipe);
 
         assertThat(savedRecipe).isNotNull();
         assertThat(savedRecipe.getIngredientList()).contains(ingredient);
-        verify(ingredientRepositoryMock).findByName("Salt");
+        verify(ingredientRepositoryMock).findByNormalizedNameIn(Set.of("salt"));
+        verify(ingredientRepositoryMock).saveAll(List.of(ingredient));
         verify(recipeRepositoryMock).save(recipe);
     }
 
     @Test
-    public void testGetAllRecipes() {
-        List<Recipe> expectedRecipes = new ArrayList<>();
-        expectedRecipes.add(new Recipe());
-        when(recipeRepositoryMock.findAllWithIngredients()).thenReturn(expectedRecipes);
+    public void testSaveRecipe_WithCachedIngredients() {
+        Recipe recipe = new Recipe();
+        recipe.setName("Test Recipe");
+        Ingredient salt = new Ingredient();
+        salt.setName("Salt");
+        Ingredient pepper = new Ingredient();
+        pepper.setName("Pepper");
+        recipe.setIngredientList(new HashSet<>(List.of(salt, pepper)));
+
+        Ingredient cachedSalt = new Ingredient();
+        cachedSalt.setId(3L);
+        cachedSalt.setName("Salt");
+        ingredientIdCache.put("salt", 3L);
+
+        Ingredient existingPepper = new Ingredient();
+        existingPepper.setId(4L);
+        existingPepper.setName("Pepper");
+
+        when(ingredientRepositoryMock.getReferenceById(3L)).thenReturn(cachedSalt);
+        when(ingredientRepositoryMock.findByNormalizedNameIn(Set.of("pepper"))).thenReturn(List.of(existingPepper));
+        when(recipeRepositoryMock.save(recipe)).thenReturn(recipe);
+
+        Recipe savedRecipe = recipeService.saveRecipe(recipe);
+
+        assertThat(savedRecipe.getIngredientList()).containsExactlyInAnyOrder(cachedSalt, existingPepper);
+        verify(ingredientRepositoryMock).findByNormalizedNameIn(Set.of("pepper"));
+        verify(ingredientRepositoryMock, never()).saveAll(any());
+    }
+
+    @Test
+    public void testSaveRecipe_MergesNamesDifferingInCaseAndAccents() {
+        Recipe recipe = new Recipe();
+        recipe.setName("Test Recipe");
+        Ingredient creme = new Ingredient();
+        creme.setName("Crème Fraîche");
+        Ingredient otherCreme = new Ingredient();
+        otherCreme.setName(" creme  fraiche");
+        recipe.setIngredientList(new HashSet<>(List.of(creme, otherCreme)));
+
+        Ingredient existing = new Ingredient();
+        existing.setId(5L);
+        existing.setName("Creme fraiche");
+
+        when(ingredientRepositoryMock.findByNormalizedNameIn(Set.of("creme fraiche"))).thenReturn(List.of(existing));
+        when(recipeRepositoryMock.save(recipe)).thenReturn(recipe);
+
+        Recipe savedRecipe = recipeService.saveRecipe(recipe);
+
+        assertThat(savedRecipe.getIngredientList()).containsExactly(existing);
+        assertThat(ingredientIdCache.get("creme fraiche")).isEqualTo(5L);
+        verify(ingredientRepositoryMock, never()).saveAll(any());
+    }
+
+    @Test
+    public void testSaveRecipes() {
+        Ingredient salt = new Ingredient();
+        salt.setName("Salt");
+        Recipe first = new Recipe();
+        first.setName("First Recipe");
+        first.setIngredientList(Collections.singleton(salt));
+
+        Ingredient otherSalt = new Ingredient();
+        otherSalt.setName("Salt");
+        Ingredient sugar = new Ingredient();
+        sugar.setName("Sugar");
+        Recipe second = new Recipe();
+        second.setName("Second Recipe");
+        second.setIngredientList(new HashSet<>(List.of(otherSalt, sugar)));
+
+        Ingredient existingSalt = new Ingredient();
+        existingSalt.setId(3L);
+        existingSalt.setName("Salt");
+
+        List<Recipe> recipes = List.of(first, second);
+        when(ingredientRepositoryMock.findByNormalizedNameIn(Set.of("salt", "sugar"))).thenReturn(List.of(existingSalt));
+        when(ingredientRepositoryMock.saveAll(any())).thenAnswer(invocation -> new ArrayList<Ingredient>(invocation.getArgument(0)));
+        when(recipeRepositoryMock.saveAll(recipes)).thenReturn(recipes);
+
+        List<Recipe> savedRecipes = recipeService.saveRecipes(recipes);
+
+        assertThat(savedRecipes).isEqualTo(recipes);
+        assertThat(first.getIngredientList()).containsExactly(existingSalt);
+        assertThat(second.getIngredientList()).containsExactlyInAnyOrder(existingSalt, sugar);
+        verify(ingredientRepositoryMock, times(1)).findByNormalizedNameIn(any());
+        verify(ingredientRepositoryMock).saveAll(List.of(sugar));
+        verify(entityManagerMock).flush();
+        verify(entityManagerMock).clear();
+    }
+
+    @Test
+    public void testGetRecipeVersions() {
+        List<RecipeVersion> expectedVersions = List.of(new RecipeVersion(1L, 0L));
+        when(recipeRepositoryMock.findVersionsAfter(0L, Limit.of(10))).thenReturn(expectedVersions);
+
+        List<RecipeVersion> versions = recipeService.getRecipeVersions(null, 10);
+
+        verify(recipeRepositoryMock).findVersionsAfter(0L, Limit.of(10));
+        assertThat(versions).isEqualTo(expectedVersions);
+    }
+
+    @Test
+    public void testGetRecipeViews_RecordsSizes() {
+        RecipeView first = new RecipeView(1L, 0L, "First", "Dessert", 2, "Bake.", true, List.of("Flour", "Sugar"));
+        RecipeView second = new RecipeView(2L, 0L, "Second", "Dessert", 2, "Bake.", true, List.of());
+        when(recipeRepositoryMock.findViewsByIdIn(List.of(2L, 3L, 1L), RecipeField.ALL)).thenReturn(List.of(first, second));
+
+        List<RecipeView> views = recipeService.getRecipeViews(
+                List.of(new RecipeVersion(2L, 0L), new RecipeVersion(3L, 0L), new RecipeVersion(1L, 0L)));
+
+        assertThat(views).containsExactly(second, first);
+        assertThat(meterRegistry.get(RecipeMetrics.RESULT_SIZE).tag("operation", "byIds").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get(RecipeMetrics.INGREDIENTS_PER_RECIPE).summary().totalAmount()).isEqualTo(2);
+        verify(recipeRepositoryMock, never()).findAllWithIngredientsByIdIn(any());
+    }
+
+    @Test
+    public void testGetRecipeViews_ServedFromSnapshot() {
+        RecipeView first = new RecipeView(1L, 3L, "First", "Dessert", 2, "Bake.", true, List.of("Flour"));
+        RecipeView second = new RecipeView(2L, 0L, "Second", "Dessert", 2, "Bake.", true, List.of());
+        when(recipeSnapshotMock.getAll(List.of(2L, 1L), RecipeField.ALL)).thenReturn(new HashMap<>(Map.of(1L, first, 2L, second)));
+
+        List<RecipeView> views = recipeService.getRecipeViews(List.of(new RecipeVersion(2L, 0L), new RecipeVersion(1L, 3L)));
+
+        assertThat(views).containsExactly(second, first);
+        verifyNoInteractions(recipeRepositoryMock);
+    }
+
+    @Test
+    public void testGetRecipeViews_StaleAndMissingLoadedFromDatabase() {
+        RecipeView stale = new RecipeView(1L, 3L, "First", "Dessert", 2, "Bake.", true, List.of());
+        RecipeView current = new RecipeView(1L, 4L, "First, improved", "Dessert", 2, "Bake.", true, List.of());
+        RecipeView committed = new RecipeView(2L, 0L, "Second", "Dessert", 2, "Bake.", true, List.of());
+        when(recipeSnapshotMock.getAll(List.of(1L, 2L, 3L), RecipeField.ALL)).thenReturn(new HashMap<>(Map.of(1L, stale)));
+        when(recipeRepositoryMock.findViewsByIdIn(List.of(1L, 2L, 3L), RecipeField.ALL)).thenReturn(List.of(current, committed));
+
+        List<RecipeView> views = recipeService.getRecipeViews(
+                List.of(new RecipeVersion(1L, 4L), new RecipeVersion(2L, 0L), new RecipeVersion(3L, 0L)));
+
+        assertThat(views).containsExactly(current, committed);
+    }
+
+    @Test
+    public void testGetRecipeViews_SelectedFieldsOnly() {
+        Set<RecipeField> fields = EnumSet.of(RecipeField.NAME, RecipeField.IS_VEGETARIAN);
+        RecipeView stale = new RecipeView(1L, 3L, "First", null, null, null, true, List.of());
+        RecipeView current = new RecipeView(1L, 4L, "First, improved", null, null, null, true, List.of());
+        when(recipeSnapshotMock.getAll(List.of(1L), fields)).thenReturn(new HashMap<>(Map.of(1L, stale)));
+        when(recipeRepositoryMock.findViewsByIdIn(List.of(1L), fields)).thenReturn(List.of(current));
+
+        List<RecipeView> views = recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 4L)), fields);
+
+        assertThat(views).containsExactly(current);
+        assertThat(meterRegistry.get(RecipeMetrics.INGREDIENTS_PER_RECIPE).summary().count()).isZero();
+    }
+
+    @Test
+    public void testGetRecipeViewById() {
+        RecipeView view = new RecipeView(1L, 0L, "First", "Dessert", 2, "Bake.", true, List.of());
+        when(recipeSnapshotMock.getAll(List.of(1L), RecipeField.ALL)).thenReturn(new HashMap<>(Map.of(1L, view)));
+        when(recipeSnapshotMock.getAll(List.of(2L), RecipeField.ALL)).thenReturn(new HashMap<>());
+        when(recipeRepositoryMock.findViewsByIdIn(List.of(2L), RecipeField.ALL)).thenReturn(List.of());
+
+        assertThat(recipeService.getRecipeViewById(1L, 0L)).isEqualTo(view);
+        assertThat(recipeService.getRecipeViewById(2L, 0L)).isNull();
+        verify(recipeRepositoryMock, never()).findById(any());
+    }
+
+    @Test
+    public void testGetRecipeVersion() {
+        when(recipeRepositoryMock.findVersionById(1L)).thenReturn(Optional.of(4L));
+        when(recipeRepositoryMock.findVersionById(2L)).thenReturn(Optional.empty());
 
-        List<Recipe> allRecipes = recipeService.getAllRecipes();
+        assertThat(recipeService.getRecipeVersion(1L)).isEqualTo(4L);
+        assertThat(recipeService.getRecipeVersion(2L)).isNull();
+    }
 
-        verify(recipeRepositoryMock).findAllWithIngredients();
-        assertThat(allRecipes).hasSize(expectedRecipes.size()).isEqualTo(expectedRecipes);
+    @Test
+    public void testExportRecipes() {
+        List<Recipe> recipes = new ArrayList<>();
+        for (long id = 1; id <= RecipeService.EXPORT_CHUNK_SIZE + 1; id++) {
+            Recipe recipe = new Recipe();
+            recipe.setId(id);
+            recipes.add(recipe);
+        }
+        when(recipeRepositoryMock.streamAll()).thenReturn(recipes.stream());
+
+        List<Recipe> exported = new ArrayList<>();
+        recipeService.exportRecipes(exported::add);
+
+        assertThat(exported).isEqualTo(recipes);
+        verify(entityManagerMock, times(2)).clear();
     }
 
     @Test
@@ -142,38 +377,196 @@ public class RecipeServiceTest {
     }
 
     @Test
-    public void testSearchRecipes() {
+    public void testSearchRecipeVersions() {
         Set<String> includeIngredients = new HashSet<>();
         includeIngredients.add("Salt");
 
         Set<String> excludeIngredients = new HashSet<>();
         excludeIngredients.add("Sugar");
 
-        List<Recipe> expectedRecipes = new ArrayList<>();
-        Recipe recipe = new Recipe();
-        recipe.setName("Test Recipe");
-        expectedRecipes.add(recipe);
+        RoaringBitmap candidates = RoaringBitmap.bitmapOf(1, 2);
+        when(recipeSearchIndexMock.search(true, 4, 4, Set.of(), Set.of("salt"), false, Set.of("sugar"))).thenReturn(candidates);
+        when(ingredientNameIndexMock.search("salt")).thenReturn(RoaringBitmap.bitmapOf(7));
+        when(recipeSearchIndexMock.recipesWithAnyIngredient(RoaringBitmap.bitmapOf(7))).thenReturn(RoaringBitmap.bitmapOf(1, 2, 3));
+        when(instructionTextIndexMock.search("mix", candidates)).thenReturn(List.of(2L, 1L));
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 0L)));
 
-        when(recipeRepositoryMock.findAll(any(Specification.class))).thenReturn(expectedRecipes);
+        List<RecipeVersion> result = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, 4, 4, null, includeIngredients, false, excludeIngredients, "Mix", "Salt"));
 
-        Set<Recipe> result = recipeService.searchRecipes(true, 4, includeIngredients, excludeIngredients, "Mix", "Salt");
+        assertThat(result).containsExactly(new RecipeVersion(2L, 0L), new RecipeVersion(1L, 0L));
+        verify(recipeSearchIndexMock).search(true, 4, 4, Set.of(), Set.of("salt"), false, Set.of("sugar"));
+        verify(recipeRepositoryMock).findVersions(any());
+    }
 
-        assertThat(result).isEqualTo(new HashSet<>(expectedRecipes));
-        verify(recipeRepositoryMock).findAll(any(Specification.class));
+    @Test
+    public void testSearchRecipeVersions_ServedFromCache() {
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of(), false, Set.of())).thenReturn(RoaringBitmap.bitmapOf(1));
+        when(instructionTextIndexMock.search("bake", RoaringBitmap.bitmapOf(1))).thenReturn(List.of(1L));
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L)));
+
+        List<RecipeVersion> first = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, "Bake ", null));
+        List<RecipeVersion> second = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, Set.of(), false, Set.of(), "bake", null));
+
+        assertThat(first).containsExactly(new RecipeVersion(1L, 0L));
+        assertThat(second).isSameAs(first);
+        verify(recipeRepositoryMock, times(1)).findVersions(any());
+        assertThat(recipeSearchCache.stats().hits()).isEqualTo(1);
     }
 
     @Test
-    public void testSearchRecipes_WithNullParameters() {
-        List<Recipe> expectedRecipes = new ArrayList<>();
-        Recipe recipe = new Recipe();
-        recipe.setName("Test Recipe");
-        expectedRecipes.add(recipe);
+    public void testSearchRecipeVersions_ChunksLargeCandidateSets() {
+        RoaringBitmap candidates = new RoaringBitmap();
+        candidates.add(1L, RecipeService.LOAD_CHUNK_SIZE + 2L);
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of(), false, Set.of())).thenReturn(candidates);
+        when(recipeRepositoryMock.findVersions(any()))
+                .thenReturn(List.of(new RecipeVersion(1L, 0L)))
+                .thenReturn(List.of(new RecipeVersion((long) RecipeService.LOAD_CHUNK_SIZE + 1, 0L)));
+
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, null, null));
+
+        assertThat(versions).containsExactly(new RecipeVersion(1L, 0L), new RecipeVersion((long) RecipeService.LOAD_CHUNK_SIZE + 1, 0L));
+        verify(recipeRepositoryMock, times(2)).findVersions(any());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_IncludeAllIngredients() {
+        when(recipeSearchIndexMock.search(null, null, null, Set.of(), Set.of("salt", "pepper"), true, Set.of())).thenReturn(new RoaringBitmap());
 
-        when(recipeRepositoryMock.findAll(any(Specification.class))).thenReturn(expectedRecipes);
+        List<RecipeVersion> result = recipeService.searchRecipeVersions(new RecipeSearchCriteria(null, null, null, null, Set.of("Salt", "Pepper"), true, null, null, null));
 
-        Set<Recipe> result = recipeService.searchRecipes(null, null, null, null, null, null);
+        assertThat(result).isEmpty();
+        verify(recipeSearchIndexMock).search(null, null, null, Set.of(), Set.of("salt", "pepper"), true, Set.of());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_IngredientNameNarrowsCandidates() {
+        when(ingredientNameIndexMock.search("tom")).thenReturn(RoaringBitmap.bitmapOf(7, 8));
+        when(recipeSearchIndexMock.recipesWithAnyIngredient(RoaringBitmap.bitmapOf(7, 8))).thenReturn(RoaringBitmap.bitmapOf(3));
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(3L, 0L)));
+
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(new RecipeSearchCriteria(null, null, null, null, null, false, null, null, "Tom"));
+
+        assertThat(versions).containsExactly(new RecipeVersion(3L, 0L));
+        verify(recipeSearchIndexMock, never()).search(any(), any(), any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_NoIngredientNameMatch() {
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of(), false, Set.of())).thenReturn(RoaringBitmap.bitmapOf(1));
+        when(ingredientNameIndexMock.search("saffron")).thenReturn(new RoaringBitmap());
+        when(recipeSearchIndexMock.recipesWithAnyIngredient(new RoaringBitmap())).thenReturn(new RoaringBitmap());
+
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, "Mix", "Saffron"));
+
+        assertThat(versions).isEmpty();
+        verify(instructionTextIndexMock, never()).search(any(), any());
+        verify(recipeRepositoryMock, never()).findVersions(any());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_NoIndexMatch() {
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of(), false, Set.of())).thenReturn(new RoaringBitmap());
+
+        List<RecipeVersion> result = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, "Mix", null));
+
+        assertThat(result).isEmpty();
+        verify(instructionTextIndexMock, never()).search(any(), any());
+        verify(recipeRepositoryMock, never()).findVersions(any());
+    }
 
-        assertThat(result).isEqualTo(new HashSet<>(expectedRecipes));
-        verify(recipeRepositoryMock).findAll(any(Specification.class));
+    @Test
+    public void testSearchRecipeVersions_NoInstructionMatch() {
+        when(instructionTextIndexMock.search("grill", null)).thenReturn(List.of());
+
+        List<RecipeVersion> result = recipeService.searchRecipeVersions(new RecipeSearchCriteria(null, null, null, null, null, false, null, "Grill", null));
+
+        assertThat(result).isEmpty();
+        verify(recipeSearchIndexMock, never()).search(any(), any(), any(), any(), any(), anyBoolean(), any());
+        verify(recipeRepositoryMock, never()).findVersions(any());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_WithNullParameters() {
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L)));
+
+        List<RecipeVersion> result = recipeService.searchRecipeVersions(new RecipeSearchCriteria(null, null, null, null, null, false, null, null, null));
+
+        assertThat(result).containsExactly(new RecipeVersion(1L, 0L));
+        verify(recipeSearchIndexMock, never()).search(any(), any(), any(), any(), any(), anyBoolean(), any());
+        verify(instructionTextIndexMock, never()).search(any(), any());
+        verify(recipeRepositoryMock).findVersions(any());
+    }
+
+    @Test
+    public void testSearchRecipeVersions_DatabaseUntilIndexesLoaded() {
+        when(recipeSearchIndexMock.isLoaded()).thenReturn(false);
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L)));
+
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, 2, 4, Set.of("Dessert"), Set.of("Salt"), true, Set.of("Sugar"), null, "Tom"));
+
+        assertThat(versions).containsExactly(new RecipeVersion(1L, 0L));
+        verify(recipeSearchIndexMock, never()).search(any(), any(), any(), any(), any(), anyBoolean(), any());
+        verify(ingredientNameIndexMock, never()).search(any());
+        assertThat(recipeSearchCache.stats().misses()).isZero();
+    }
+
+    @Test
+    public void testSearchRecipeVersions_DatabaseRanksInstructionsUntilIndexesLoaded() {
+        when(instructionTextIndexMock.isLoaded()).thenReturn(false);
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 3L)));
+        when(recipeRepositoryMock.findViewsByIdIn(any(), eq(EnumSet.of(RecipeField.INSTRUCTIONS)))).thenReturn(List.of(
+                new RecipeView(1L, null, null, null, null, "Mix the salad.", null, List.of()),
+                new RecipeView(2L, null, null, null, null, "Bake the bread.", null, List.of())));
+
+        List<RecipeVersion> versions = recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, "baking", null));
+
+        assertThat(versions).containsExactly(new RecipeVersion(2L, 3L));
+        verify(instructionTextIndexMock, never()).search(any(), any());
+    }
+
+    @Test
+    public void testGetFacets_CountsInstructionMatches() {
+        RecipeFacets facets = new RecipeFacets(2, 1, Map.of(), new TreeMap<>(), Map.of());
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of(), false, Set.of())).thenReturn(RoaringBitmap.bitmapOf(1, 2, 3));
+        when(instructionTextIndexMock.search("bake", RoaringBitmap.bitmapOf(1, 2, 3))).thenReturn(List.of(3L, 1L));
+        when(recipeSearchIndexMock.facets(RoaringBitmap.bitmapOf(1, 3), 5)).thenReturn(facets);
+
+        RecipeFacets result = recipeService.getFacets(new RecipeSearchCriteria(true, null, null, null, null, false, null, "Bake", null), 5);
+
+        assertThat(result).isSameAs(facets);
+        verifyNoInteractions(recipeRepositoryMock);
+    }
+
+    @Test
+    public void testGetFacets_WithoutCriteriaCountsAllRecipes() {
+        RecipeFacets facets = new RecipeFacets(0, 0, Map.of(), new TreeMap<>(), Map.of());
+        when(recipeSearchIndexMock.facets(null, 10)).thenReturn(facets);
+
+        assertThat(recipeService.getFacets(new RecipeSearchCriteria(null, null, null, null, null, false, null, null, null), 10))
+                .isSameAs(facets);
+        verify(recipeSearchIndexMock, never()).search(any(), any(), any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testSearchRecipes_RecordsActivePredicates() {
+        when(recipeSearchIndexMock.search(true, null, null, Set.of(), Set.of("salt"), false, Set.of())).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+        when(ingredientNameIndexMock.search("pep")).thenReturn(RoaringBitmap.bitmapOf(7));
+        when(recipeSearchIndexMock.recipesWithAnyIngredient(RoaringBitmap.bitmapOf(7))).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+        when(recipeRepositoryMock.findVersions(any())).thenReturn(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 0L)));
+
+        recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, Set.of("Salt"), false, null, " ", "Pep"));
+
+        Timer timer = meterRegistry.get(RecipeMetrics.SEARCH_TIMER)
+                .tag("isVegetarian", "true")
+                .tag("servingCapacity", "false")
+                .tag("type", "false")
+                .tag("includeIngredients", "true")
+                .tag("excludeIngredients", "false")
+                .tag("instructionsContain", "false")
+                .tag("ingredientNameContains", "true")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        DistributionSummary results = meterRegistry.get(RecipeMetrics.SEARCH_RESULTS).tag("isVegetarian", "true").summary();
+        assertThat(results.totalAmount()).isEqualTo(2);
     }
 }
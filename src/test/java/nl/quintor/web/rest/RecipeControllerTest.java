@@ -1,9 +1,17 @@
 package nl.quintor.web.rest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import nl.quintor.index.RecipeFacets;
 import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeVersion;
+import nl.quintor.repository.RecipeView;
+import nl.quintor.service.RecipeSearchCriteria;
 import nl.quintor.service.RecipeService;
+import nl.quintor.web.rest.cache.RecipeJsonCache;
 import nl.quintor.web.rest.dto.RecipeDto;
+import nl.quintor.web.rest.dto.RecipeImportResultDto;
 import nl.quintor.web.rest.transformer.RecipeTransformer;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.AfterEach;
@@ -14,19 +22,27 @@ import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.BDDMockito.given;
@@ -35,11 +51,15 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 
 @WebAppConfiguration
 @WebMvcTest(RecipeController.class)
+@Import(RecipeJsonCache.class)
 public class RecipeControllerTest {
 
     @MockBean
     private RecipeService recipeService;
 
+    @Autowired
+    private RecipeJsonCache recipeJsonCache;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -56,6 +76,7 @@ public class RecipeControllerTest {
     @AfterEach
     public void resetMocks() {
         reset(recipeService);
+        recipeJsonCache.invalidateAll();
     }
 
     @Test
@@ -89,17 +110,74 @@ public class RecipeControllerTest {
         assertThat(response.getContentAsString(), CoreMatchers.containsString("Test Recipe"));
     }
 
+    @Test
+    public void importRecipesTest() throws Exception {
+        RecipeDto validRecipe = new RecipeDto();
+        validRecipe.setName("Test Recipe");
+        validRecipe.setType("Dessert");
+        validRecipe.setServingCapacity(4);
+        validRecipe.setInstructions("Mix and bake.");
+        validRecipe.setIsVegetarian(true);
+
+        RecipeDto invalidRecipe = new RecipeDto();
+        invalidRecipe.setName("Invalid Recipe");
+
+        given(recipeService.saveRecipes(any())).willAnswer(invocation -> {
+            List<Recipe> recipes = invocation.getArgument(0);
+            recipes.get(0).setId(42L);
+            return recipes;
+        });
+
+        final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+        MockHttpServletResponse response = mockMvc.perform(
+                        post("/recipe/batch")
+                                .content(objectMapper.writeValueAsString(List.of(validRecipe, invalidRecipe)))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        List<RecipeImportResultDto> results = List.of(objectMapper.readValue(response.getContentAsString(), RecipeImportResultDto[].class));
+        assertThat(results.size(), CoreMatchers.is(2));
+        assertThat(results.get(0).getStatus(), CoreMatchers.is(RecipeImportResultDto.Status.CREATED));
+        assertThat(results.get(0).getId(), CoreMatchers.is(42L));
+        assertThat(results.get(1).getStatus(), CoreMatchers.is(RecipeImportResultDto.Status.INVALID));
+        assertThat(results.get(1).getIndex(), CoreMatchers.is(1));
+        assertThat(results.get(1).getErrors().size(), CoreMatchers.is(4));
+        verify(recipeService, times(1)).saveRecipes(any());
+    }
+
+    @Test
+    public void importRecipesChunkFailureTest() throws Exception {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setName("Test Recipe");
+        recipeDto.setType("Dessert");
+        recipeDto.setServingCapacity(4);
+        recipeDto.setInstructions("Mix and bake.");
+        recipeDto.setIsVegetarian(true);
+
+        given(recipeService.saveRecipes(any())).willThrow(new DataIntegrityViolationException("Constraint violated"));
+
+        final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+        MockHttpServletResponse response = mockMvc.perform(
+                        post("/recipe/batch")
+                                .content(objectMapper.writeValueAsString(List.of(recipeDto)))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        RecipeImportResultDto[] results = objectMapper.readValue(response.getContentAsString(), RecipeImportResultDto[].class);
+        assertThat(results[0].getStatus(), CoreMatchers.is(RecipeImportResultDto.Status.FAILED));
+        assertThat(results[0].getErrors().get(0), CoreMatchers.is("Constraint violated"));
+    }
+
     @Test
     public void getAllRecipesTest() throws Exception {
-        Recipe recipe = new Recipe();
-        recipe.setId(1L);
-        recipe.setName("Test Recipe");
-        recipe.setType("Dessert");
-        recipe.setServingCapacity(4);
-        recipe.setInstructions("Mix and bake.");
-        recipe.setIsVegetarian(true);
+        RecipeView recipe = new RecipeView(1L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of("Flour"));
 
-        given(recipeService.getAllRecipes()).willReturn(List.of(recipe));
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(recipe));
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe")
@@ -108,11 +186,192 @@ public class RecipeControllerTest {
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
         assertThat(response.getContentAsString(), CoreMatchers.containsString("Test Recipe"));
+        assertThat(response.getContentAsString(), CoreMatchers.containsString("Flour"));
+        assertThat(response.getHeader("X-Next-Cursor"), CoreMatchers.nullValue());
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.notNullValue());
+    }
+
+    @Test
+    public void getAllRecipesAsSmileTest() throws Exception {
+        RecipeView recipe = new RecipeView(1L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of("Flour"));
+
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(recipe));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)), RecipeField.ALL)).willReturn(List.of(recipe));
+
+        MockHttpServletResponse json = mockMvc.perform(get("/recipe").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+        MockHttpServletResponse smile = mockMvc.perform(
+                        get("/recipe")
+                                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, " + RecipeController.APPLICATION_SMILE_VALUE))
+                .andReturn().getResponse();
+
+        assertThat(smile.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(smile.getContentType(), CoreMatchers.is(RecipeController.APPLICATION_SMILE_VALUE));
+        assertThat(smile.getHeader(HttpHeaders.VARY), CoreMatchers.is(HttpHeaders.ACCEPT));
+        RecipeDto[] recipeDtos = new SmileMapper().readValue(smile.getContentAsByteArray(), RecipeDto[].class);
+        assertThat(recipeDtos.length, CoreMatchers.is(1));
+        assertThat(recipeDtos[0].getName(), CoreMatchers.is("Test Recipe"));
+        assertThat(recipeDtos[0].getIngredientList().get(0).getName(), CoreMatchers.is("Flour"));
+        assertThat(smile.getHeader(HttpHeaders.ETAG), CoreMatchers.not(json.getHeader(HttpHeaders.ETAG)));
+    }
+
+    @Test
+    public void getAllRecipesPrefersJsonTest() throws Exception {
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(
+                new RecipeView(1L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of())));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/recipe").header(HttpHeaders.ACCEPT, "*/*"))
+                .andReturn().getResponse();
+
+        assertThat(response.getContentType(), CoreMatchers.is(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(response.getContentAsString(), CoreMatchers.containsString("Test Recipe"));
+    }
+
+    @Test
+    public void getAllRecipesWithFieldsTest() throws Exception {
+        Set<RecipeField> fields = EnumSet.of(RecipeField.NAME, RecipeField.IS_VEGETARIAN);
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)), fields)).willReturn(List.of(
+                new RecipeView(1L, 0L, "Test Recipe", null, null, null, true, List.of())));
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe")
+                                .param("fields", "isVegetarian,name")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentType(), CoreMatchers.is(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(response.getContentAsString(), CoreMatchers.is("[{\"name\":\"Test Recipe\",\"isVegetarian\":true}]"));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.endsWith("-name+isVegetarian\""));
+        verify(recipeService, never()).getRecipeViews(any());
+    }
+
+    @Test
+    public void getRecipeByIdWithFieldsTest() throws Exception {
+        Set<RecipeField> fields = EnumSet.of(RecipeField.NAME, RecipeField.INGREDIENT_LIST);
+        given(recipeService.getRecipeVersion(1L)).willReturn(2L);
+        given(recipeService.getRecipeViewById(1L, 2L, fields)).willReturn(
+                new RecipeView(1L, 2L, "Test Recipe", null, null, null, null, List.of("Flour")));
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/1")
+                                .param("fields", "name", "ingredientList")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+        MockHttpServletResponse notModified = mockMvc.perform(
+                        get("/recipe/1")
+                                .param("fields", "ingredientList,name")
+                                .header(HttpHeaders.IF_NONE_MATCH, "\"2-name+ingredientList\""))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentAsString(), CoreMatchers.is("{\"name\":\"Test Recipe\",\"ingredientList\":[{\"name\":\"Flour\"}]}"));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"2-name+ingredientList\""));
+        assertThat(notModified.getStatus(), CoreMatchers.is(HttpStatus.NOT_MODIFIED.value()));
+        verify(recipeService, times(1)).getRecipeViewById(1L, 2L, fields);
+    }
+
+    @Test
+    public void getRecipeByIdWithUnknownFieldTest() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/1")
+                                .param("fields", "name,calories")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.BAD_REQUEST.value()));
+        verifyNoInteractions(recipeService);
+    }
+
+    @Test
+    public void getRecipeByIdAsSmileTest() throws Exception {
+        given(recipeService.getRecipeVersion(1L)).willReturn(2L);
+        given(recipeService.getRecipeViewById(1L, 2L, RecipeField.ALL)).willReturn(
+                new RecipeView(1L, 2L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of()));
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/1")
+                                .accept(RecipeController.APPLICATION_SMILE))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"2-smile\""));
+        assertThat(new SmileMapper().readValue(response.getContentAsByteArray(), RecipeDto.class).getName(),
+                CoreMatchers.is("Test Recipe"));
+
+        response = mockMvc.perform(
+                        get("/recipe/1")
+                                .header(HttpHeaders.IF_NONE_MATCH, "\"2-smile\"")
+                                .accept(RecipeController.APPLICATION_SMILE))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NOT_MODIFIED.value()));
+    }
+
+    @Test
+    public void getAllRecipesNotModifiedTest() throws Exception {
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(
+                new RecipeView(1L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of())));
+
+        String etag = mockMvc.perform(get("/recipe").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe")
+                                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(response.getContentAsString(), CoreMatchers.is(""));
+        verify(recipeService, times(1)).getRecipeViews(any());
+
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of(new RecipeVersion(1L, 1L)));
+        response = mockMvc.perform(
+                        get("/recipe")
+                                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+    }
+
+    @Test
+    public void getAllRecipesNextCursorTest() throws Exception {
+        RecipeView recipe = new RecipeView(7L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of());
+
+        given(recipeService.getRecipeVersions(3L, 1)).willReturn(List.of(new RecipeVersion(7L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(7L, 0L)))).willReturn(List.of(recipe));
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe")
+                                .param("after", "3")
+                                .param("limit", "1")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getHeader("X-Next-Cursor"), CoreMatchers.is("7"));
+    }
+
+    @Test
+    public void getAllRecipesInvalidLimitTest() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe")
+                                .param("limit", "0")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.BAD_REQUEST.value()));
+        verify(recipeService, never()).getRecipeVersions(any(), anyInt());
     }
 
     @Test
     public void getAllRecipesNoContentTest() throws Exception {
-        given(recipeService.getAllRecipes()).willReturn(List.of());
+        given(recipeService.getRecipeVersions(null, 100)).willReturn(List.of());
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe")
@@ -122,17 +381,51 @@ public class RecipeControllerTest {
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NO_CONTENT.value()));
     }
 
+    @Test
+    public void exportRecipesTest() throws Exception {
+        Recipe first = new Recipe();
+        first.setId(1L);
+        first.setName("First Recipe");
+        first.setType("Dessert");
+        first.setServingCapacity(4);
+        first.setInstructions("Mix and bake.");
+        first.setIsVegetarian(true);
+
+        Recipe second = new Recipe();
+        second.setId(2L);
+        second.setName("Second Recipe");
+        second.setType("Main Course");
+        second.setServingCapacity(2);
+        second.setInstructions("Mix and cook.");
+        second.setIsVegetarian(false);
+
+        doAnswer(invocation -> {
+            Consumer<Recipe> consumer = invocation.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(recipeService).exportRecipes(any());
+
+        MvcResult result = mockMvc.perform(
+                        get("/recipe/export")
+                                .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentType(), CoreMatchers.is(MediaType.APPLICATION_NDJSON_VALUE));
+        String[] lines = response.getContentAsString().split("\n");
+        assertThat(lines.length, CoreMatchers.is(2));
+        assertThat(lines[0], CoreMatchers.containsString("First Recipe"));
+        assertThat(lines[1], CoreMatchers.containsString("Second Recipe"));
+    }
+
     @Test
     public void getRecipeByIdTest() throws Exception {
-        Recipe recipe = new Recipe();
-        recipe.setId(1L);
-        recipe.setName("Test Recipe");
-        recipe.setType("Dessert");
-        recipe.setServingCapacity(4);
-        recipe.setInstructions("Mix and bake.");
-        recipe.setIsVegetarian(true);
+        RecipeView recipe = new RecipeView(1L, 2L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of());
 
-        given(recipeService.getRecipeById(1L)).willReturn(recipe);
+        given(recipeService.getRecipeVersion(1L)).willReturn(2L);
+        given(recipeService.getRecipeViewById(1L, 2L)).willReturn(recipe);
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe/1")
@@ -141,11 +434,47 @@ public class RecipeControllerTest {
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
         assertThat(response.getContentAsString(), CoreMatchers.containsString("Test Recipe"));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"2\""));
+    }
+
+    @Test
+    public void getRecipeByIdNotModifiedTest() throws Exception {
+        given(recipeService.getRecipeVersion(1L)).willReturn(2L);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/1")
+                                .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"2\""));
+        verify(recipeService, never()).getRecipeViewById(any(), any());
+    }
+
+    @Test
+    public void getRecipeByIdCachedTest() throws Exception {
+        RecipeView recipe = new RecipeView(1L, 0L, "Test Recipe", "Dessert", 4, "Mix and bake.", true, List.of());
+
+        given(recipeService.getRecipeVersion(1L)).willReturn(0L);
+        given(recipeService.getRecipeViewById(1L, 0L)).willReturn(recipe);
+        long hits = recipeJsonCache.stats().hits();
+
+        mockMvc.perform(get("/recipe/1").accept(MediaType.APPLICATION_JSON));
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/1")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentAsString(), CoreMatchers.containsString("Test Recipe"));
+        verify(recipeService, times(1)).getRecipeViewById(1L, 0L);
+        assertThat(recipeJsonCache.stats().hits(), CoreMatchers.is(hits + 1));
     }
 
     @Test
     public void getRecipeByIdNotFoundTest() throws Exception {
-        given(recipeService.getRecipeById(1L)).willReturn(null);
+        given(recipeService.getRecipeVersion(1L)).willReturn(null);
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe/1")
@@ -164,19 +493,17 @@ public class RecipeControllerTest {
         recipeDto.setInstructions("Mix ingredients and cook.");
         recipeDto.setIsVegetarian(false);
 
-        Recipe existingRecipe = new Recipe();
-        existingRecipe.setId(1L);
-        existingRecipe.setName("Test Recipe");
-
         Recipe updatedRecipe = RecipeTransformer.toEntity(recipeDto);
         updatedRecipe.setId(1L);
+        updatedRecipe.setVersion(4L);
 
-        given(recipeService.getRecipeById(1L)).willReturn(existingRecipe);
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
         given(recipeService.saveRecipe(any())).willReturn(updatedRecipe);
 
         final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
         MockHttpServletResponse response = mockMvc.perform(
                         put("/recipe/1")
+                                .header(HttpHeaders.IF_MATCH, "\"3\"")
                                 .content(objectMapper.writeValueAsString(recipeDto))
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON))
@@ -184,6 +511,56 @@ public class RecipeControllerTest {
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
         assertThat(response.getContentAsString(), CoreMatchers.containsString("Updated Recipe"));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"4\""));
+        verify(recipeService).saveRecipe(recipeArgumentCaptor.capture());
+        assertThat(recipeArgumentCaptor.getValue().getVersion(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void updateRecipeIfMatchFailedTest() throws Exception {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setName("Updated Recipe");
+        recipeDto.setType("Main Course");
+        recipeDto.setServingCapacity(2);
+        recipeDto.setInstructions("Mix ingredients and cook.");
+        recipeDto.setIsVegetarian(false);
+
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
+
+        final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+        MockHttpServletResponse response = mockMvc.perform(
+                        put("/recipe/1")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .content(objectMapper.writeValueAsString(recipeDto))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.PRECONDITION_FAILED.value()));
+        verify(recipeService, never()).saveRecipe(any());
+    }
+
+    @Test
+    public void updateRecipeConcurrentModificationTest() throws Exception {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setName("Updated Recipe");
+        recipeDto.setType("Main Course");
+        recipeDto.setServingCapacity(2);
+        recipeDto.setInstructions("Mix ingredients and cook.");
+        recipeDto.setIsVegetarian(false);
+
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
+        given(recipeService.saveRecipe(any())).willThrow(new ObjectOptimisticLockingFailureException(Recipe.class, 1L));
+
+        final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+        MockHttpServletResponse response = mockMvc.perform(
+                        put("/recipe/1")
+                                .content(objectMapper.writeValueAsString(recipeDto))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.CONFLICT.value()));
     }
 
     @Test
@@ -195,7 +572,7 @@ public class RecipeControllerTest {
         recipeDto.setInstructions("Mix ingredients and cook.");
         recipeDto.setIsVegetarian(false);
 
-        given(recipeService.getRecipeById(1L)).willReturn(null);
+        given(recipeService.getRecipeVersion(1L)).willReturn(null);
 
         final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
         MockHttpServletResponse response = mockMvc.perform(
@@ -210,10 +587,7 @@ public class RecipeControllerTest {
 
     @Test
     public void deleteRecipeTest() throws Exception {
-        Recipe recipe = new Recipe();
-        recipe.setId(1L);
-
-        given(recipeService.getRecipeById(1L)).willReturn(recipe);
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
 
         MockHttpServletResponse response = mockMvc.perform(
                         delete("/recipe/1")
@@ -222,11 +596,12 @@ public class RecipeControllerTest {
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NO_CONTENT.value()));
         verify(recipeService, times(1)).deleteRecipe(1L);
+        verify(recipeService, never()).getRecipeById(any());
     }
 
     @Test
     public void deleteRecipeNotFoundTest() throws Exception {
-        given(recipeService.getRecipeById(1L)).willReturn(null);
+        given(recipeService.getRecipeVersion(1L)).willReturn(null);
 
         MockHttpServletResponse response = mockMvc.perform(
                         delete("/recipe/1")
@@ -234,22 +609,54 @@ public class RecipeControllerTest {
                 .andReturn().getResponse();
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NOT_FOUND.value()));
+        verify(recipeService, never()).deleteRecipe(any());
     }
 
     @Test
-    public void searchRecipesTest() throws Exception {
-        Recipe recipe = new Recipe();
-        recipe.setId(1L);
-        recipe.setName("Vegetarian Pizza");
-        recipe.setType("Main Course");
-        recipe.setServingCapacity(4);
-        recipe.setInstructions("Bake in the oven.");
-        recipe.setIsVegetarian(true);
+    public void deleteRecipeIfMatchTest() throws Exception {
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        delete("/recipe/1")
+                                .header(HttpHeaders.IF_MATCH, "\"3\""))
+                .andReturn().getResponse();
 
-        Set<Recipe> recipes = new HashSet<>();
-        recipes.add(recipe);
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NO_CONTENT.value()));
+        verify(recipeService, times(1)).deleteRecipe(1L);
+    }
 
-        given(recipeService.searchRecipes(true, 4, Collections.singleton("Tomato"), Collections.singleton("Meat"), "Bake", "Tomato")).willReturn(recipes);
+    @Test
+    public void deleteRecipeIfMatchFailedTest() throws Exception {
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        delete("/recipe/1")
+                                .header(HttpHeaders.IF_MATCH, "\"2\""))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(response.getHeader(HttpHeaders.ETAG), CoreMatchers.is("\"3\""));
+        verify(recipeService, never()).deleteRecipe(any());
+    }
+
+    @Test
+    public void deleteRecipeConcurrentModificationTest() throws Exception {
+        given(recipeService.getRecipeVersion(1L)).willReturn(3L);
+        doThrow(new ObjectOptimisticLockingFailureException(Recipe.class, 1L)).when(recipeService).deleteRecipe(1L);
+
+        MockHttpServletResponse response = mockMvc.perform(delete("/recipe/1"))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.CONFLICT.value()));
+    }
+
+    @Test
+    public void searchRecipesTest() throws Exception {
+        RecipeView recipe = new RecipeView(1L, 0L, "Vegetarian Pizza", "Main Course", 4, "Bake in the oven.", true, List.of("Tomato"));
+
+        given(recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, 4, 4, null, Collections.singleton("Tomato"), false, Collections.singleton("Meat"), "Bake", "Tomato")))
+                .willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(recipe));
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe/search")
@@ -266,9 +673,55 @@ public class RecipeControllerTest {
         assertThat(response.getContentAsString(), CoreMatchers.containsString("Vegetarian Pizza"));
     }
 
+    @Test
+    public void searchRecipesAssembledFromCachedJsonTest() throws Exception {
+        RecipeView pizza = new RecipeView(1L, 0L, "Vegetarian Pizza", "Main Course", 4, "Bake in the oven.", true, List.of("Tomato"));
+        RecipeView soup = new RecipeView(2L, 3L, "Tomato Soup", "Soup", 2, "Boil.", true, List.of("Onion", "Tomato"));
+
+        given(recipeService.getRecipeVersion(1L)).willReturn(0L);
+        given(recipeService.getRecipeViewById(1L, 0L)).willReturn(pizza);
+        given(recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, null, null, null, null, false, null, null, null)))
+                .willReturn(List.of(new RecipeVersion(2L, 3L), new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(2L, 3L)))).willReturn(List.of(soup));
+
+        mockMvc.perform(get("/recipe/1").accept(MediaType.APPLICATION_JSON));
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/search")
+                                .param("isVegetarian", "true")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentType(), CoreMatchers.is(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(response.getContentAsString(), CoreMatchers.is(objectMapper.writeValueAsString(
+                List.of(RecipeTransformer.toDto(soup), RecipeTransformer.toDto(pizza)))));
+        verify(recipeService, never()).getRecipeViews(List.of(new RecipeVersion(2L, 3L), new RecipeVersion(1L, 0L)));
+    }
+
+    @Test
+    public void searchRecipesByServingsRangeAndTypesTest() throws Exception {
+        RecipeView recipe = new RecipeView(1L, 0L, "Vegetarian Pizza", "Main Course", 6, "Bake in the oven.", true, List.of("Tomato"));
+
+        given(recipeService.searchRecipeVersions(new RecipeSearchCriteria(null, 4, 8, Set.of("Main Course", "Soup"), null, false, null, null, null)))
+                .willReturn(List.of(new RecipeVersion(1L, 0L)));
+        given(recipeService.getRecipeViews(List.of(new RecipeVersion(1L, 0L)))).willReturn(List.of(recipe));
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/search")
+                                .param("minServings", "4")
+                                .param("maxServings", "8")
+                                .param("type", "Main Course", "Soup")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentAsString(), CoreMatchers.containsString("Vegetarian Pizza"));
+    }
+
     @Test
     public void searchRecipesNotFoundTest() throws Exception {
-        given(recipeService.searchRecipes(true, 4, Collections.singleton("Tomato"), Collections.singleton("Meat"), "Bake", "Tomato")).willReturn(Collections.emptySet());
+        given(recipeService.searchRecipeVersions(new RecipeSearchCriteria(true, 4, 4, null, Collections.singleton("Tomato"), false, Collections.singleton("Meat"), "Bake", "Tomato"))).willReturn(List.of());
 
         MockHttpServletResponse response = mockMvc.perform(
                         get("/recipe/search")
@@ -283,4 +736,23 @@ public class RecipeControllerTest {
 
         assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.NOT_FOUND.value()));
     }
+
+    @Test
+    public void getFacetsTest() throws Exception {
+        RecipeFacets facets = new RecipeFacets(3, 2, Map.of("Main Course", 3), new TreeMap<>(Map.of(4, 2, 6, 1)), Map.of("salt", 3));
+        given(recipeService.getFacets(new RecipeSearchCriteria(null, 4, null, Set.of("Main Course"), null, false, null, null, null), 5))
+                .willReturn(facets);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                        get("/recipe/facets")
+                                .param("minServings", "4")
+                                .param("type", "Main Course")
+                                .param("topIngredients", "5")
+                                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus(), CoreMatchers.is(HttpStatus.OK.value()));
+        assertThat(response.getContentAsString(), CoreMatchers.is("{\"total\":3,\"isVegetarian\":{\"true\":2,\"false\":1},"
+                + "\"types\":{\"Main Course\":3},\"servingCapacities\":{\"4\":2,\"6\":1},\"ingredients\":{\"salt\":3}}"));
+    }
 }
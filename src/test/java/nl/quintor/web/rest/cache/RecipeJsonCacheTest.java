@@ -0,0 +1,171 @@
+package nl.quintor.web.rest.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.quintor.cache.LruCache;
+import nl.quintor.event.RecipeChangedEvent;
+import nl.quintor.repository.RecipeVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipeJsonCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private RecipeJsonCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new RecipeJsonCache(2, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    public void testGet_LoadsOnceAndCaches() {
+        byte[] first = cache.get(1L, 0L, loader());
+        byte[] second = cache.get(1L, 0L, loader());
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(1, 1, 0, 1));
+    }
+
+    @Test
+    public void testGet_MissingRecipeIsNotCached() {
+        assertThat(cache.get(1L, 0L, id -> null)).isNull();
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    public void testGet_EvictsLeastRecentlyUsed() {
+        cache.get(1L, 0L, loader());
+        cache.get(2L, 0L, loader());
+        cache.get(1L, 0L, loader());
+        cache.get(3L, 0L, loader());
+
+        cache.get(1L, 0L, loader());
+        cache.get(2L, 0L, loader());
+
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGet_ExpiresAfterTtl() {
+        cache.get(1L, 0L, loader());
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get(1L, 0L, loader());
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGet_ReloadsForNewVersion() {
+        cache.get(1L, 0L, loader());
+        cache.get(1L, 1L, loader());
+        cache.get(1L, 1L, loader());
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(1, 2, 1, 1));
+    }
+
+    @Test
+    public void testRecipeChanged_Invalidates() {
+        cache.get(1L, 0L, loader());
+        cache.get(2L, 0L, loader());
+
+        cache.onRecipeChanged(new RecipeChangedEvent(1L, null));
+
+        cache.get(1L, 0L, loader());
+        cache.get(2L, 0L, loader());
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGet_LoadRacingAnInvalidationIsNotCached() {
+        cache.get(1L, 0L, id -> {
+            cache.invalidate(id);
+            return loader().apply(id);
+        });
+        cache.get(1L, 0L, loader());
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetAll_LoadsOnlyMissingRecipesAtOnce() {
+        cache.get(2L, 0L, loader());
+        List<List<RecipeVersion>> requested = new ArrayList<>();
+
+        List<byte[]> jsons = cache.getAll(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(2L, 0L), new RecipeVersion(3L, 0L)),
+                missing -> {
+                    requested.add(missing);
+                    Map<Long, byte[]> jsonById = new HashMap<>();
+                    missing.stream().filter(version -> version.id() != 3L)
+                            .forEach(version -> jsonById.put(version.id(), json(version.id())));
+                    return jsonById;
+                });
+
+        assertThat(requested).containsExactly(List.of(new RecipeVersion(1L, 0L), new RecipeVersion(3L, 0L)));
+        assertThat(jsons).extracting(json -> new String(json, StandardCharsets.UTF_8))
+                .containsExactly("{\"name\":\"Recipe 1\"}", "{\"name\":\"Recipe 2\"}");
+        assertThat(cache.stats()).isEqualTo(new LruCache.Stats(1, 3, 0, 2));
+    }
+
+    @Test
+    public void testGetAll_AllCachedDoesNotCallLoader() {
+        cache.get(1L, 0L, loader());
+        cache.get(2L, 0L, loader());
+
+        List<byte[]> jsons = cache.getAll(List.of(new RecipeVersion(2L, 0L), new RecipeVersion(1L, 0L)), missing -> {
+            throw new AssertionError("Nothing is missing");
+        });
+
+        assertThat(jsons).hasSize(2);
+        assertThat(new String(jsons.get(0), StandardCharsets.UTF_8)).contains("Recipe 2");
+    }
+
+    @Test
+    public void testBindTo_PublishesCacheMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(1L, 0L, loader());
+        cache.get(1L, 0L, loader());
+
+        assertThat(registry.get("cache.gets").tag("cache", RecipeJsonCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.evictions").functionCounter().count()).isZero();
+        assertThat(registry.get("cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testToJsonArray() {
+        assertThat(new String(RecipeJsonCache.toJsonArray(List.of(json(1L), json(2L))), StandardCharsets.UTF_8))
+                .isEqualTo("[{\"name\":\"Recipe 1\"},{\"name\":\"Recipe 2\"}]");
+        assertThat(new String(RecipeJsonCache.toJsonArray(List.of()), StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    private Function<Long, byte[]> loader() {
+        return id -> {
+            loads.incrementAndGet();
+            return json(id);
+        };
+    }
+
+    private static byte[] json(Long id) {
+        return ("{\"name\":\"Recipe " + id + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
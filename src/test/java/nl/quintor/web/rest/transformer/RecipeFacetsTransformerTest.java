@@ -0,0 +1,39 @@
+package nl.quintor.web.rest.transformer;
+
+import nl.quintor.index.RecipeFacets;
+import nl.quintor.web.rest.dto.RecipeFacetsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class RecipeFacetsTransformerTest {
+
+    @Test
+    public void testToDto() {
+        Map<String, Integer> ingredients = new LinkedHashMap<>();
+        ingredients.put("salt", 3);
+        ingredients.put("pepper", 1);
+        RecipeFacets facets = new RecipeFacets(3, 1, Map.of("Soup", 3), new TreeMap<>(Map.of(2, 1, 4, 2)), ingredients);
+
+        RecipeFacetsDto dto = RecipeFacetsTransformer.toDto(facets);
+
+        assertThat(dto.getTotal()).isEqualTo(3);
+        assertThat(dto.getIsVegetarian()).containsExactly(entry(true, 1), entry(false, 2));
+        assertThat(dto.getTypes()).containsExactly(entry("Soup", 3));
+        assertThat(dto.getServingCapacities()).containsExactly(entry(2, 1), entry(4, 2));
+        assertThat(dto.getIngredients()).containsExactly(entry("salt", 3), entry("pepper", 1));
+    }
+
+    @Test
+    public void testToDto_NoMatches() {
+        RecipeFacetsDto dto = RecipeFacetsTransformer.toDto(new RecipeFacets(0, 0, Map.of(), new TreeMap<>(), Map.of()));
+
+        assertThat(dto.getTotal()).isZero();
+        assertThat(dto.getIsVegetarian()).isEmpty();
+    }
+}
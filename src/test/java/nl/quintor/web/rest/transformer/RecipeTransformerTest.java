@@ -1,9 +1,14 @@
 package nl.quintor.web.rest.transformer;
 
 import nl.quintor.model.Recipe;
+import nl.quintor.repository.RecipeField;
+import nl.quintor.repository.RecipeView;
 import nl.quintor.web.rest.dto.RecipeDto;
 import org.junit.jupiter.api.Test;
 
+import java.util.EnumSet;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class RecipeTransformerTest {
@@ -26,6 +31,20 @@ public class RecipeTransformerTest {
         assertThat(recipeDto.getIsVegetarian()).isTrue();
     }
 
+    @Test
+    public void testToDtoWithFields() {
+        RecipeView view = new RecipeView(1L, 0L, "Test Recipe", "Main Course", 4, "Mix and cook.", true, List.of("Salt"));
+
+        RecipeDto recipeDto = RecipeTransformer.toDto(view, EnumSet.of(RecipeField.NAME, RecipeField.IS_VEGETARIAN));
+
+        assertThat(recipeDto.getName()).isEqualTo("Test Recipe");
+        assertThat(recipeDto.getIsVegetarian()).isTrue();
+        assertThat(recipeDto.getType()).isNull();
+        assertThat(recipeDto.getServingCapacity()).isNull();
+        assertThat(recipeDto.getInstructions()).isNull();
+        assertThat(recipeDto.getIngredientList()).isNull();
+    }
+
     @Test
     public void testToEntity() {
         RecipeDto recipeDto = new RecipeDto();